@@ -24,6 +24,7 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -48,7 +49,7 @@ import java.util.List;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleConstantRemediation("10min")
 @ActivatedByDefault
-public class AllGradientDefinitions extends SquidCheck<LexerlessGrammar> {
+public class AllGradientDefinitions extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
   private static List<String> gradients = ImmutableList.<String>of(
     "-ms-(linear|radial)-gradient.*",
@@ -25,7 +25,8 @@ import java.util.List;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.checks.utils.PropertyName;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
@@ -39,10 +40,12 @@ import org.sonar.sslr.parser.LexerlessGrammar;
   tags = {Tags.CONVENTION})
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.READABILITY)
 @SqaleConstantRemediation("2min")
-public class AlphabetizeDeclarationsCheck extends SquidCheck<LexerlessGrammar> {
+public class AlphabetizeDeclarationsCheck extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
   private List<String> declarations = new ArrayList<String>();
 
+  private final PropertyName name = new PropertyName();
+
   @Override
   public void init() {
     subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE, CssGrammar.DECLARATION);
@@ -52,8 +55,8 @@ public class AlphabetizeDeclarationsCheck extends SquidCheck<LexerlessGrammar> {
   public void leaveNode(AstNode astNode) {
     if (astNode.is(CssGrammar.DECLARATION)
       && astNode.getFirstChild(CssGrammar.PROPERTY) != null
-      && !CssProperties.isVendor(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue())) {
-      declarations.add(CssProperties.getUnhackedProperty(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue()));
+      && !name.parse(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue()).isVendor()) {
+      declarations.add(name.unhacked());
     } else if (astNode.is(CssGrammar.RULESET) || astNode.is(CssGrammar.AT_RULE)) {
       if (!arePropertiesAlphabeticallyOrdered(declarations)) {
         getContext().createLineViolation(this, "Alphabetically order this rule's properties", astNode);
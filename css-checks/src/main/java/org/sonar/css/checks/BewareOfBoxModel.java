@@ -19,11 +19,13 @@
  */
 package org.sonar.css.checks;
 
-import com.google.common.collect.ImmutableList;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.checks.utils.DeclarationBlock;
+import org.sonar.css.checks.utils.PropertyIds;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -31,10 +33,7 @@ import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 import org.sonar.squidbridge.checks.SquidCheck;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.util.Arrays;
-import java.util.EnumSet;
-import java.util.List;
-import java.util.Set;
+import java.util.BitSet;
 
 /**
  * https://github.com/stubbornella/csslint/wiki/Beware-of-box-model-size
@@ -49,103 +48,42 @@ import java.util.Set;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleConstantRemediation("1h")
 @ActivatedByDefault
-public class BewareOfBoxModel extends SquidCheck<LexerlessGrammar> {
+public class BewareOfBoxModel extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
-  private List<String> widthSizing = ImmutableList.<String>of(
+  private static final int BOX_SIZING = PropertyIds.intern("box-sizing");
+  private static final int WIDTH = PropertyIds.intern("width");
+  private static final int HEIGHT = PropertyIds.intern("height");
+
+  private static final BitSet WIDTH_SIZING = PropertyIds.of(
     "border", "border-left", "border-right", "padding", "padding-left", "padding-right"
   );
 
-  private List<String> heightSizing = ImmutableList.<String>of(
+  private static final BitSet HEIGHT_SIZING = PropertyIds.of(
     "border", "border-top", "border-bottom", "padding", "padding-top", "padding-bottom"
   );
 
-  private Set<Combinations> combinations;
-
   @Override
   public void init() {
-    subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE, CssGrammar.DECLARATION);
-  }
-
-  @Override
-  public void visitNode(AstNode astNode) {
-    if (astNode.is(CssGrammar.RULESET) || astNode.is(CssGrammar.AT_RULE)) {
-      combinations = EnumSet.noneOf(Combinations.class);
-    } else if (astNode.is(CssGrammar.DECLARATION)) {
-      if (isBoxSizing(astNode)) {
-        combinations.clear();
-        combinations.add(Combinations.IS_BOX_SIZING);
-      }
-      if (!combinations.contains(Combinations.IS_BOX_SIZING)) {
-        if (!combinations.contains(Combinations.WIDTH_FOUND) && isWidth(astNode)) {
-          combinations.add(Combinations.WIDTH_FOUND);
-        } else if (!combinations.contains(Combinations.HEIGHT_FOUND) && isHeight(astNode)) {
-          combinations.add(Combinations.HEIGHT_FOUND);
-        }
-        if (isWidthSizing(astNode)) {
-          combinations.add(Combinations.WIDTH_SIZING);
-        }
-        if (isHeightSizing(astNode)) {
-          combinations.add(Combinations.HEIGHT_SIZING);
-        }
-      }
-    }
+    subscribeTo(CssGrammar.RULESET);
   }
 
   @Override
   public void leaveNode(AstNode astNode) {
-    if (astNode.is(CssGrammar.RULESET)
-      && (combinations.containsAll(Arrays.asList(Combinations.WIDTH_FOUND, Combinations.WIDTH_SIZING))
-      || combinations.containsAll(Arrays.asList(Combinations.HEIGHT_FOUND, Combinations.HEIGHT_SIZING)))) {
+    DeclarationBlock block = DeclarationBlock.of(getContext(), astNode);
+    if (!block.has(BOX_SIZING) && (isSized(block, WIDTH, WIDTH_SIZING) || isSized(block, HEIGHT, HEIGHT_SIZING))) {
       getContext().createLineViolation(this, "Check this potential box model size issue", astNode);
     }
   }
 
-  private boolean isWidthSizing(AstNode astNode) {
-    return isOtherUsed(widthSizing, astNode);
-  }
-
-  private boolean isHeightSizing(AstNode astNode) {
-    return isOtherUsed(heightSizing, astNode);
-  }
-
-  private boolean isOtherUsed(List<String> props, AstNode declaration) {
-    String property = declaration.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-    String value = declaration.getFirstChild(CssGrammar.VALUE).getTokenValue();
-    return props.contains(property) && !"none".equalsIgnoreCase(value);
-  }
-
-  private boolean isBoxSizing(AstNode declaration) {
-    String property = declaration.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-    return "box-sizing".equalsIgnoreCase(property);
-    /*
-     * if ("box-sizing".equalsIgnoreCase(property)) {
-     * return "border-box".equalsIgnoreCase(declaration.getFirstChild(CssGrammar.value).getTokenValue());
-     * }
-     */
-  }
-
-  private boolean isWidth(AstNode astNode) {
-    return Combinations.WIDTH_FOUND.equals(isWidthOrHeight(astNode));
-  }
-
-  private boolean isHeight(AstNode astNode) {
-    return Combinations.HEIGHT_FOUND.equals(isWidthOrHeight(astNode));
-  }
-
-  private Combinations isWidthOrHeight(AstNode declaration) {
-    String property = declaration.getFirstChild(CssGrammar.PROPERTY).getToken().getValue();
-    if ("height".equalsIgnoreCase(property)) {
-      return Combinations.HEIGHT_FOUND;
-    } else if ("width".equalsIgnoreCase(property)) {
-      return Combinations.WIDTH_FOUND;
+  private static boolean isSized(DeclarationBlock block, int dimension, BitSet sizing) {
+    if (block.has(dimension)) {
+      for (AstNode declaration : block.declarations(sizing)) {
+        if (!"none".equalsIgnoreCase(declaration.getFirstChild(CssGrammar.VALUE).getTokenValue())) {
+          return true;
+        }
+      }
     }
-    return null;
-  }
-
-  private enum Combinations {
-    WIDTH_FOUND, WIDTH_SIZING,
-    HEIGHT_FOUND, HEIGHT_SIZING,
-    IS_BOX_SIZING
+    return false;
   }
 
 }
@@ -76,4 +76,18 @@ public final class CheckList {
       VendorPrefixWithStandard.class
       );
   }
+
+  /**
+   * Checks on the layout of the source rather than on its content: they do not apply to minified stylesheets.
+   */
+  @SuppressWarnings("rawtypes")
+  public static Collection<Class> getLayoutChecks() {
+    return ImmutableList.<Class>of(
+      DeclarationFormatCheck.class,
+      OneDeclarationPerLineCheck.class,
+      SemicolonDeclarationCheck.class,
+      TabCharacterCheck.class,
+      TrailingWhitespaceCheck.class
+      );
+  }
 }
@@ -23,9 +23,10 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.checks.utils.CssP;
+import org.sonar.css.LocalContextVisitor;
 import org.sonar.css.checks.utils.CssProperties;
 import org.sonar.css.checks.utils.CssProperty;
+import org.sonar.css.checks.utils.PropertyName;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -52,10 +53,12 @@ import java.util.Set;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleConstantRemediation("10min")
 @ActivatedByDefault
-public class CompatibleVendorPrefixes extends SquidCheck<LexerlessGrammar> {
+public class CompatibleVendorPrefixes extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
   Map<String, Set<String>> properties = new HashMap<String, Set<String>>();
 
+  private final PropertyName name = new PropertyName();
+
   @Override
   public void init() {
     subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE, CssGrammar.DECLARATION);
@@ -66,15 +69,15 @@ public class CompatibleVendorPrefixes extends SquidCheck<LexerlessGrammar> {
     if (astNode.is(CssGrammar.RULESET) || astNode.is(CssGrammar.AT_RULE)) {
       properties.clear();
     } else if (astNode.is(CssGrammar.DECLARATION)) {
-      String property = astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-      if (CssProperties.isVendor(property)) {
-        CssP p = CssP.factory(property);
-        if (properties.containsKey(p.getName())) {
-          properties.get(p.getName()).add(p.getVendor());
-        } else {
-          properties.put(p.getName(), new HashSet<String>());
-          properties.get(p.getName()).add(p.getVendor());
+      name.parse(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue());
+      if (name.isVendor()) {
+        String baseName = name.baseName();
+        Set<String> vendors = properties.get(baseName);
+        if (vendors == null) {
+          vendors = new HashSet<String>();
+          properties.put(baseName, vendors);
         }
+        vendors.add(name.vendor());
       }
     }
   }
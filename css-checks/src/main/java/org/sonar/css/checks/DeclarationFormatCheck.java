@@ -23,6 +23,7 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
@@ -37,7 +38,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
   tags = {Tags.FORMAT})
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.READABILITY)
 @SqaleConstantRemediation("2min")
-public class DeclarationFormatCheck extends SquidCheck<LexerlessGrammar> {
+public class DeclarationFormatCheck extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
   @Override
   public void init() {
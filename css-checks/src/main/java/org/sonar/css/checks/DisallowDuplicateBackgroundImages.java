@@ -55,6 +55,11 @@ public class DisallowDuplicateBackgroundImages extends SquidCheck<LexerlessGramm
     subscribeTo(CssGrammar.PROPERTY);
   }
 
+  @Override
+  public void visitFile(AstNode astNode) {
+    urls.clear();
+  }
+
   @Override
   public void visitNode(AstNode astNode) {
     if(astNode.getTokenValue().startsWith("background")){
@@ -23,6 +23,7 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -49,7 +50,7 @@ import java.util.Map.Entry;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.MEMORY_EFFICIENCY)
 @SqaleConstantRemediation("1h")
 @ActivatedByDefault
-public class DisallowOverqualifiedElements extends SquidCheck<LexerlessGrammar> {
+public class DisallowOverqualifiedElements extends SquidCheck<LexerlessGrammar> implements SelectorLevelVisitor {
 
   List<Selectors> selectors = new ArrayList<DisallowOverqualifiedElements.Selectors>();
 
@@ -24,6 +24,8 @@ import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -42,7 +44,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.LOGIC_CHANGEABILITY)
 @SqaleConstantRemediation("2h")
 @ActivatedByDefault
-public class DisallowOverspecificSelectors extends SquidCheck<LexerlessGrammar> {
+public class DisallowOverspecificSelectors extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor, SelectorLevelVisitor {
 
   private static final int DEFAULT_NUM_LEVELS = 3;
 
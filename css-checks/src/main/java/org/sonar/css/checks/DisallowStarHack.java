@@ -23,6 +23,8 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -43,7 +45,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleConstantRemediation("1h")
 @ActivatedByDefault
-public class DisallowStarHack extends SquidCheck<LexerlessGrammar> {
+public class DisallowStarHack extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor, SelectorLevelVisitor {
 
 
   @Override
@@ -19,11 +19,14 @@
  */
 package org.sonar.css.checks;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.checks.utils.DeclarationBlock;
+import org.sonar.css.checks.utils.PropertyIds;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -31,8 +34,9 @@ import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 import org.sonar.squidbridge.checks.SquidCheck;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.util.Collections;
-import java.util.HashMap;
+import javax.annotation.CheckForNull;
+
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
@@ -49,59 +53,38 @@ import java.util.Map;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.MEMORY_EFFICIENCY)
 @SqaleConstantRemediation("5min")
 @ActivatedByDefault
-public class DisplayPropertyGrouping extends SquidCheck<LexerlessGrammar> {
+public class DisplayPropertyGrouping extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
-  private Map<String, List<String>> rules = new HashMap<String, List<String>>() {
-    private static final long serialVersionUID = -6508282306820423526L;
+  private static final int DISPLAY = PropertyIds.intern("display");
 
-    {
-      put("inline",
-        ImmutableList.<String>of(
-          "width", "height", "margin", "margin-top", "margin-bottom", "float"));
-      put("inline-block", ImmutableList.<String>of("float"));
-      put("block", ImmutableList.<String>of("vertical-align"));
-      put("table*", ImmutableList.<String>of("margin", "margin-top", "margin-bottom", "margin-left", "margin-right", "float"));
-    }
-  };
+  private static final Map<String, BitSet> RULES = ImmutableMap.of(
+    "inline", PropertyIds.of("width", "height", "margin", "margin-top", "margin-bottom", "float"),
+    "inline-block", PropertyIds.of("float"),
+    "block", PropertyIds.of("vertical-align"),
+    "table*", PropertyIds.of("margin", "margin-top", "margin-bottom", "margin-left", "margin-right", "float"));
 
   @Override
   public void init() {
     subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE);
   }
 
-  //TODO refactor this to not use getDescendants
   @Override
   public void visitNode(AstNode astNode) {
-    List<AstNode> declarations = astNode.getDescendants(CssGrammar.DECLARATION);
-    List<String> avoidProps = isDisplay(declarations);
-    if (avoidProps != null && !avoidProps.isEmpty() && isOtherUsed(declarations, avoidProps)) {
+    DeclarationBlock block = DeclarationBlock.of(getContext(), astNode);
+    BitSet avoidProps = avoidedProperties(block);
+    if (avoidProps != null && block.hasAny(avoidProps)) {
       getContext().createLineViolation(this, "Remove this property that does not work with the \"display\" property", astNode);
     }
   }
 
-  private List<String> isDisplay(List<AstNode> declarations) {
-    for (AstNode astNode : declarations) {
-      String property = astNode.getFirstChild(CssGrammar.PROPERTY).getToken().getValue();
-      String value = astNode.getFirstChild(CssGrammar.VALUE).getTokenValue();
-      if ("display".equalsIgnoreCase(property)) {
-        if (value.startsWith("table")) {
-          return rules.get("table*");
-        } else {
-          return rules.get(value);
-        }
-      }
-    }
-    return Collections.emptyList();
-  }
-
-  private boolean isOtherUsed(List<AstNode> declarations, List<String> avoidProps) {
-    for (AstNode astNode : declarations) {
-      String property = astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-      if (avoidProps.contains(property)) {
-        return true;
-      }
+  @CheckForNull
+  private static BitSet avoidedProperties(DeclarationBlock block) {
+    List<AstNode> displays = block.declarations(DISPLAY);
+    if (displays.isEmpty()) {
+      return null;
     }
-    return false;
+    String value = displays.get(0).getFirstChild(CssGrammar.VALUE).getTokenValue();
+    return value.startsWith("table") ? RULES.get("table*") : RULES.get(value);
   }
 
 }
@@ -23,7 +23,8 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.checks.utils.PropertyName;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -39,7 +40,9 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.DATA_CHANGEABILITY)
 @SqaleConstantRemediation("5min")
 @ActivatedByDefault
-public class ExperimentalPropertyUsageCheck extends SquidCheck<LexerlessGrammar> {
+public class ExperimentalPropertyUsageCheck extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
+
+  private final PropertyName name = new PropertyName();
 
   @Override
   public void init() {
@@ -48,7 +51,7 @@ public class ExperimentalPropertyUsageCheck extends SquidCheck<LexerlessGrammar>
 
   @Override
   public void visitNode(AstNode astNode) {
-    if (CssProperties.isVendor(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue())) {
+    if (name.parse(astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue()).isVendor()) {
       getContext().createLineViolation(this, "Remove the usage of this experimental property", astNode);
     }
   }
@@ -23,6 +23,7 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleLinearRemediation;
@@ -42,7 +43,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @ActivatedByDefault
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleLinearRemediation(coeff = "10min", effortToFixDescription = "number of imports beyond the limit")
-public class ImportNumberThreshold extends SquidCheck<LexerlessGrammar> {
+public class ImportNumberThreshold extends SquidCheck<LexerlessGrammar> implements SelectorLevelVisitor {
 
   private static final int DEFAULT_THRESHOLD = 31;
 
@@ -23,7 +23,10 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.css.checks.utils.PropertyName;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -44,7 +47,9 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.LOGIC_RELIABILITY)
 @SqaleConstantRemediation("10min")
 @ActivatedByDefault
-public class KnownProperties extends SquidCheck<LexerlessGrammar> {
+public class KnownProperties extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor, SelectorLevelVisitor {
+
+  private final PropertyName name = new PropertyName();
 
   @Override
   public void init() {
@@ -54,9 +59,8 @@ public class KnownProperties extends SquidCheck<LexerlessGrammar> {
   @Override
   public void visitNode(AstNode astNode) {
     // Ignore '*' and '_' hacks
-    String property = astNode.getTokenValue().matches("^[\\*_].*$") ? astNode.getTokenValue().substring(1) : astNode.getTokenValue();
-    if (!CssProperties.isVendor(property) && !CssProperties.PROPERTIES.contains(property)) {
-      getContext().createLineViolation(this, "Remove the usage of this unknown property: " + property, astNode);
+    if (!name.parse(astNode.getTokenValue()).isVendor() && !CssProperties.isKnownProperty(name.unhacked())) {
+      getContext().createLineViolation(this, "Remove the usage of this unknown property: " + name.unhacked(), astNode);
     }
   }
 
@@ -24,6 +24,7 @@ import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.SqaleLinearRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
@@ -37,7 +38,7 @@ import org.sonar.sslr.parser.LexerlessGrammar;
   tags = {Tags.DESIGN, Tags.PERFORMANCE})
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_CHANGEABILITY)
 @SqaleLinearRemediation(coeff = "5min", effortToFixDescription = "number of rules beyond the limit")
-public class MaximumNumberOfRulesPerSheetCheck extends SquidCheck<LexerlessGrammar> {
+public class MaximumNumberOfRulesPerSheetCheck extends SquidCheck<LexerlessGrammar> implements SelectorLevelVisitor {
 
   private static final int DEFAULT_MAX_RULES = 500;
 
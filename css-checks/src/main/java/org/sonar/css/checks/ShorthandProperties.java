@@ -19,11 +19,13 @@
  */
 package org.sonar.css.checks;
 
-import com.google.common.collect.ImmutableList;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.checks.utils.DeclarationBlock;
+import org.sonar.css.checks.utils.PropertyIds;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -31,8 +33,7 @@ import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 import org.sonar.squidbridge.checks.SquidCheck;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 
 /**
  * https://github.com/stubbornella/csslint/wiki/Require-shorthand-properties
@@ -47,39 +48,24 @@ import java.util.List;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.MEMORY_EFFICIENCY)
 @SqaleConstantRemediation("5min")
 @ActivatedByDefault
-public class ShorthandProperties extends SquidCheck<LexerlessGrammar> {
+public class ShorthandProperties extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
 
-  private static List<String> margin = ImmutableList.<String>of("margin-left", "margin-right", "margin-top", "margin-bottom");
-  private static List<String> padding = ImmutableList.<String>of("padding-left", "padding-right", "padding-top", "padding-bottom");
-
-  List<String> properties = new ArrayList<String>();
+  private static final BitSet MARGIN = PropertyIds.of("margin-left", "margin-right", "margin-top", "margin-bottom");
+  private static final BitSet PADDING = PropertyIds.of("padding-left", "padding-right", "padding-top", "padding-bottom");
 
   @Override
   public void init() {
-    subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE, CssGrammar.DECLARATION);
-  }
-
-  @Override
-  public void visitNode(AstNode astNode) {
-    if (astNode.getType().equals(CssGrammar.RULESET) || astNode.getType().equals(CssGrammar.AT_RULE)) {
-      properties.clear();
-    } else if (astNode.getType().equals(CssGrammar.DECLARATION)) {
-      String property = astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-      if (margin.contains(property) || padding.contains(property)) {
-        properties.add(property);
-      }
-    }
+    subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE);
   }
 
   @Override
   public void leaveNode(AstNode astNode) {
-    if (astNode.getType().equals(CssGrammar.RULESET) || astNode.getType().equals(CssGrammar.AT_RULE)) {
-      if (properties.containsAll(margin)) {
-        getContext().createLineViolation(this, "Use margin shorthand instead", astNode);
-      }
-      if (properties.containsAll(padding)) {
-        getContext().createLineViolation(this, "Use padding shorthand instead", astNode);
-      }
+    DeclarationBlock block = DeclarationBlock.of(getContext(), astNode);
+    if (block.hasAll(MARGIN)) {
+      getContext().createLineViolation(this, "Use margin shorthand instead", astNode);
+    }
+    if (block.hasAll(PADDING)) {
+      getContext().createLineViolation(this, "Use padding shorthand instead", astNode);
     }
   }
 
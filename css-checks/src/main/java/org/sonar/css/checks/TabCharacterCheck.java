@@ -19,23 +19,19 @@
  */
 package org.sonar.css.checks;
 
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.CharsetAwareVisitor;
+import org.sonar.css.CssSource;
+import org.sonar.css.CssVisitorContext;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 import org.sonar.squidbridge.checks.SquidCheck;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.List;
-
 @Rule(
   key = "tab-character",
   name = "Tabulation characters should not be used",
@@ -44,24 +40,12 @@ import java.util.List;
 @ActivatedByDefault
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.READABILITY)
 @SqaleConstantRemediation("2min")
-public class TabCharacterCheck extends SquidCheck<LexerlessGrammar> implements CharsetAwareVisitor {
-
-  private Charset charset;
-
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
+public class TabCharacterCheck extends SquidCheck<LexerlessGrammar> implements SelectorLevelVisitor {
 
   @Override
   public void visitFile(AstNode astNode) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(getContext().getFile(), charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-    for (String line : lines) {
+    CssSource source = CssVisitorContext.source(getContext());
+    for (String line : source.lines()) {
       if (line.contains("\t")) {
         getContext().createFileViolation(this, "Replace all tab characters in this file by sequences of white-spaces.");
         break;
@@ -19,21 +19,18 @@
  */
 package org.sonar.css.checks;
 
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.CharsetAwareVisitor;
+import org.sonar.css.CssSource;
+import org.sonar.css.CssVisitorContext;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 import org.sonar.squidbridge.checks.SquidCheck;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.List;
 import java.util.regex.Pattern;
 
 @Rule(
@@ -43,28 +40,17 @@ import java.util.regex.Pattern;
   tags = {Tags.FORMAT})
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.READABILITY)
 @SqaleConstantRemediation("1min")
-public class TrailingWhitespaceCheck extends SquidCheck<LexerlessGrammar> implements CharsetAwareVisitor {
+public class TrailingWhitespaceCheck extends SquidCheck<LexerlessGrammar> implements SelectorLevelVisitor {
 
   private static final String WHITESPACE = "\\t\\u000B\\f\\u0020\\u00A0\\uFEFF\\p{Zs}";
-  private Charset charset;
-
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
 
   @Override
   public void visitFile(AstNode astNode) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(getContext().getFile(), charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-    for (int i = 0; i < lines.size(); i++) {
-      String line = lines.get(i);
+    CssSource source = CssVisitorContext.source(getContext());
+    for (int i = 1; i <= source.lineCount(); i++) {
+      String line = source.line(i);
       if (line.length() > 0 && Pattern.matches("[" + WHITESPACE + "]", line.subSequence(line.length() - 1, line.length()))) {
-        getContext().createLineViolation(this, "Remove the useless trailing whitespaces at the end of this line.", i + 1);
+        getContext().createLineViolation(this, "Remove the useless trailing whitespaces at the end of this line.", i);
       }
     }
   }
@@ -23,8 +23,9 @@ import com.sonar.sslr.api.AstNode;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.css.checks.utils.CssP;
+import org.sonar.css.LocalContextVisitor;
 import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.css.checks.utils.PropertyName;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.annotations.ActivatedByDefault;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -45,7 +46,9 @@ import org.sonar.sslr.parser.LexerlessGrammar;
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.ARCHITECTURE_RELIABILITY)
 @SqaleConstantRemediation("10min")
 @ActivatedByDefault
-public class VendorPrefixWithStandard extends SquidCheck<LexerlessGrammar> {
+public class VendorPrefixWithStandard extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
+
+  private final PropertyName name = new PropertyName();
 
   @Override
   public void init() {
@@ -55,21 +58,20 @@ public class VendorPrefixWithStandard extends SquidCheck<LexerlessGrammar> {
   @Override
   public void leaveNode(AstNode astNode) {
     String property = astNode.getFirstChild(CssGrammar.PROPERTY).getTokenValue();
-    if (CssProperties.isVendor(property) && CssProperties.getProperty(property) != null) {
-      CssP prop = CssP.factory(property);
-      if (!isNextExists(astNode, prop.getName())) {
+    if (name.parse(property).isVendor() && CssProperties.getProperty(property) != null) {
+      if (!isNextExists(astNode)) {
         getContext().createLineViolation(this, "Define the standard property after this vendor-prefixed property", astNode);
       }
     }
   }
 
-  private boolean isNextExists(AstNode actual, String propertyName) {
+  private boolean isNextExists(AstNode actual) {
     AstNode next = actual.getNextSibling();
     while (next != null) {
       AstNode property = next.getFirstChild(CssGrammar.PROPERTY);
       if (property != null) {
         String nextProperty = property.getTokenValue();
-        if (propertyName.equalsIgnoreCase(nextProperty)) {
+        if (name.baseNameEqualsIgnoreCase(nextProperty)) {
           return true;
         }
       }
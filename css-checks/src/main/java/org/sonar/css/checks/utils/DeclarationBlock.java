@@ -0,0 +1,160 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import org.sonar.css.CssVisitorContext;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.SquidAstVisitorContext;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Declarations of a rule set or an at-rule, with the {@link PropertyIds} of their properties. Declarations nested in
+ * values are included, not the ones of nested rule sets or at-rules.
+ * <p>
+ * The summary of a statement is computed once, by the first check which asks for it, and shared with the other checks
+ * through the {@link CssVisitorContext}.
+ */
+public final class DeclarationBlock {
+
+  private final AstNode statement;
+  private final List<AstNode> declarations;
+  /**
+   * Id of the property of each declaration, -1 if it has none.
+   */
+  private final int[] ids;
+  private final BitSet properties = new BitSet();
+
+  private DeclarationBlock(AstNode statement) {
+    this.statement = statement;
+    List<AstNode> list = Lists.newArrayList();
+    addDeclarations(statement, list);
+    declarations = ImmutableList.copyOf(list);
+    ids = new int[declarations.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = PropertyIds.id(declarations.get(i).getFirstChild(CssGrammar.PROPERTY).getTokenValue());
+      if (ids[i] >= 0) {
+        properties.set(ids[i]);
+      }
+    }
+  }
+
+  /**
+   * Visits the descendants of the node in document order, with a stack rather than recursion: values may nest deeply.
+   */
+  private static void addDeclarations(AstNode node, List<AstNode> declarations) {
+    Deque<AstNode> stack = new ArrayDeque<AstNode>();
+    pushChildren(node, stack);
+    while (!stack.isEmpty()) {
+      AstNode child = stack.pop();
+      if (child.is(CssGrammar.DECLARATION)) {
+        declarations.add(child);
+      }
+      if (!child.is(CssGrammar.RULESET, CssGrammar.AT_RULE)) {
+        pushChildren(child, stack);
+      }
+    }
+  }
+
+  private static void pushChildren(AstNode node, Deque<AstNode> stack) {
+    List<AstNode> children = node.getChildren();
+    for (int i = children.size() - 1; i >= 0; i--) {
+      stack.push(children.get(i));
+    }
+  }
+
+  /**
+   * The summary is only shared within a {@link CssVisitorContext}: in any other context, it is computed for each call.
+   *
+   * @param statement a {@link CssGrammar#RULESET} or an {@link CssGrammar#AT_RULE} of the current file
+   */
+  public static DeclarationBlock of(SquidAstVisitorContext<?> context, AstNode statement) {
+    if (!(context instanceof CssVisitorContext)) {
+      return new DeclarationBlock(statement);
+    }
+    CssVisitorContext cssContext = (CssVisitorContext) context;
+    DeclarationBlock block = cssContext.shared(DeclarationBlock.class);
+    if (block == null || block.statement != statement) {
+      block = new DeclarationBlock(statement);
+      cssContext.share(DeclarationBlock.class, block);
+    }
+    return block;
+  }
+
+  public List<AstNode> declarations() {
+    return declarations;
+  }
+
+  public boolean has(int id) {
+    return id >= 0 && properties.get(id);
+  }
+
+  public boolean hasAll(BitSet ids) {
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      if (!properties.get(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean hasAny(BitSet ids) {
+    return properties.intersects(ids);
+  }
+
+  /**
+   * @return the declarations of the property of the given id, in order
+   */
+  public List<AstNode> declarations(int id) {
+    if (!has(id)) {
+      return ImmutableList.of();
+    }
+    List<AstNode> result = Lists.newArrayList();
+    for (int i = 0; i < ids.length; i++) {
+      if (ids[i] == id) {
+        result.add(declarations.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the declarations of the properties of the given ids, in order
+   */
+  public List<AstNode> declarations(BitSet ids) {
+    if (!hasAny(ids)) {
+      return ImmutableList.of();
+    }
+    List<AstNode> result = Lists.newArrayList();
+    for (int i = 0; i < this.ids.length; i++) {
+      if (this.ids[i] >= 0 && ids.get(this.ids[i])) {
+        result.add(declarations.get(i));
+      }
+    }
+    return result;
+  }
+
+}
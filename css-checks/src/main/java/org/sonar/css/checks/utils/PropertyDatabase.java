@@ -0,0 +1,164 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Vendor prefixes and properties read from {@code css-properties.txt}, or from the file given by the setting
+ * {@code sonar.css.properties.file}, see {@link CssProperties#load(String)}. See the bundled file for the format.
+ */
+final class PropertyDatabase {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PropertyDatabase.class);
+
+  static final String RESOURCE = "css-properties.txt";
+
+  private static final String VENDOR = "@vendor";
+  private static final Splitter FIELDS = Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings();
+
+  final ImmutableList<String> vendors;
+  /**
+   * Vendors without dashes, for instance {@code webkit} for {@code -webkit-}.
+   */
+  final String[] vendorNames;
+  final ImmutableList<CssProperty> properties;
+  final PropertyIndex index;
+  /**
+   * SHA-1 of the content the database was read from.
+   */
+  final String fingerprint;
+
+  private PropertyDatabase(ImmutableList<String> vendors, ImmutableList<CssProperty> properties, String fingerprint) {
+    this.vendors = vendors;
+    this.properties = properties;
+    this.fingerprint = fingerprint;
+    vendorNames = new String[vendors.size()];
+    for (int i = 0; i < vendorNames.length; i++) {
+      String prefix = vendors.get(i);
+      vendorNames[i] = prefix.substring(prefix.charAt(0) == '-' ? 1 : 0, prefix.length() - 1);
+    }
+    index = new PropertyIndex(properties);
+  }
+
+  /**
+   * Reads the given file, or the bundled file if none is given. A file which cannot be read, or whose format is
+   * wrong, is reported with its line and the bundled file is used instead: a bad setting does not fail the analysis.
+   */
+  static PropertyDatabase load(@Nullable String path) {
+    if (path != null) {
+      LOG.info("Reading CSS properties from {}", path);
+      try {
+        return read(Files.toByteArray(new File(path)), path);
+      } catch (IOException e) {
+        LOG.warn("Unable to read CSS properties from " + path + ", using the bundled ones", e);
+      } catch (IllegalStateException e) {
+        LOG.warn("Invalid CSS properties file, using the bundled one: " + e.getMessage());
+      }
+    }
+    return bundled();
+  }
+
+  /**
+   * The bundled database, read once.
+   */
+  static PropertyDatabase bundled() {
+    return Bundled.DATABASE;
+  }
+
+  static PropertyDatabase read(InputStream in, String source) throws IOException {
+    return read(ByteStreams.toByteArray(in), source);
+  }
+
+  private static PropertyDatabase read(byte[] content, String source) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), Charsets.UTF_8));
+    ImmutableList.Builder<String> vendors = ImmutableList.builder();
+    ImmutableList.Builder<CssProperty> properties = ImmutableList.builder();
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      String[] fields = Iterables.toArray(FIELDS.split(line), String.class);
+      if (fields.length == 0 || fields[0].startsWith("#")) {
+        continue;
+      }
+      if (fields[0].startsWith("@")) {
+        if (!VENDOR.equals(fields[0]) || fields.length != 2) {
+          throw new IllegalStateException(source + ":" + lineNumber + ": expected '" + VENDOR + " <prefix>' but was: " + line);
+        }
+        vendors.add(fields[1]);
+      } else {
+        properties.add(new CssProperty(fields[0], Arrays.copyOfRange(fields, 1, fields.length)));
+      }
+    }
+    return new PropertyDatabase(vendors.build(), properties.build(), sha1(content));
+  }
+
+  private static String sha1(byte[] bytes) {
+    try {
+      return String.format("%040x", new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(bytes)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Bundled {
+
+    private static final PropertyDatabase DATABASE = read();
+
+    private Bundled() {
+    }
+
+    private static PropertyDatabase read() {
+      InputStream in = PropertyDatabase.class.getResourceAsStream(RESOURCE);
+      try {
+        return PropertyDatabase.read(in, RESOURCE);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read CSS properties from " + RESOURCE, e);
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Small int identifiers of property names, ignoring case, to be used as indexes of bit sets. The properties of the
+ * bundled {@code css-properties.txt} are numbered first, in order, then the other names given to {@link #intern(String)}.
+ */
+public final class PropertyIds {
+
+  private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+  private static int count;
+
+  static {
+    for (CssProperty property : PropertyDatabase.bundled().properties) {
+      intern(property.name);
+    }
+  }
+
+  private PropertyIds() {
+  }
+
+  /**
+   * @return the id of the given property name, or -1 if the name was never interned
+   */
+  public static int id(String name) {
+    // toLowerCase() only creates a string when the name has upper case characters
+    Integer id = IDS.get(name.toLowerCase(Locale.ENGLISH));
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * @return the id of the given property name, which is created if needed
+   */
+  public static synchronized int intern(String name) {
+    String key = name.toLowerCase(Locale.ENGLISH);
+    Integer id = IDS.get(key);
+    if (id == null) {
+      id = count++;
+      IDS.put(key, id);
+    }
+    return id;
+  }
+
+  /**
+   * @return the ids of the given property names, which are created if needed
+   */
+  public static BitSet of(String... names) {
+    BitSet ids = new BitSet();
+    for (String name : names) {
+      ids.set(intern(name));
+    }
+    return ids;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import java.util.List;
+
+/**
+ * Open-addressing hash table of {@link CssProperty} by name, which looks up the name at the end of a string without
+ * creating any substring. Hashes are computed from the end of the string, so that the hashes of all the suffixes of a
+ * string are computed in a single pass.
+ */
+final class PropertyIndex {
+
+  private static final int HASH_MULTIPLIER = 31;
+
+  private final CssProperty[] properties;
+  private final int[] hashes;
+  /**
+   * Position of each property in the list it was built from: the first one wins when several match.
+   */
+  private final int[] ranks;
+  private final int mask;
+
+  PropertyIndex(List<CssProperty> list) {
+    int capacity = Integer.highestOneBit(Math.max(list.size(), 1) * 4 - 1) << 1;
+    properties = new CssProperty[capacity];
+    hashes = new int[capacity];
+    ranks = new int[capacity];
+    mask = capacity - 1;
+    for (int rank = list.size() - 1; rank >= 0; rank--) {
+      CssProperty property = list.get(rank);
+      int hash = hash(property.name, 0);
+      int slot = slot(property.name, 0, hash, true);
+      properties[slot] = property;
+      hashes[slot] = hash;
+      ranks[slot] = rank;
+    }
+  }
+
+  /**
+   * Same as the first property of the list whose {@link CssProperty#isProperty(String)} is true: the property named
+   * as the given string, ignoring case, or else the property named as the end of the string, after a vendor prefix
+   * {@code -*-}.
+   */
+  CssProperty getProperty(String s) {
+    int best = -1;
+    if (!s.isEmpty() && s.charAt(0) == '-') {
+      int hash = 0;
+      for (int i = s.length() - 1; i > 0; i--) {
+        char c = s.charAt(i);
+        if (c == '-' && i + 1 < s.length()) {
+          best = better(best, slot(s, i + 1, hash, false));
+        }
+        hash = hash * HASH_MULTIPLIER + lowerCase(c);
+      }
+    }
+    best = better(best, slot(s, 0, hash(s, 0), true));
+    return best < 0 ? null : properties[best];
+  }
+
+  /**
+   * @return whether a property is named as the given string, ignoring case
+   */
+  boolean contains(String s) {
+    return properties[slot(s, 0, hash(s, 0), true)] != null;
+  }
+
+  private int better(int best, int slot) {
+    if (properties[slot] == null) {
+      return best;
+    }
+    return best < 0 || ranks[slot] < ranks[best] ? slot : best;
+  }
+
+  /**
+   * @return the slot of the property named as the given string from the given index, or the empty slot where it would be
+   */
+  private int slot(String s, int from, int hash, boolean ignoreCase) {
+    int slot = hash & mask;
+    while (properties[slot] != null && (hashes[slot] != hash || !matches(properties[slot].name, s, from, ignoreCase))) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static boolean matches(String name, String s, int from, boolean ignoreCase) {
+    return s.length() - from == name.length() && s.regionMatches(ignoreCase, from, name, 0, name.length());
+  }
+
+  private static int hash(String s, int from) {
+    int hash = 0;
+    for (int i = s.length() - 1; i >= from; i--) {
+      hash = hash * HASH_MULTIPLIER + lowerCase(s.charAt(i));
+    }
+    return hash;
+  }
+
+  private static char lowerCase(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+/**
+ * Parts of a property name: the optional '*' or '_' hack, the optional vendor prefix of {@link CssProperties#vendors()},
+ * then the base name. For instance {@code *-webkit-box-shadow} has the hack {@code *}, the vendor {@code webkit} and
+ * the base name {@code box-shadow}.
+ * <p>
+ * The name is split in a single pass over its characters, and nothing is allocated until a part is asked as a string:
+ * an instance can be reused for each property of a check.
+ */
+public final class PropertyName {
+
+  private PropertyDatabase database;
+  private String property = "";
+  private int hackEnd;
+  private int vendor = -1;
+  private int baseStart;
+
+  public PropertyName parse(String property) {
+    this.database = CssProperties.database();
+    this.property = property;
+    hackEnd = !property.isEmpty() && (property.charAt(0) == '*' || property.charAt(0) == '_') ? 1 : 0;
+    vendor = -1;
+    baseStart = hackEnd;
+    // A prefix ends with the first dash, or with the second one when it starts with a dash
+    int dash = property.indexOf('-', hackEnd + 1);
+    if (dash > hackEnd) {
+      int prefixLength = dash + 1 - hackEnd;
+      for (int i = 0; i < database.vendorNames.length; i++) {
+        String prefix = database.vendors.get(i);
+        if (prefix.length() == prefixLength && property.startsWith(prefix, hackEnd)) {
+          vendor = i;
+          baseStart = dash + 1;
+          break;
+        }
+      }
+    }
+    return this;
+  }
+
+  public boolean isHack() {
+    return hackEnd > 0;
+  }
+
+  public boolean isVendor() {
+    return vendor >= 0;
+  }
+
+  /**
+   * @return the vendor without dashes, for instance {@code webkit}, or {@code null} if there is no vendor prefix
+   */
+  public String vendor() {
+    return vendor < 0 ? null : database.vendorNames[vendor];
+  }
+
+  /**
+   * @return the name without the hack, for instance {@code -webkit-box-shadow}
+   */
+  public String unhacked() {
+    return property.substring(hackEnd);
+  }
+
+  /**
+   * @return the name without the hack and the vendor prefix, for instance {@code box-shadow}
+   */
+  public String baseName() {
+    return property.substring(baseStart);
+  }
+
+  /**
+   * Same as {@code baseName().equalsIgnoreCase(name)}.
+   */
+  public boolean baseNameEqualsIgnoreCase(String name) {
+    return property.length() - baseStart == name.length() && property.regionMatches(true, baseStart, name, 0, name.length());
+  }
+
+}
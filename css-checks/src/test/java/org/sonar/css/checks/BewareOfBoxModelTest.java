@@ -35,7 +35,8 @@ public class BewareOfBoxModelTest {
       "src/test/resources/checks/boxSizing.css"), check);
     CheckMessagesVerifier.verify(file.getCheckMessages()).next()
       .atLine(14).withMessage("Check this potential box model size issue").next()
-      .atLine(33).withMessage("Check this potential box model size issue").noMore();
+      .atLine(33).withMessage("Check this potential box model size issue").next()
+      .atLine(45).withMessage("Check this potential box model size issue").noMore();
   }
 
   @Test
@@ -38,4 +38,15 @@ public class DisallowDuplicateBackgroundImagesTest {
       .atLine(30).withMessage("Remove this duplicated background image").noMore();
   }
 
+  @Test
+  public void should_not_report_images_of_previous_files() {
+    DisallowDuplicateBackgroundImages check = new DisallowDuplicateBackgroundImages();
+    File file = new File("src/test/resources/checks/duplicatebackgroundimages.css");
+    CssAstScanner.scanSingleFile(file, check);
+    SourceFile again = CssAstScanner.scanSingleFile(file, check);
+    CheckMessagesVerifier.verify(again.getCheckMessages()).next()
+      .atLine(7).next()
+      .atLine(30).noMore();
+  }
+
 }
@@ -36,7 +36,9 @@ public class DisplayPropertyGroupingTest {
     CheckMessagesVerifier.verify(file.getCheckMessages()).next()
       .atLine(5).withMessage("Remove this property that does not work with the \"display\" property").next()
       .atLine(11).withMessage("Remove this property that does not work with the \"display\" property").next()
-      .atLine(23).withMessage("Remove this property that does not work with the \"display\" property").noMore();
+      .atLine(23).withMessage("Remove this property that does not work with the \"display\" property").next()
+      .atLine(30).withMessage("Remove this property that does not work with the \"display\" property").next()
+      .atLine(37).withMessage("Remove this property that does not work with the \"display\" property").noMore();
   }
 
   @Test
@@ -0,0 +1,92 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.RecognitionException;
+import org.junit.Test;
+import org.sonar.css.CssAstScanner;
+import org.sonar.css.CssConfiguration;
+import org.sonar.css.CssStreamingScanner;
+import org.sonar.css.LocalContextVisitor;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LocalContextChecksTest {
+
+  @Test
+  public void should_raise_same_issues_when_streaming() throws Exception {
+    List<File> files = parsableFiles();
+    assertThat(files).isNotEmpty();
+
+    int localChecks = 0;
+    for (Class<?> checkClass : CheckList.getChecks()) {
+      if (LocalContextVisitor.class.isAssignableFrom(checkClass)) {
+        localChecks++;
+        for (File file : files) {
+          List<String> full = messages(CssAstScanner.scanSingleFile(file, newCheck(checkClass)));
+          List<String> streamed = messages(new CssStreamingScanner(new CssConfiguration(Charsets.UTF_8), newCheck(checkClass)).scan(file));
+          assertThat(streamed).as(checkClass.getSimpleName() + " on " + file.getName()).isEqualTo(full);
+        }
+      }
+    }
+    assertThat(localChecks).isGreaterThan(20);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SquidAstVisitor<LexerlessGrammar> newCheck(Class<?> checkClass) throws Exception {
+    return (SquidAstVisitor<LexerlessGrammar>) checkClass.newInstance();
+  }
+
+  private static List<File> parsableFiles() throws Exception {
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, CssGrammar.createGrammar());
+    List<File> files = Lists.newArrayList();
+    for (File file : new File("src/test/resources/checks").listFiles()) {
+      try {
+        parser.parse(Files.toString(file, Charsets.UTF_8));
+        files.add(file);
+      } catch (RecognitionException e) {
+        // parse errors are reported differently: see CssStreamingScanner
+      }
+    }
+    return files;
+  }
+
+  private static List<String> messages(SourceFile sourceFile) {
+    List<String> messages = Lists.newArrayList();
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      messages.add(message.getLine() + " " + message.formatDefaultMessage());
+    }
+    return Ordering.natural().sortedCopy(messages);
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.RecognitionException;
+import org.junit.Test;
+import org.sonar.css.CssAstScanner;
+import org.sonar.css.CssConfiguration;
+import org.sonar.css.SelectorLevelVisitor;
+import org.sonar.css.api.CssMetric;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.AstScanner;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.indexer.QueryByType;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SelectorLevelChecksTest {
+
+  @Test
+  public void should_raise_same_issues_with_lazy_blocks() throws Exception {
+    List<File> files = parsableFiles();
+    assertThat(files).isNotEmpty();
+
+    int selectorLevelChecks = 0;
+    for (Class<?> checkClass : CheckList.getChecks()) {
+      if (SelectorLevelVisitor.class.isAssignableFrom(checkClass)) {
+        selectorLevelChecks++;
+        for (File file : files) {
+          SourceFile full = CssAstScanner.scanSingleFile(file, newCheck(checkClass));
+          SourceFile lazy = scanWithLazyBlocks(file, newCheck(checkClass));
+          String description = checkClass.getSimpleName() + " on " + file.getName();
+          assertThat(messages(lazy)).as(description).isEqualTo(messages(full));
+          for (CssMetric metric : CssMetric.values()) {
+            assertThat(lazy.getInt(metric)).as(metric + " of " + description).isEqualTo(full.getInt(metric));
+          }
+        }
+      }
+    }
+    assertThat(selectorLevelChecks).isGreaterThan(10);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SquidAstVisitor<LexerlessGrammar> newCheck(Class<?> checkClass) throws Exception {
+    return (SquidAstVisitor<LexerlessGrammar>) checkClass.newInstance();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SourceFile scanWithLazyBlocks(File file, SquidAstVisitor<LexerlessGrammar> check) {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+    conf.lazyBlocks(true);
+    AstScanner<LexerlessGrammar> scanner = CssAstScanner.create(conf, null, check);
+    scanner.scanFile(file);
+    Collection<SourceCode> sources = scanner.getIndex().search(new QueryByType(SourceFile.class));
+    assertThat(sources).hasSize(1);
+    return (SourceFile) sources.iterator().next();
+  }
+
+  private static List<File> parsableFiles() throws Exception {
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, CssGrammar.createGrammar());
+    List<File> files = Lists.newArrayList();
+    for (File file : new File("src/test/resources/checks").listFiles()) {
+      try {
+        parser.parse(Files.toString(file, Charsets.UTF_8));
+        files.add(file);
+      } catch (RecognitionException e) {
+        // values are not checked by lazy blocks: parse errors may be reported differently
+      }
+    }
+    return files;
+  }
+
+  private static List<String> messages(SourceFile sourceFile) {
+    List<String> messages = Lists.newArrayList();
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      messages.add(message.getLine() + " " + message.formatDefaultMessage());
+    }
+    return Ordering.natural().sortedCopy(messages);
+  }
+
+}
@@ -35,7 +35,9 @@ public class ShorthandPropertiesTest {
       "src/test/resources/checks/shorthand.css"), check);
     CheckMessagesVerifier.verify(file.getCheckMessages()).next()
       .atLine(1).withMessage("Use margin shorthand instead").next()
-      .atLine(21).withMessage("Use padding shorthand instead")
+      .atLine(21).withMessage("Use padding shorthand instead").next()
+      .atLine(30).withMessage("Use padding shorthand instead").next()
+      .atLine(39).withMessage("Use margin shorthand instead")
       .noMore();
   }
 
@@ -0,0 +1,98 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssPropertiesTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void loadBundled() {
+    CssProperties.load(null);
+  }
+
+  @Test
+  public void should_find_same_property_as_linear_scan() {
+    List<String> names = Lists.newArrayList("", "-", "--", "-webkit-", "unknown", "-webkit-unknown", "--color", "-x-y-color",
+      "-webkit-animation-name", "-webkit-Color", "-WEBKIT-color", "webkit-color", "*color", "_color", "color-", "-color-");
+    for (CssProperty property : CssProperties.properties()) {
+      names.add(property.name);
+      names.add(property.name.toUpperCase(Locale.ENGLISH));
+      for (String vendor : CssProperties.vendors()) {
+        names.add(vendor + property.name);
+      }
+    }
+    for (String name : names) {
+      assertThat(CssProperties.getProperty(name)).as(name).isSameAs(linearScan(name));
+      assertThat(CssProperties.isKnownProperty(name)).as(name).isEqualTo(linearScan(name) != null && linearScan(name).equals(name));
+    }
+  }
+
+  @Test
+  public void should_find_vendor_properties() {
+    assertThat(CssProperties.getProperty("-moz-border-radius").name).isEqualTo("border-radius");
+    assertThat(CssProperties.getProperty("Border-Radius").name).isEqualTo("border-radius");
+    assertThat(CssProperties.getProperty("-moz-Border-Radius")).isNull();
+    assertThat(CssProperties.isKnownProperty("Z-INDEX")).isTrue();
+    assertThat(CssProperties.isKnownProperty("-moz-border-radius")).isFalse();
+  }
+
+  @Test
+  public void should_load_file() throws Exception {
+    String bundled = CssProperties.fingerprint();
+    File file = temp.newFile();
+    Files.write("@vendor -x-\nfoo x\n", file, Charsets.UTF_8);
+
+    CssProperties.load(file.getAbsolutePath());
+    assertThat(CssProperties.isKnownProperty("foo")).isTrue();
+    assertThat(CssProperties.isKnownProperty("color")).isFalse();
+    assertThat(new PropertyName().parse("-x-foo").vendor()).isEqualTo("x");
+    assertThat(CssProperties.fingerprint()).isNotEqualTo(bundled);
+
+    CssProperties.load(null);
+    assertThat(CssProperties.isKnownProperty("color")).isTrue();
+    assertThat(CssProperties.fingerprint()).isEqualTo(bundled);
+  }
+
+  private static CssProperty linearScan(String name) {
+    for (CssProperty property : CssProperties.properties()) {
+      if (property.isProperty(name)) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+}
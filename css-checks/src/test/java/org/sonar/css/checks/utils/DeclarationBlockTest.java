@@ -0,0 +1,111 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.css.CssAstScanner;
+import org.sonar.css.parser.CssDialect;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.SquidAstVisitorContext;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DeclarationBlockTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void property_ids() {
+    assertThat(PropertyIds.id("margin-left")).isGreaterThanOrEqualTo(0);
+    assertThat(PropertyIds.id("MARGIN-LEFT")).isEqualTo(PropertyIds.id("margin-left"));
+    assertThat(PropertyIds.id("unknown-property")).isEqualTo(-1);
+    assertThat(PropertyIds.intern("other-unknown-property")).isEqualTo(PropertyIds.id("Other-Unknown-Property"));
+    assertThat(PropertyIds.of("width", "WIDTH", "height").cardinality()).isEqualTo(2);
+  }
+
+  @Test
+  public void declarations() throws Exception {
+    File file = temp.newFile();
+    Files.write("a { WIDTH: 1px; foo: bar; width: 2px }\n"
+      + "@media print { b { margin-left: 0 } }\n"
+      + "@page { margin-top: 1cm; }\n", file, Charsets.UTF_8);
+    BlockVisitor visitor = new BlockVisitor();
+    CssAstScanner.scanSingleFile(file, visitor);
+
+    int width = PropertyIds.id("width");
+    assertThat(visitor.blocks).hasSize(4);
+    DeclarationBlock ruleSet = visitor.blocks.get(0);
+    assertThat(ruleSet.declarations()).hasSize(3);
+    assertThat(ruleSet.has(width)).isTrue();
+    assertThat(ruleSet.has(PropertyIds.id("height"))).isFalse();
+    assertThat(ruleSet.has(-1)).isFalse();
+    assertThat(ruleSet.declarations(width)).hasSize(2);
+    assertThat(ruleSet.declarations(width).get(1).getFirstChild(CssGrammar.VALUE).getTokenValue()).isEqualTo("2px");
+    assertThat(ruleSet.hasAll(PropertyIds.of("width"))).isTrue();
+    assertThat(ruleSet.hasAll(PropertyIds.of("width", "height"))).isFalse();
+    assertThat(ruleSet.hasAny(PropertyIds.of("width", "height"))).isTrue();
+
+    // Nested rule sets have their own block
+    assertThat(visitor.blocks.get(1).declarations()).isEmpty();
+    assertThat(visitor.blocks.get(2).declarations(PropertyIds.of("margin-left", "margin-top"))).hasSize(1);
+    assertThat(visitor.blocks.get(3).has(PropertyIds.id("margin-top"))).isTrue();
+  }
+
+  @Test
+  public void declarations_outside_of_css_scanner() {
+    AstNode ruleSet = CssDialect.CSS.parser(Charsets.UTF_8).parse("a { width: 1px; margin: 0 }").getFirstDescendant(CssGrammar.RULESET);
+    DeclarationBlock block = DeclarationBlock.of(mock(SquidAstVisitorContext.class), ruleSet);
+
+    assertThat(block.declarations()).hasSize(2);
+    assertThat(block.has(PropertyIds.id("width"))).isTrue();
+  }
+
+  private static class BlockVisitor extends SquidAstVisitor<LexerlessGrammar> {
+
+    private final List<DeclarationBlock> blocks = Lists.newArrayList();
+
+    @Override
+    public void init() {
+      subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE);
+    }
+
+    @Override
+    public void visitNode(AstNode astNode) {
+      DeclarationBlock block = DeclarationBlock.of(getContext(), astNode);
+      assertThat(DeclarationBlock.of(getContext(), astNode)).isSameAs(block);
+      blocks.add(block);
+    }
+
+  }
+
+}
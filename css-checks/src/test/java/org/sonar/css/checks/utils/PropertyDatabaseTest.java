@@ -0,0 +1,83 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PropertyDatabaseTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void bundled() {
+    PropertyDatabase database = PropertyDatabase.load(null);
+    assertThat(database).isSameAs(PropertyDatabase.bundled());
+    assertThat(database.vendors).hasSize(16).contains("-webkit-", "mso-");
+    assertThat(database.properties).hasSize(309);
+    assertThat(database.properties.get(0).name).isEqualTo("alignment-adjust");
+    assertThat(database.properties.get(0).getVendors()).isEmpty();
+    assertThat(database.properties.get(2).name).isEqualTo("animation");
+    assertThat(database.properties.get(2).getVendors()).containsExactly("webkit", "moz");
+  }
+
+  @Test
+  public void file() throws Exception {
+    File file = temp.newFile();
+    Files.write("# Comment\n\n@vendor -x-\n  foo   x \nbar\n", file, Charsets.UTF_8);
+
+    PropertyDatabase database = PropertyDatabase.load(file.getAbsolutePath());
+    assertThat(database.vendors).containsExactly("-x-");
+    assertThat(database.vendorNames).containsOnly("x");
+    assertThat(database.fingerprint).isNotEqualTo(PropertyDatabase.bundled().fingerprint);
+    assertThat(database.properties).hasSize(2);
+    assertThat(database.properties.get(0).name).isEqualTo("foo");
+    assertThat(database.properties.get(0).getVendors()).containsExactly("x");
+    assertThat(database.properties.get(1).name).isEqualTo("bar");
+  }
+
+  @Test
+  public void missing_file_falls_back_to_bundled() {
+    assertThat(PropertyDatabase.load(new File(temp.getRoot(), "missing.txt").getAbsolutePath())).isSameAs(PropertyDatabase.bundled());
+  }
+
+  @Test
+  public void invalid_file_falls_back_to_bundled() throws Exception {
+    File file = temp.newFile();
+    Files.write("@vendor -x-\n@vendors -y-\n", file, Charsets.UTF_8);
+
+    assertThat(PropertyDatabase.load(file.getAbsolutePath())).isSameAs(PropertyDatabase.bundled());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void unknown_directive() throws Exception {
+    PropertyDatabase.read(new ByteArrayInputStream("@vendors -x-\n".getBytes(Charsets.UTF_8)), "test");
+  }
+
+}
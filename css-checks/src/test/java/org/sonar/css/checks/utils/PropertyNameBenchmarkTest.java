@@ -0,0 +1,115 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Compares the decomposition of vendor-prefixed properties by {@link PropertyName} with the regular expressions it replaces.
+ * Times are only measured with the {@code benchmarks} profile.
+ */
+public class PropertyNameBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PropertyNameBenchmarkTest.class);
+  private static final int RUNS = 200;
+
+  @Test
+  public void should_decompose_like_regular_expressions() {
+    PropertyName name = new PropertyName();
+    for (String property : properties()) {
+      name.parse(property);
+      assertThat(name.vendor()).isEqualTo(regexpVendor(property));
+      assertThat(name.isVendor() ? name.baseName() : property).isEqualTo(regexpName(property));
+    }
+  }
+
+  @Test
+  public void decomposition_times() {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    List<String> properties = properties();
+    PropertyName name = new PropertyName();
+
+    int count = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      for (String property : properties) {
+        if (startsWithVendor(property) && regexpName(property).length() > 0 && regexpVendor(property) != null) {
+          count++;
+        }
+      }
+    }
+    long regexp = (System.nanoTime() - start) / 1000000;
+
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      for (String property : properties) {
+        if (name.parse(property).isVendor() && !name.baseNameEqualsIgnoreCase("") && name.vendor() != null) {
+          count--;
+        }
+      }
+    }
+    long decomposed = (System.nanoTime() - start) / 1000000;
+
+    LOG.info("{} properties decomposed {} times: {} ms with regular expressions, {} ms with PropertyName (balance: {})",
+      new Object[] {properties.size(), RUNS, regexp, decomposed, count});
+  }
+
+  private static List<String> properties() {
+    List<String> properties = Lists.newArrayList();
+    for (CssProperty property : CssProperties.properties()) {
+      properties.add(property.toString());
+      for (String prefix : CssProperties.vendors()) {
+        if (prefix.startsWith("-")) {
+          properties.add(prefix + property);
+        }
+      }
+    }
+    return properties;
+  }
+
+  private static String regexpVendor(String property) {
+    return startsWithVendor(property) ? property.replaceAll("(-)(.*?)(-.*)", "$2") : null;
+  }
+
+  private static String regexpName(String property) {
+    return startsWithVendor(property) ? property.replaceAll("(-.*?-)(.*)", "$2") : property;
+  }
+
+  /**
+   * Scan of the vendor prefixes which {@link PropertyName} replaces.
+   */
+  private static boolean startsWithVendor(String property) {
+    for (String vendor : CssProperties.vendors()) {
+      if (property.startsWith(vendor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.checks.utils;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PropertyNameTest {
+
+  private final PropertyName name = new PropertyName();
+
+  @Test
+  public void standard() {
+    name.parse("box-shadow");
+    assertThat(name.isHack()).isFalse();
+    assertThat(name.isVendor()).isFalse();
+    assertThat(name.vendor()).isNull();
+    assertThat(name.unhacked()).isEqualTo("box-shadow");
+    assertThat(name.baseName()).isEqualTo("box-shadow");
+  }
+
+  @Test
+  public void vendor() {
+    name.parse("-webkit-box-shadow");
+    assertThat(name.isHack()).isFalse();
+    assertThat(name.isVendor()).isTrue();
+    assertThat(name.vendor()).isEqualTo("webkit");
+    assertThat(name.unhacked()).isEqualTo("-webkit-box-shadow");
+    assertThat(name.baseName()).isEqualTo("box-shadow");
+    assertThat(name.baseNameEqualsIgnoreCase("BOX-shadow")).isTrue();
+    assertThat(name.baseNameEqualsIgnoreCase("box")).isFalse();
+  }
+
+  @Test
+  public void vendor_without_leading_dash() {
+    assertThat(name.parse("mso-border-radius").vendor()).isEqualTo("mso");
+    assertThat(name.baseName()).isEqualTo("border-radius");
+    assertThat(name.parse("prince-border-radius").vendor()).isEqualTo("prince");
+    assertThat(name.baseName()).isEqualTo("border-radius");
+  }
+
+  @Test
+  public void hack() {
+    name.parse("*-moz-opacity");
+    assertThat(name.isHack()).isTrue();
+    assertThat(name.vendor()).isEqualTo("moz");
+    assertThat(name.unhacked()).isEqualTo("-moz-opacity");
+    assertThat(name.baseName()).isEqualTo("opacity");
+
+    name.parse("_color");
+    assertThat(name.isHack()).isTrue();
+    assertThat(name.isVendor()).isFalse();
+    assertThat(name.unhacked()).isEqualTo("color");
+    assertThat(name.baseName()).isEqualTo("color");
+  }
+
+  @Test
+  public void unknown_prefix() {
+    assertThat(name.parse("-foo-color").isVendor()).isFalse();
+    assertThat(name.parse("-webkit").isVendor()).isFalse();
+    assertThat(name.parse("webkit-color").isVendor()).isFalse();
+    assertThat(name.parse("-").isVendor()).isFalse();
+    assertThat(name.parse("").isVendor()).isFalse();
+    assertThat(name.parse("-webkit-").baseName()).isEmpty();
+  }
+
+  @Test
+  public void same_vendors_as_prefix_scan() {
+    for (CssProperty property : CssProperties.properties()) {
+      for (String prefix : CssProperties.vendors()) {
+        String vendored = prefix + property;
+        assertThat(name.parse(vendored).isVendor()).isEqualTo(startsWithVendor(vendored));
+        assertThat(name.baseName()).isEqualTo(property.toString());
+      }
+      assertThat(name.parse(property.toString()).isVendor()).isEqualTo(startsWithVendor(property.toString()));
+    }
+  }
+
+  /**
+   * Whether the property starts with one of {@link CssProperties#vendors()}, as the checks used to test it.
+   */
+  private static boolean startsWithVendor(String property) {
+    for (String vendor : CssProperties.vendors()) {
+      if (property.startsWith(vendor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -20,32 +20,44 @@
 package org.sonar.css;
 
 import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.css.api.CssMetric;
 import org.sonar.css.ast.visitors.SonarComponents;
 import org.sonar.css.ast.visitors.SyntaxHighlighterVisitor;
-import org.sonar.css.parser.CssGrammar;
+import org.sonar.css.metrics.StatementsVisitor;
+import org.sonar.css.parser.CssDialect;
+import org.sonar.css.parser.CssFileParser;
+import org.sonar.css.parser.ParseDeadline;
+import org.sonar.css.parser.ParseTimeoutException;
+import org.sonar.css.parser.TokenTree;
 import org.sonar.squidbridge.AstScanner;
 import org.sonar.squidbridge.SquidAstVisitor;
-import org.sonar.squidbridge.SquidAstVisitorContextImpl;
 import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.squidbridge.indexer.QueryByType;
 import org.sonar.squidbridge.metrics.CommentsVisitor;
-import org.sonar.squidbridge.metrics.CounterVisitor;
 import org.sonar.squidbridge.metrics.LinesOfCodeVisitor;
 import org.sonar.squidbridge.metrics.LinesVisitor;
 import org.sonar.sslr.parser.LexerlessGrammar;
-import org.sonar.sslr.parser.ParserAdapter;
 
 import javax.annotation.Nullable;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public final class CssAstScanner {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CssAstScanner.class);
+
   private CssAstScanner() {
   }
 
@@ -66,14 +78,32 @@ public final class CssAstScanner {
   }
 
   public static AstScanner<LexerlessGrammar> create(CssConfiguration conf, @Nullable SonarComponents sonarComponents, SquidAstVisitor<LexerlessGrammar>... visitors) {
-    final SquidAstVisitorContextImpl<LexerlessGrammar> context = new SquidAstVisitorContextImpl<LexerlessGrammar>(new SourceProject("Css Project"));
-    final Parser<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(conf.charset(), CssGrammar.createGrammar());
+    return create(conf, sonarComponents, (SourceFileListener) null, visitors);
+  }
 
-    AstScanner.Builder<LexerlessGrammar> builder = AstScanner.<LexerlessGrammar>builder(context).setBaseParser(parser);
+  /**
+   * @param listener listener notified of each file once it has been scanned, or {@code null}
+   */
+  public static AstScanner<LexerlessGrammar> create(CssConfiguration conf, @Nullable SonarComponents sonarComponents, @Nullable SourceFileListener listener,
+    SquidAstVisitor<LexerlessGrammar>... visitors) {
+    final CssVisitorContext context = new CssVisitorContext(new SourceProject("Css Project"));
+    final CssFileParser parser = lazyBlocks(conf, visitors) ? CssDialect.CSS_LAZY_BLOCKS.parser(conf.charset()) : conf.parser();
+
+    SourceSharingParser sourceSharingParser = new SourceSharingParser(parser, context, conf.charset(), conf.fileTimeBudget());
+    AstScanner.Builder<LexerlessGrammar> builder = AstScanner.<LexerlessGrammar>builder(context)
+      .setBaseParser(sourceSharingParser);
 
     /* Metrics */
     builder.withMetrics(CssMetric.values());
 
+    /* Files are left in the reverse order of the visitors: the listener is the last one to leave them */
+    if (listener != null) {
+      builder.withSquidAstVisitor(new ListenerVisitor(listener));
+    }
+    if (conf.fileTimeBudget() > 0) {
+      builder.withSquidAstVisitor(new TimeBudgetVisitor(sourceSharingParser));
+    }
+
     /* Comments */
     builder.setCommentAnalyser(new CssCommentAnalyser());
 
@@ -85,26 +115,8 @@ public final class CssAstScanner {
     /* Files */
     builder.setFilesMetric(CssMetric.FILES);
 
-    /*
-     * Statements not in CSS syntax term
-     * selectors and declarations at-keywords
-     */
-    builder.withSquidAstVisitor(CounterVisitor.<LexerlessGrammar>builder()
-      .setMetricDef(CssMetric.STATEMENTS)
-      .subscribeTo(CssGrammar.AT_KEYWORD, CssGrammar.SELECTOR, CssGrammar.DECLARATION)
-      .build());
-
-    /* Rule sets */
-    builder.withSquidAstVisitor(CounterVisitor.<LexerlessGrammar>builder()
-      .setMetricDef(CssMetric.RULE_SETS)
-      .subscribeTo(CssGrammar.RULESET)
-      .build());
-
-    /* At rules */
-    builder.withSquidAstVisitor(CounterVisitor.<LexerlessGrammar>builder()
-      .setMetricDef(CssMetric.AT_RULES)
-      .subscribeTo(CssGrammar.AT_RULE)
-      .build());
+    /* Statements, rule sets and at-rules, counted by a single visitor: the tree is still walked by the AstWalker of SSLR */
+    builder.withSquidAstVisitor(new StatementsVisitor());
 
     /* Metrics */
     builder.withSquidAstVisitor(new LinesVisitor<LexerlessGrammar>(CssMetric.LINES));
@@ -112,7 +124,7 @@ public final class CssAstScanner {
 
     /* Syntax highlighter */
     if (sonarComponents != null) {
-      builder.withSquidAstVisitor(new SyntaxHighlighterVisitor(sonarComponents, conf.charset()));
+      builder.withSquidAstVisitor(new SyntaxHighlighterVisitor(sonarComponents));
     }
 
     for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
@@ -125,4 +137,116 @@ public final class CssAstScanner {
     return builder.build();
   }
 
+  /**
+   * The metrics and the syntax highlighting are the same with lazy blocks. Lazy blocks are not split for parallel parsing.
+   */
+  private static boolean lazyBlocks(CssConfiguration conf, SquidAstVisitor<LexerlessGrammar>[] visitors) {
+    if (!conf.lazyBlocks() || conf.useLexer() || conf.parallelParsingChunkSize() > 0) {
+      return false;
+    }
+    for (SquidAstVisitor<LexerlessGrammar> visitor : visitors) {
+      if (!(visitor instanceof SelectorLevelVisitor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class ListenerVisitor extends SquidAstVisitor<LexerlessGrammar> {
+
+    private final SourceFileListener listener;
+
+    ListenerVisitor(SourceFileListener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode astNode) {
+      listener.fileScanned((SourceFile) getContext().peekSourceCode(), astNode != null && astNode.is(TokenTree.TOKENS));
+    }
+
+  }
+
+  /**
+   * Reports the files which took more than their time budget to be parsed and visited: only parses can be abandoned.
+   */
+  private static final class TimeBudgetVisitor extends SquidAstVisitor<LexerlessGrammar> {
+
+    private final SourceSharingParser parser;
+
+    TimeBudgetVisitor(SourceSharingParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode astNode) {
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - parser.fileStart);
+      if (elapsed > parser.timeBudget && astNode != null && !astNode.is(TokenTree.TOKENS)) {
+        LOG.warn("Analysis of {} took {} ms, more than the budget of {} ms ({} characters)",
+          getContext().getFile(), elapsed, parser.timeBudget, parser.fileLength);
+      }
+    }
+
+  }
+
+  /**
+   * Reads each file once: its source is given to the visitors through {@link CssVisitorContext#source()}, and parsed.
+   * When a time budget is set and the parse exceeds it, the file is only tokenized.
+   */
+  private static final class SourceSharingParser extends Parser<LexerlessGrammar> {
+
+    private final CssFileParser parser;
+    private final CssVisitorContext context;
+    private final Charset charset;
+    private final long timeBudget;
+    private long fileStart;
+    private int fileLength;
+
+    SourceSharingParser(CssFileParser parser, CssVisitorContext context, Charset charset, long timeBudget) {
+      super(parser.getGrammar());
+      this.parser = parser;
+      this.context = context;
+      this.charset = charset;
+      this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public AstNode parse(File file) {
+      fileStart = System.nanoTime();
+      context.setSource(null);
+      char[] chars = CssFileParser.read(file, charset);
+      fileLength = chars.length;
+      context.setSource(new CssSource(chars));
+      if (timeBudget <= 0) {
+        return parser.parse(file, chars);
+      }
+      ParseDeadline.start(timeBudget);
+      try {
+        return parser.parse(file, chars);
+      } catch (ParseTimeoutException e) {
+        LOG.warn("Parse of {} abandoned after {} ms ({} characters): only its lines, comments and tokens are analyzed",
+          file, e.getElapsedMillis(), chars.length);
+        return TokenTree.create(file, chars);
+      } finally {
+        ParseDeadline.clear();
+      }
+    }
+
+    @Override
+    public AstNode parse(String source) {
+      return parser.parse(source);
+    }
+
+    @Override
+    public AstNode parse(List<Token> tokens) {
+      return parser.parse(tokens);
+    }
+
+    @Override
+    public RuleDefinition getRootRule() {
+      return parser.getRootRule();
+    }
+
+  }
+
 }
@@ -19,12 +19,19 @@
  */
 package org.sonar.css;
 
+import org.sonar.css.parser.CssDialect;
+import org.sonar.css.parser.CssFileParser;
+
 import java.nio.charset.Charset;
 
 public class CssConfiguration {
 
   private Charset charset;
   private boolean ignoreHeaderComments;
+  private boolean useLexer;
+  private int parallelParsingChunkSize;
+  private boolean lazyBlocks;
+  private long fileTimeBudget;
 
   public CssConfiguration(Charset charset) {
     this.charset = charset;
@@ -46,4 +53,59 @@ public class CssConfiguration {
     return ignoreHeaderComments;
   }
 
+  /**
+   * Whether tokens are recognized by the hand-written {@link org.sonar.css.parser.CssLexer} instead of regular expressions.
+   */
+  public void useLexer(boolean useLexer) {
+    this.useLexer = useLexer;
+  }
+
+  public boolean useLexer() {
+    return useLexer;
+  }
+
+  public CssDialect dialect() {
+    return useLexer ? CssDialect.CSS_LEXER : CssDialect.CSS;
+  }
+
+  /**
+   * Sources of at least twice this number of characters are split at top-level statements, and the parts are parsed
+   * concurrently. The default, 0, parses each source on the calling thread.
+   */
+  public void parallelParsingChunkSize(int parallelParsingChunkSize) {
+    this.parallelParsingChunkSize = parallelParsingChunkSize;
+  }
+
+  public int parallelParsingChunkSize() {
+    return parallelParsingChunkSize;
+  }
+
+  /**
+   * Whether declaration blocks are only parsed on demand when all the visitors allow it, see {@link SelectorLevelVisitor}.
+   * The SonarQube sensor does not use it: its parse error check and the copy-paste detection need the declarations.
+   */
+  public void lazyBlocks(boolean lazyBlocks) {
+    this.lazyBlocks = lazyBlocks;
+  }
+
+  public boolean lazyBlocks() {
+    return lazyBlocks;
+  }
+
+  /**
+   * Number of milliseconds after which the parse of a file is abandoned: the file is then only tokenized, see
+   * {@link org.sonar.css.parser.TokenTree}. The default, 0, does not limit parses.
+   */
+  public void fileTimeBudget(long fileTimeBudget) {
+    this.fileTimeBudget = fileTimeBudget;
+  }
+
+  public long fileTimeBudget() {
+    return fileTimeBudget;
+  }
+
+  public CssFileParser parser() {
+    return parallelParsingChunkSize > 0 ? dialect().parallelParser(charset, parallelParsingChunkSize) : dialect().parser(charset);
+  }
+
 }
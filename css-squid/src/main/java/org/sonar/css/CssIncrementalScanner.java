@@ -0,0 +1,255 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.RecognitionException;
+import org.sonar.css.api.CssMetric;
+import org.sonar.css.parser.CssAstWalker;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.css.parser.CssIncrementalParser;
+import org.sonar.css.parser.TextEdit;
+import org.sonar.squidbridge.AstScannerExceptionHandler;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.api.AnalysisException;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.api.SourceProject;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scanner of a file being edited, for instance in an editor or a pre-commit hook.
+ * <p>
+ * After an edit, only the top-level statements touched by the edit are parsed again, see {@link CssIncrementalParser},
+ * and only the checks which may raise different issues are run again:
+ * <ul>
+ *   <li>checks subscribed to a node type found in the replaced or in the new statements,</li>
+ *   <li>file-level checks: checks without subscription, subscribed to {@link CssGrammar#STYLESHEET}, or visiting tokens,</li>
+ *   <li>checks with issues on the first or last line of the edit, when the edit adds or removes lines.</li>
+ * </ul>
+ * The issues of the other checks are kept, and moved with the lines following the edit.
+ * <p>
+ * Checks reading the file from the disk see the content of the file, not the edited source.
+ */
+public final class CssIncrementalScanner {
+
+  private final CssConfiguration conf;
+  private final CssIncrementalParser parser;
+  private final CssVisitorContext context;
+  private final List<SquidAstVisitor<LexerlessGrammar>> checks;
+  private final ListMultimap<Object, CheckMessage> messages = ArrayListMultimap.create();
+
+  private File file;
+  private String source;
+  private AstNode tree;
+
+  public CssIncrementalScanner(CssConfiguration conf, SquidAstVisitor<LexerlessGrammar>... checks) {
+    this.conf = conf;
+    this.parser = new CssIncrementalParser(conf.charset(), conf.dialect());
+    this.context = new CssVisitorContext(new SourceProject("Css Project"));
+    context.setGrammar(conf.dialect().grammar());
+    context.setCommentAnalyser(new CssCommentAnalyser());
+    this.checks = ImmutableList.copyOf(checks);
+    for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+      if (check instanceof CharsetAwareVisitor) {
+        ((CharsetAwareVisitor) check).setCharset(conf.charset());
+      }
+      check.setContext(context);
+      check.init();
+    }
+  }
+
+  /**
+   * Parses the given file and runs all the checks.
+   */
+  public SourceFile scan(File file) {
+    this.file = file;
+    try {
+      this.source = Files.toString(file, conf.charset());
+    } catch (IOException e) {
+      throw new AnalysisException("Unable to read file: " + file, e);
+    }
+    this.tree = null;
+    return run(checks, parse(null));
+  }
+
+  /**
+   * Applies the edit to the source of the last scanned file, and runs the checks which may raise different issues.
+   */
+  public SourceFile edit(TextEdit edit) {
+    if (tree == null) {
+      source = edit.apply(source);
+      return run(checks, parse(null));
+    }
+    CssIncrementalParser.Result result;
+    try {
+      result = parser.reparse(tree, source, edit);
+    } catch (RecognitionException e) {
+      source = edit.apply(source);
+      tree = null;
+      return run(checks, e);
+    }
+    source = result.source();
+    tree = result.tree();
+
+    Set<AstNodeType> types = Sets.newHashSet();
+    collectTypes(result.removed(), types);
+    collectTypes(result.added(), types);
+    List<SquidAstVisitor<LexerlessGrammar>> affected = Lists.newArrayList();
+    for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+      if (isFileLevel(check) || !Collections.disjoint(check.getAstNodeTypesToVisit(), types) || hasIssueOnEditBoundaries(check, result)) {
+        affected.add(check);
+      } else {
+        moveIssues(check, result);
+      }
+    }
+    return run(affected, null);
+  }
+
+  public String source() {
+    return source;
+  }
+
+  private RecognitionException parse(@Nullable RecognitionException error) {
+    try {
+      tree = parser.parse(source);
+      return error;
+    } catch (RecognitionException e) {
+      tree = null;
+      return e;
+    }
+  }
+
+  private SourceFile run(List<SquidAstVisitor<LexerlessGrammar>> toRun, @Nullable RecognitionException error) {
+    for (SquidAstVisitor<LexerlessGrammar> check : toRun) {
+      messages.removeAll(check);
+    }
+    context.setFile(file, CssMetric.FILES);
+    context.setSource(new CssSource(source.toCharArray()));
+    SourceFile sourceFile = (SourceFile) context.peekSourceCode();
+    if (error == null && needsWalk(toRun)) {
+      new CssAstWalker(toRun).walkAndVisit(tree);
+    } else if (error == null) {
+      for (SquidAstVisitor<LexerlessGrammar> check : toRun) {
+        check.visitFile(tree);
+      }
+      for (SquidAstVisitor<LexerlessGrammar> check : Lists.reverse(toRun)) {
+        check.leaveFile(tree);
+      }
+    } else {
+      for (SquidAstVisitor<LexerlessGrammar> check : toRun) {
+        if (check instanceof AstScannerExceptionHandler) {
+          ((AstScannerExceptionHandler) check).processRecognitionException(error);
+        }
+      }
+    }
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      messages.put(message.getCheck(), message);
+    }
+    for (CheckMessage message : messages.values()) {
+      if (message.getSourceCode() != sourceFile) {
+        sourceFile.log(message);
+      }
+    }
+    context.popSourceCode();
+    return sourceFile;
+  }
+
+  /**
+   * Checks which only look at the whole file do not need the tree to be walked.
+   */
+  private static boolean needsWalk(List<SquidAstVisitor<LexerlessGrammar>> checks) {
+    for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+      if (!check.getAstNodeTypesToVisit().isEmpty() || check instanceof AstAndTokenVisitor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isFileLevel(SquidAstVisitor<LexerlessGrammar> check) {
+    List<AstNodeType> subscriptions = check.getAstNodeTypesToVisit();
+    return subscriptions.isEmpty() || subscriptions.contains(CssGrammar.STYLESHEET) || check instanceof AstAndTokenVisitor;
+  }
+
+  private boolean hasIssueOnEditBoundaries(SquidAstVisitor<LexerlessGrammar> check, CssIncrementalParser.Result result) {
+    if (result.lineDelta() != 0) {
+      for (CheckMessage message : messages.get(check)) {
+        Integer line = message.getLine();
+        if (line != null && line >= result.firstLine() && line <= result.lastLine()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void moveIssues(SquidAstVisitor<LexerlessGrammar> check, CssIncrementalParser.Result result) {
+    if (result.lineDelta() == 0) {
+      return;
+    }
+    List<CheckMessage> moved = Lists.newArrayList();
+    for (CheckMessage message : messages.get(check)) {
+      Integer line = message.getLine();
+      if (line != null && line > result.lastLine()) {
+        CheckMessage copy = new CheckMessage(message.getCheck(), message.getDefaultMessage(), message.getMessageArguments());
+        copy.setLine(line + result.lineDelta());
+        if (message.getCost() != null) {
+          copy.setCost(message.getCost());
+        }
+        copy.setBypassExclusion(message.isBypassExclusion());
+        moved.add(copy);
+      } else {
+        moved.add(message);
+      }
+    }
+    messages.replaceValues(check, moved);
+  }
+
+  private static void collectTypes(List<AstNode> nodes, Set<AstNodeType> types) {
+    Deque<AstNode> stack = new ArrayDeque<AstNode>(nodes);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      types.add(node.getType());
+      for (AstNode child : node.getChildren()) {
+        stack.push(child);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.Iterator;
+
+/**
+ * Decoded content of a file, read once and shared by the parser and all the visitors, see {@link CssVisitorContext#source()}.
+ * <p>
+ * Lines are terminated by {@code \n}, {@code \r\n} or {@code \r}, and numbered from {@code 1}, as the lines of tokens.
+ */
+public final class CssSource {
+
+  private final char[] chars;
+  /**
+   * Offset of the first character of each line, including the empty line which follows a final line terminator.
+   */
+  private final int[] lineStarts;
+
+  public CssSource(char[] chars) {
+    this.chars = chars;
+    this.lineStarts = lineStarts(chars);
+  }
+
+  /**
+   * The content, which must not be modified.
+   */
+  public char[] chars() {
+    return chars;
+  }
+
+  public int length() {
+    return chars.length;
+  }
+
+  /**
+   * Number of lines, as {@link com.google.common.io.Files#readLines(java.io.File, java.nio.charset.Charset)}: a final line
+   * terminator does not start another line.
+   */
+  public int lineCount() {
+    int last = lineStarts.length - 1;
+    return lineStarts[last] == chars.length ? last : last + 1;
+  }
+
+  /**
+   * @param line from {@code 1} to {@link #lineCount()}
+   * @return the given line, without its terminator
+   */
+  public String line(int line) {
+    int start = lineStarts[line - 1];
+    int end = line < lineStarts.length ? lineStarts[line] - 1 : chars.length;
+    if (end > start && chars[end - 1] == '\r' && end < chars.length && chars[end] == '\n') {
+      end--;
+    }
+    return new String(chars, start, end - start);
+  }
+
+  public Iterable<String> lines() {
+    return new Iterable<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new AbstractIterator<String>() {
+          private int line;
+
+          @Override
+          protected String computeNext() {
+            return line < lineCount() ? line(++line) : endOfData();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * @param line from {@code 1}, as {@link com.sonar.sslr.api.Token#getLine()}
+   * @param column from {@code 0}, as {@link com.sonar.sslr.api.Token#getColumn()}
+   */
+  public int offset(int line, int column) {
+    return lineStarts[line - 1] + column;
+  }
+
+  private static int[] lineStarts(char[] chars) {
+    int count = 1;
+    for (int i = 0; i < chars.length; i++) {
+      if (isEndOfLine(chars, i)) {
+        count++;
+      }
+    }
+    int[] result = new int[count];
+    count = 1;
+    for (int i = 0; i < chars.length; i++) {
+      if (isEndOfLine(chars, i)) {
+        result[count++] = i + 1;
+      }
+    }
+    return result;
+  }
+
+  private static boolean isEndOfLine(char[] chars, int i) {
+    return chars[i] == '\n' || (chars[i] == '\r' && (i + 1 == chars.length || chars[i + 1] != '\n'));
+  }
+
+}
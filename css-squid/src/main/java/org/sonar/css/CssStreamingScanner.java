@@ -0,0 +1,201 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import org.sonar.css.api.CssMetric;
+import org.sonar.css.parser.CssAstWalker;
+import org.sonar.css.parser.CssEventHandler;
+import org.sonar.css.parser.CssEventParser;
+import org.sonar.css.parser.CssStatementParser;
+import org.sonar.squidbridge.AstScannerExceptionHandler;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.api.AnalysisException;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.api.SourceProject;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Scanner for large files, such as generated bundles, which runs {@link LocalContextVisitor local checks} without
+ * building the tree of the whole file.
+ * <p>
+ * The file is read by {@link CssEventParser}. Each top-level statement it reports is then parsed on its own, visited by
+ * the checks and dropped: besides the source, only the tree of one top-level statement is held at a time.
+ * Checks receive null in {@link SquidAstVisitor#visitFile} and {@link SquidAstVisitor#leaveFile}.
+ * <p>
+ * On a parse error, the issues raised on the statements before the error are kept.
+ */
+public final class CssStreamingScanner {
+
+  private final CssConfiguration conf;
+  private final CssStatementParser parser;
+  private final CssVisitorContext context;
+  private final List<SquidAstVisitor<LexerlessGrammar>> checks;
+  private final CssAstWalker walker;
+
+  /**
+   * @throws IllegalArgumentException if one of the checks is not a {@link LocalContextVisitor}
+   */
+  public CssStreamingScanner(CssConfiguration conf, SquidAstVisitor<LexerlessGrammar>... checks) {
+    this.conf = conf;
+    this.parser = new CssStatementParser(conf.charset(), conf.dialect());
+    this.context = new CssVisitorContext(new SourceProject("Css Project"));
+    context.setGrammar(conf.dialect().grammar());
+    context.setCommentAnalyser(new CssCommentAnalyser());
+    this.checks = ImmutableList.copyOf(checks);
+    for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+      if (!(check instanceof LocalContextVisitor)) {
+        throw new IllegalArgumentException(check.getClass().getSimpleName() + " needs the whole file and can not be run on a stream");
+      }
+      if (check instanceof CharsetAwareVisitor) {
+        ((CharsetAwareVisitor) check).setCharset(conf.charset());
+      }
+      check.setContext(context);
+      check.init();
+    }
+    this.walker = new CssAstWalker(this.checks);
+  }
+
+  public SourceFile scan(File file) {
+    String source;
+    try {
+      source = Files.toString(file, conf.charset());
+    } catch (IOException e) {
+      throw new AnalysisException("Unable to read file: " + file, e);
+    }
+    context.setFile(file, CssMetric.FILES);
+    context.setSource(new CssSource(source.toCharArray()));
+    SourceFile sourceFile = (SourceFile) context.peekSourceCode();
+    for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+      check.visitFile(null);
+    }
+    try {
+      new CssEventParser(new StatementVisitor(source)).parse(source);
+    } catch (RecognitionException e) {
+      for (SquidAstVisitor<LexerlessGrammar> check : checks) {
+        if (check instanceof AstScannerExceptionHandler) {
+          ((AstScannerExceptionHandler) check).processRecognitionException(e);
+        }
+      }
+    }
+    for (SquidAstVisitor<LexerlessGrammar> check : Lists.reverse(checks)) {
+      check.leaveFile(null);
+    }
+    context.popSourceCode();
+    return sourceFile;
+  }
+
+  /**
+   * Adapts the events of the stream to the checks: the range of each top-level statement, from its start event to the
+   * matching end event, is parsed and visited.
+   */
+  private class StatementVisitor implements CssEventHandler {
+
+    private final String source;
+    private Locator locator;
+    private int depth;
+    private int start;
+    private int line;
+    private int column;
+
+    StatementVisitor(String source) {
+      this.source = source;
+    }
+
+    @Override
+    public void startStylesheet(Locator locator) {
+      this.locator = locator;
+    }
+
+    @Override
+    public void atRule(String name, String prelude) {
+      if (depth == 0) {
+        visitStatements(locator.startOffset(), locator.endOffset(), locator.line(), locator.column());
+      }
+    }
+
+    @Override
+    public void startAtRule(String name, String prelude) {
+      startBlock();
+    }
+
+    @Override
+    public void endAtRule() {
+      endBlock();
+    }
+
+    @Override
+    public void startRuleSet() {
+      startBlock();
+    }
+
+    @Override
+    public void selector(String selector) {
+      // visited with the rule set
+    }
+
+    @Override
+    public void declaration(String property, String value, boolean important) {
+      // visited with the rule set
+    }
+
+    @Override
+    public void endRuleSet() {
+      endBlock();
+    }
+
+    @Override
+    public void endStylesheet() {
+      // nothing left to visit
+    }
+
+    private void startBlock() {
+      if (depth == 0) {
+        start = locator.startOffset();
+        line = locator.line();
+        column = locator.column();
+      }
+      depth++;
+    }
+
+    private void endBlock() {
+      depth--;
+      if (depth == 0) {
+        visitStatements(start, locator.endOffset(), line, column);
+      }
+    }
+
+    private void visitStatements(int from, int to, int fromLine, int fromColumn) {
+      for (AstNode statement : parser.parse(source, from, to, fromLine, fromColumn)) {
+        walker.walk(statement);
+      }
+    }
+
+  }
+
+}
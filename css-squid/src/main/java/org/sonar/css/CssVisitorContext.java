@@ -0,0 +1,102 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import org.sonar.squidbridge.SquidAstVisitorContext;
+import org.sonar.squidbridge.SquidAstVisitorContextImpl;
+import org.sonar.squidbridge.api.SourceProject;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Context of the visitors of the CSS scanners, which also gives the source of the current file: it is read and decoded
+ * once, and shared by the parser and all the visitors.
+ */
+public class CssVisitorContext extends SquidAstVisitorContextImpl<LexerlessGrammar> {
+
+  private CssSource source;
+  private final Map<Class<?>, Object> shared = new HashMap<Class<?>, Object>();
+
+  public CssVisitorContext(SourceProject project) {
+    super(project);
+  }
+
+  /**
+   * @param source source of the current file, or {@code null} if it could not be read
+   */
+  public void setSource(@Nullable CssSource source) {
+    this.source = source;
+    shared.clear();
+  }
+
+  /**
+   * @throws IllegalStateException if the current file could not be read
+   */
+  public CssSource source() {
+    if (source == null) {
+      throw new IllegalStateException("Unable to read file: " + getFile());
+    }
+    return source;
+  }
+
+  /**
+   * @return the object of the given type computed by a visitor for the current file and shared with the others, see
+   * {@link #share(Class, Object)}, or {@code null}
+   */
+  @CheckForNull
+  public <T> T shared(Class<T> type) {
+    return type.cast(shared.get(type));
+  }
+
+  /**
+   * Shares an object with the other visitors, until the next file.
+   */
+  public <T> void share(Class<T> type, T object) {
+    shared.put(type, object);
+  }
+
+  /**
+   * Source of the current file of the given context, see {@link #source()}.
+   *
+   * @throws IllegalStateException if the context is not the one of a CSS scanner, or if the current file could not be read
+   */
+  public static CssSource source(SquidAstVisitorContext<?> context) {
+    if (!(context instanceof CssVisitorContext)) {
+      throw new IllegalStateException("The source is only available to the visitors of a CSS scanner");
+    }
+    return ((CssVisitorContext) context).source();
+  }
+
+  /**
+   * @throws IllegalStateException if the context is not the one of a CSS scanner
+   */
+  public static CssVisitorContext of(SquidAstVisitorContext<?> context) {
+    if (!(context instanceof CssVisitorContext)) {
+      throw new IllegalStateException("The context is only available to the visitors of a CSS scanner");
+    }
+    return (CssVisitorContext) context;
+  }
+
+}
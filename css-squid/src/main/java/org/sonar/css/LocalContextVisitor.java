@@ -0,0 +1,30 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+/**
+ * Marks visitors which only need the top-level statement being visited: they keep no state from one top-level
+ * statement to the next, do not look at comments, and do not need the tree of the whole file in
+ * {@link org.sonar.squidbridge.SquidAstVisitor#visitFile} or {@link org.sonar.squidbridge.SquidAstVisitor#leaveFile}.
+ * Such visitors can be run by {@link CssStreamingScanner}.
+ */
+public interface LocalContextVisitor {
+
+}
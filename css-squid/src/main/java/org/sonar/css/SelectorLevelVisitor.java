@@ -0,0 +1,31 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+/**
+ * Marks visitors which give the same results on a tree whose declarations have not been parsed, see
+ * {@link org.sonar.css.parser.LazyBlocks}: they only look at selectors, at-rules, properties, strings or comments,
+ * and never at the other nodes of declaration values.
+ * When all the visitors of a {@link CssAstScanner} are marked, and {@link CssConfiguration#lazyBlocks()} is set,
+ * declaration blocks are only brace-matched.
+ */
+public interface SelectorLevelVisitor {
+
+}
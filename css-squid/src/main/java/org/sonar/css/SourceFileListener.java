@@ -0,0 +1,37 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import org.sonar.squidbridge.api.SourceFile;
+
+/**
+ * Receives each file of a {@link CssAstScanner} as soon as all the visitors have left it, so that its results can be
+ * saved, and released, before the next file is scanned.
+ */
+public interface SourceFileListener {
+
+  /**
+   * @param sourceFile the scanned file, with its measures, messages and NoSonar lines
+   * @param timedOut whether the parse of the file exceeded its time budget, see {@link CssConfiguration#fileTimeBudget(long)}:
+   * the file was then only tokenized, and its results depend on the speed of the machine
+   */
+  void fileScanned(SourceFile sourceFile, boolean timedOut);
+
+}
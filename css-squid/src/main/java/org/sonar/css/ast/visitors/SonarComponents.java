@@ -19,6 +19,7 @@
  */
 package org.sonar.css.ast.visitors;
 
+import com.google.common.collect.Maps;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
@@ -28,26 +29,60 @@ import org.sonar.api.source.Highlightable;
 import javax.annotation.CheckForNull;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.Map;
 
+/**
+ * Components of SonarQube used by the visitors. They are not thread-safe: scans on other threads than the one of the
+ * sensor must not use them, except for the index of the files.
+ */
 public class SonarComponents implements BatchExtension {
 
   private final ResourcePerspectives resourcePerspectives;
   private final FileSystem fs;
+  private volatile Map<String, InputFile> inputFiles = Collections.emptyMap();
 
   public SonarComponents(ResourcePerspectives resourcePerspectives, FileSystem fs) {
     this.resourcePerspectives = resourcePerspectives;
     this.fs = fs;
   }
 
+  /**
+   * Indexes the given files by absolute path, so that {@link #inputFileFor(File)} does not search the file system for them.
+   */
+  public void index(Iterable<InputFile> files) {
+    Map<String, InputFile> index = Maps.newHashMap();
+    for (InputFile inputFile : files) {
+      index.put(inputFile.file().getAbsolutePath(), inputFile);
+    }
+    this.inputFiles = index;
+  }
+
   @CheckForNull
   public InputFile inputFileFor(File file) {
-    return fs.inputFile(fs.predicates().hasAbsolutePath(file.getAbsolutePath()));
+    InputFile inputFile = indexedInputFile(file);
+    return inputFile == null ? fs.inputFile(fs.predicates().hasAbsolutePath(file.getAbsolutePath())) : inputFile;
+  }
+
+  /**
+   * @return the given file if it is indexed, the file system not being searched
+   */
+  @CheckForNull
+  protected InputFile indexedInputFile(File file) {
+    return inputFiles.get(file.getAbsolutePath());
   }
 
   public Highlightable highlightableFor(InputFile inputFile) {
     return resourcePerspectives.as(Highlightable.class, inputFile);
   }
 
+  /**
+   * Starts the highlighting of the given file, see {@link SyntaxHighlighterVisitor}.
+   */
+  public Highlightable.HighlightingBuilder newHighlighting(InputFile inputFile) {
+    return highlightableFor(inputFile).newHighlighting();
+  }
+
   public ResourcePerspectives getResourcePerspectives() {
     return resourcePerspectives;
   }
@@ -20,10 +20,7 @@
 package org.sonar.css.ast.visitors;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
@@ -31,16 +28,16 @@ import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.source.Highlightable;
+import org.sonar.css.CssSource;
+import org.sonar.css.CssVisitorContext;
+import org.sonar.css.SelectorLevelVisitor;
 import org.sonar.css.parser.CssGrammar;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.List;
 import java.util.Map;
 
-public class SyntaxHighlighterVisitor extends SquidAstVisitor<LexerlessGrammar> implements AstAndTokenVisitor {
+public class SyntaxHighlighterVisitor extends SquidAstVisitor<LexerlessGrammar> implements AstAndTokenVisitor, SelectorLevelVisitor {
 
   private static final Map<AstNodeType, String> TYPES = ImmutableMap.<AstNodeType, String>builder()
     .put(CssGrammar.STRING, "s")
@@ -51,14 +48,12 @@ public class SyntaxHighlighterVisitor extends SquidAstVisitor<LexerlessGrammar>
     .build();
 
   private final SonarComponents sonarComponents;
-  private final Charset charset;
 
   private Highlightable.HighlightingBuilder highlighting;
-  private List<Integer> lineStart;
+  private CssSource source;
 
-  public SyntaxHighlighterVisitor(SonarComponents sonarComponents, Charset charset) {
+  public SyntaxHighlighterVisitor(SonarComponents sonarComponents) {
     this.sonarComponents = Preconditions.checkNotNull(sonarComponents);
-    this.charset = charset;
   }
 
   @Override
@@ -77,21 +72,8 @@ public class SyntaxHighlighterVisitor extends SquidAstVisitor<LexerlessGrammar>
 
     InputFile inputFile = sonarComponents.inputFileFor(getContext().getFile());
     Preconditions.checkNotNull(inputFile);
-    highlighting = sonarComponents.highlightableFor(inputFile).newHighlighting();
-
-    lineStart = Lists.newArrayList();
-    final String content;
-    try {
-      content = Files.toString(getContext().getFile(), charset);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
-    lineStart.add(0);
-    for (int i = 0; i < content.length(); i++) {
-      if (content.charAt(i) == '\n' || (content.charAt(i) == '\r' && i + 1 < content.length() && content.charAt(i + 1) != '\n')) {
-        lineStart.add(i + 1);
-      }
-    }
+    highlighting = sonarComponents.newHighlighting(inputFile);
+    source = CssVisitorContext.source(getContext());
   }
 
   @Override
@@ -104,20 +86,12 @@ public class SyntaxHighlighterVisitor extends SquidAstVisitor<LexerlessGrammar>
     for (Trivia trivia : token.getTrivia()) {
       if (trivia.isComment()) {
         Token triviaToken = trivia.getToken();
-        int offset = getOffset(triviaToken.getLine(), triviaToken.getColumn());
+        int offset = source.offset(triviaToken.getLine(), triviaToken.getColumn());
         highlighting.highlight(offset, offset + triviaToken.getValue().length(), "cppd");
       }
     }
   }
 
-  /**
-   * @param line starts from 1
-   * @param column starts from 0
-   */
-  private int getOffset(int line, int column) {
-    return lineStart.get(line - 1) + column;
-  }
-
   @Override
   public void leaveFile(AstNode astNode) {
     if (astNode == null) {
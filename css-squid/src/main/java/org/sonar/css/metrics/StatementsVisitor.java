@@ -0,0 +1,78 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.metrics;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import org.sonar.css.api.CssMetric;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.squidbridge.api.SourceCode;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+/**
+ * Computes {@link CssMetric#STATEMENTS}, {@link CssMetric#RULE_SETS} and {@link CssMetric#AT_RULES} in a single
+ * visitor: the nodes are counted in fields, and the metrics are added to the file once it has been visited, instead
+ * of once per node.
+ * <p>
+ * Statements are not in CSS syntax terms: they are the selectors, the declarations and the at-keywords.
+ */
+public class StatementsVisitor extends SquidAstVisitor<LexerlessGrammar> {
+
+  private int statements;
+  private int ruleSets;
+  private int atRules;
+
+  @Override
+  public void init() {
+    subscribeTo(CssGrammar.AT_KEYWORD, CssGrammar.SELECTOR, CssGrammar.DECLARATION, CssGrammar.lazyDeclaration,
+      CssGrammar.RULESET, CssGrammar.AT_RULE);
+  }
+
+  @Override
+  public void visitFile(@Nullable AstNode astNode) {
+    statements = 0;
+    ruleSets = 0;
+    atRules = 0;
+  }
+
+  @Override
+  public void visitNode(AstNode astNode) {
+    AstNodeType type = astNode.getType();
+    if (type == CssGrammar.RULESET) {
+      ruleSets++;
+    } else if (type == CssGrammar.AT_RULE) {
+      atRules++;
+    } else {
+      statements++;
+    }
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode astNode) {
+    SourceCode sourceCode = getContext().peekSourceCode();
+    sourceCode.add(CssMetric.STATEMENTS, statements);
+    sourceCode.add(CssMetric.RULE_SETS, ruleSets);
+    sourceCode.add(CssMetric.AT_RULES, atRules);
+  }
+
+}
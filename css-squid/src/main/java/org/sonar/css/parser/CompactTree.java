@@ -0,0 +1,295 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parse tree stored in arrays of ints: a node is an index, from {@code 0} for the root to {@link #size()} excluded,
+ * in pre-order. Tokens are nodes without children, and their text is a slice of the source.
+ * <p>
+ * The tree has the same nodes as the {@link AstNode} tree created by SSLR, see {@link #toAstNode()}, but retains a few
+ * ints per node instead of an AstNode, a Token and a String.
+ */
+public final class CompactTree {
+
+  public static final int NONE = -1;
+
+  private final char[] source;
+  private final File file;
+  private final LineIndex lines;
+
+  private final AstNodeType[] types;
+  private final String[] names;
+  private final boolean[] tokenTypes;
+
+  private final int[] type;
+  private final int[] from;
+  private final int[] to;
+  private final int[] parent;
+  private final int[] firstChild;
+  private final int[] nextSibling;
+
+  private final int[] commentFrom;
+  private final int[] commentTo;
+  private final int[] commentToken;
+
+  CompactTree(char[] source, @Nullable File file, List<AstNodeType> types, List<String> names, boolean[] tokenTypes,
+    int[][] nodes, int[][] comments) {
+    this.source = source;
+    this.file = file;
+    this.lines = new LineIndex(source);
+    this.types = types.toArray(new AstNodeType[types.size()]);
+    this.names = names.toArray(new String[names.size()]);
+    this.tokenTypes = tokenTypes;
+    this.type = nodes[0];
+    this.from = nodes[1];
+    this.to = nodes[2];
+    this.parent = nodes[3];
+    this.firstChild = nodes[4];
+    this.nextSibling = nodes[5];
+    this.commentFrom = comments[0];
+    this.commentTo = comments[1];
+    this.commentToken = comments[2];
+  }
+
+  public int root() {
+    return 0;
+  }
+
+  public int size() {
+    return type.length;
+  }
+
+  public AstNodeType type(int node) {
+    return types[type[node]];
+  }
+
+  /**
+   * Identifier of the type of the node, from {@code 0} to {@link #typeCount()} excluded. Identifiers are only
+   * meaningful within a tree.
+   */
+  public int typeId(int node) {
+    return type[node];
+  }
+
+  /**
+   * @return the identifier of the given type, or {@link #NONE} if there is no node of this type
+   */
+  public int typeIdOf(AstNodeType nodeType) {
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] == nodeType) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+
+  public int typeCount() {
+    return types.length;
+  }
+
+  public boolean is(int node, AstNodeType nodeType) {
+    return types[type[node]] == nodeType;
+  }
+
+  public boolean isToken(int node) {
+    return tokenTypes[type[node]];
+  }
+
+  public int parent(int node) {
+    return parent[node];
+  }
+
+  public int firstChild(int node) {
+    return firstChild[node];
+  }
+
+  public int nextSibling(int node) {
+    return nextSibling[node];
+  }
+
+  public int fromIndex(int node) {
+    return from[node];
+  }
+
+  public int toIndex(int node) {
+    return to[node];
+  }
+
+  /**
+   * Text matched by the node, without copy of the source.
+   */
+  public CharSequence text(int node) {
+    return CharBuffer.wrap(source, from[node], to[node] - from[node]);
+  }
+
+  /**
+   * First token of the node, as {@link AstNode#getToken()}.
+   *
+   * @return the token, or {@link #NONE} if the node matched no token
+   */
+  public int token(int node) {
+    int end = end(node);
+    for (int i = node; i < end; i++) {
+      if (isToken(i)) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Line of the first token of the node, as {@link AstNode#getTokenLine()}.
+   */
+  public int line(int node) {
+    return lines.line(from[token(node)]);
+  }
+
+  /**
+   * Column of the first token of the node, as {@link Token#getColumn()}.
+   */
+  public int column(int node) {
+    return lines.column(from[token(node)]);
+  }
+
+  public int commentCount() {
+    return commentToken.length;
+  }
+
+  public int commentFromIndex(int comment) {
+    return commentFrom[comment];
+  }
+
+  public int commentToIndex(int comment) {
+    return commentTo[comment];
+  }
+
+  /**
+   * Token which the comment precedes, and of which it is a trivia in the {@link AstNode} tree.
+   */
+  public int commentToken(int comment) {
+    return commentToken[comment];
+  }
+
+  /**
+   * Creates the {@link AstNode} tree, with tokens and trivia, for visitors which do not work on the compact tree.
+   * A new tree is created on each call.
+   */
+  public AstNode toAstNode() {
+    return new AstNodeView().create(root());
+  }
+
+  /**
+   * Index following the last node of the subtree of the given node.
+   */
+  private int end(int node) {
+    int n = node;
+    while (n != NONE && nextSibling[n] == NONE) {
+      n = parent[n];
+    }
+    return n == NONE ? size() : nextSibling[n];
+  }
+
+  /**
+   * Creates the same nodes and tokens as {@link org.sonar.sslr.internal.matchers.AstCreator}.
+   */
+  private final class AstNodeView {
+
+    private final URI uri = LineIndex.uri(file);
+    private int nextComment = 0;
+
+    /**
+     * Tokens are created first, in the order of the source for their trivia, then the other nodes from the last one:
+     * the children of a node follow it in pre-order, so they are created before it, without recursion.
+     */
+    private AstNode create(int root) {
+      int end = end(root);
+      AstNode[] nodes = new AstNode[end - root];
+      for (int node = root; node < end; node++) {
+        if (isToken(node)) {
+          nodes[node - root] = new AstNode(token(node, (TokenType) type(node), trivia(node)));
+        }
+      }
+      for (int node = end - 1; node >= root; node--) {
+        if (!isToken(node)) {
+          Token token = null;
+          for (int child = firstChild[node]; child != NONE && token == null; child = nextSibling[child]) {
+            token = nodes[child - root].getToken();
+          }
+          AstNode astNode = new AstNode(type(node), names[type[node]], token);
+          for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            astNode.addChild(nodes[child - root]);
+          }
+          nodes[node - root] = astNode;
+        }
+        nodes[node - root].setFromIndex(from[node]);
+        nodes[node - root].setToIndex(to[node]);
+      }
+      return nodes[0];
+    }
+
+    private List<Trivia> trivia(int node) {
+      if (nextComment == commentToken.length || commentToken[nextComment] != node) {
+        return Collections.emptyList();
+      }
+      ImmutableList.Builder<Trivia> trivia = ImmutableList.builder();
+      while (nextComment < commentToken.length && commentToken[nextComment] == node) {
+        trivia.add(Trivia.createComment(token(commentFrom[nextComment], commentTo[nextComment], GenericTokenType.COMMENT,
+          Collections.<Trivia>emptyList())));
+        nextComment++;
+      }
+      return trivia.build();
+    }
+
+    private Token token(int node, TokenType tokenType, List<Trivia> trivia) {
+      return token(from[node], to[node], tokenType, trivia);
+    }
+
+    private Token token(int start, int end, TokenType tokenType, List<Trivia> trivia) {
+      return Token.builder()
+        .setType(tokenType)
+        .setValueAndOriginalValue(new String(source, start, Math.min(end, source.length) - start))
+        .setLine(lines.line(start))
+        .setColumn(lines.column(start))
+        .setURI(uri)
+        .setGeneratedCode(false)
+        .notCopyBook()
+        .setTrivia(trivia)
+        .build();
+    }
+
+  }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Booleans;
+import com.sonar.sslr.api.AstNodeSkippingPolicy;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia.TriviaKind;
+import com.sonar.sslr.impl.ast.AlwaysSkipFromAst;
+import com.sonar.sslr.impl.ast.NeverSkipFromAst;
+import com.sonar.sslr.impl.ast.SkipFromAstIfOnlyOneChild;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.TokenExpression;
+import org.sonar.sslr.internal.vm.TriviaExpression;
+import org.sonar.sslr.parser.ParsingResult;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.sonar.css.parser.CompactTree.NONE;
+
+/**
+ * Creates a {@link CompactTree} from a parse tree, with the same rules as {@link AstCreator}: whitespaces are dropped,
+ * comments become trivia of the following token, and the nodes of rules skipped from the AST are replaced by their children.
+ */
+final class CompactTreeBuilder {
+
+  static final TokenType UNDEFINED_TOKEN_TYPE = (TokenType) staticField(AstCreator.class, "UNDEFINED_TOKEN_TYPE");
+  private static final Field SKIPPING_POLICY = field(MutableParsingRule.class, "astNodeSkippingPolicy");
+
+  private static final int NEVER = 0;
+  private static final int ALWAYS = 1;
+  private static final int IF_ONLY_ONE_CHILD = 2;
+
+  private final Map<Object, Integer> typeIds = Maps.newIdentityHashMap();
+  private final List<AstNodeType> types = Lists.newArrayList();
+  private final List<String> names = Lists.newArrayList();
+  private final List<Boolean> tokenTypes = Lists.newArrayList();
+  private final List<Integer> policies = Lists.newArrayList();
+
+  private int size;
+  private int[] type = new int[1024];
+  private int[] from = new int[1024];
+  private int[] to = new int[1024];
+  private int[] parent = new int[1024];
+  private int[] firstChild = new int[1024];
+  private int[] lastChild = new int[1024];
+  private int[] nextSibling = new int[1024];
+  private int[] childCount = new int[1024];
+  private boolean[] skipped = new boolean[1024];
+
+  private int commentCount;
+  private int attachedComments;
+  private int[] commentFrom = new int[64];
+  private int[] commentTo = new int[64];
+  private int[] commentToken = new int[64];
+
+  private CompactTreeBuilder() {
+  }
+
+  static CompactTree create(ParsingResult result, char[] source, @Nullable File file) {
+    CompactTreeBuilder builder = new CompactTreeBuilder();
+    int root = builder.visit(result.getParseTreeRoot());
+    builder.skipped[root] = false;
+    return builder.build(source, file);
+  }
+
+  /**
+   * Visits the parse tree in pre-order with a stack of the rules being visited, so that deep trees do not overflow
+   * the thread stack.
+   */
+  private int visit(ParseNode root) {
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    Frame rootFrame = enterRule(root);
+    stack.push(rootFrame);
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      if (!frame.children.hasNext()) {
+        stack.pop();
+        leaveRule(frame);
+        if (!stack.isEmpty()) {
+          appendChild(stack.peek().id, frame.id);
+        }
+      } else {
+        ParseNode child = frame.children.next();
+        if (child.getMatcher() instanceof MutableParsingRule) {
+          stack.push(enterRule(child));
+        } else {
+          appendChild(frame.id, visitTerminal(child));
+        }
+      }
+    }
+    return rootFrame.id;
+  }
+
+  private int visitTerminal(ParseNode node) {
+    Matcher matcher = node.getMatcher();
+    if (matcher instanceof TriviaExpression) {
+      TriviaKind kind = ((TriviaExpression) matcher).getTriviaKind();
+      if (kind == TriviaKind.COMMENT) {
+        addComment(node);
+      } else if (kind != TriviaKind.SKIPPED_TEXT) {
+        throw new IllegalStateException("Unexpected trivia kind: " + kind);
+      }
+      return NONE;
+    }
+    TokenType tokenType = matcher instanceof TokenExpression ? ((TokenExpression) matcher).getTokenType() : UNDEFINED_TOKEN_TYPE;
+    if (tokenType == GenericTokenType.COMMENT) {
+      addComment(node);
+      return NONE;
+    }
+    int id = add(tokenTypeId(tokenType), node);
+    while (attachedComments < commentCount) {
+      commentToken[attachedComments++] = id;
+    }
+    return id;
+  }
+
+  private Frame enterRule(ParseNode node) {
+    MutableParsingRule rule = (MutableParsingRule) node.getMatcher();
+    int typeId = ruleTypeId(rule);
+    return new Frame(add(typeId, node), typeId, node.getChildren().iterator());
+  }
+
+  private void leaveRule(Frame frame) {
+    int policy = policies.get(frame.typeId);
+    skipped[frame.id] = policy == ALWAYS || (policy == IF_ONLY_ONE_CHILD && childCount[frame.id] == 1);
+  }
+
+  private void appendChild(int id, int childId) {
+    if (childId == NONE) {
+      return;
+    }
+    if (!skipped[childId]) {
+      append(id, childId, childId, 1);
+    } else if (firstChild[childId] != NONE) {
+      append(id, firstChild[childId], lastChild[childId], childCount[childId]);
+    }
+  }
+
+  /**
+   * Appends the given siblings to the children of the node.
+   */
+  private void append(int node, int first, int last, int count) {
+    if (firstChild[node] == NONE) {
+      firstChild[node] = first;
+    } else {
+      nextSibling[lastChild[node]] = first;
+    }
+    lastChild[node] = last;
+    childCount[node] += count;
+    for (int child = first; child != NONE; child = nextSibling[child]) {
+      parent[child] = node;
+    }
+  }
+
+  private int add(int typeId, ParseNode node) {
+    if (size == type.length) {
+      int capacity = size * 2;
+      type = Arrays.copyOf(type, capacity);
+      from = Arrays.copyOf(from, capacity);
+      to = Arrays.copyOf(to, capacity);
+      parent = Arrays.copyOf(parent, capacity);
+      firstChild = Arrays.copyOf(firstChild, capacity);
+      lastChild = Arrays.copyOf(lastChild, capacity);
+      nextSibling = Arrays.copyOf(nextSibling, capacity);
+      childCount = Arrays.copyOf(childCount, capacity);
+      skipped = Arrays.copyOf(skipped, capacity);
+    }
+    type[size] = typeId;
+    from[size] = node.getStartIndex();
+    to[size] = node.getEndIndex();
+    parent[size] = NONE;
+    firstChild[size] = NONE;
+    lastChild[size] = NONE;
+    nextSibling[size] = NONE;
+    return size++;
+  }
+
+  private void addComment(ParseNode node) {
+    if (commentCount == commentFrom.length) {
+      int capacity = commentCount * 2;
+      commentFrom = Arrays.copyOf(commentFrom, capacity);
+      commentTo = Arrays.copyOf(commentTo, capacity);
+      commentToken = Arrays.copyOf(commentToken, capacity);
+    }
+    commentFrom[commentCount] = node.getStartIndex();
+    commentTo[commentCount] = node.getEndIndex();
+    commentCount++;
+  }
+
+  private int ruleTypeId(MutableParsingRule rule) {
+    Integer id = typeIds.get(rule);
+    if (id == null) {
+      id = addType(rule, rule.getRealAstNodeType(), rule.getName(), false, policy(rule));
+    }
+    return id;
+  }
+
+  private int tokenTypeId(TokenType tokenType) {
+    Integer id = typeIds.get(tokenType);
+    if (id == null) {
+      id = addType(tokenType, tokenType, tokenType.getName(), true, NEVER);
+    }
+    return id;
+  }
+
+  private int addType(Object key, AstNodeType nodeType, String name, boolean isToken, int policy) {
+    int id = types.size();
+    typeIds.put(key, id);
+    types.add(nodeType);
+    names.add(name);
+    tokenTypes.add(isToken);
+    policies.add(policy);
+    return id;
+  }
+
+  /**
+   * Removes the skipped nodes: kept nodes are renumbered in order, which is the pre-order of the resulting tree.
+   */
+  private CompactTree build(char[] source, @Nullable File file) {
+    int[] ids = new int[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      ids[i] = skipped[i] ? NONE : count++;
+    }
+    int[][] nodes = new int[6][count];
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if (id != NONE) {
+        nodes[0][id] = type[i];
+        nodes[1][id] = from[i];
+        nodes[2][id] = to[i];
+        nodes[3][id] = renumber(ids, parent[i]);
+        nodes[4][id] = renumber(ids, firstChild[i]);
+        nodes[5][id] = renumber(ids, nextSibling[i]);
+      }
+    }
+    int[][] comments = new int[3][attachedComments];
+    for (int i = 0; i < attachedComments; i++) {
+      comments[0][i] = commentFrom[i];
+      comments[1][i] = commentTo[i];
+      comments[2][i] = ids[commentToken[i]];
+    }
+    return new CompactTree(source, file, types, names, Booleans.toArray(tokenTypes), nodes, comments);
+  }
+
+  private static int renumber(int[] ids, int node) {
+    return node == NONE ? NONE : ids[node];
+  }
+
+  private static int policy(MutableParsingRule rule) {
+    AstNodeSkippingPolicy policy;
+    try {
+      policy = (AstNodeSkippingPolicy) SKIPPING_POLICY.get(rule);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+    if (policy instanceof AlwaysSkipFromAst) {
+      return ALWAYS;
+    } else if (policy instanceof SkipFromAstIfOnlyOneChild) {
+      return IF_ONLY_ONE_CHILD;
+    } else if (policy instanceof NeverSkipFromAst) {
+      return NEVER;
+    }
+    throw new IllegalStateException("Unsupported skipping policy of rule " + rule.getName() + ": " + policy);
+  }
+
+  private static Object staticField(Class<?> owner, String name) {
+    try {
+      return field(owner, name).get(null);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Field field(Class<?> owner, String name) {
+    try {
+      Field field = owner.getDeclaredField(name);
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Frame {
+
+    private final int id;
+    private final int typeId;
+    private final Iterator<ParseNode> children;
+
+    Frame(int id, int typeId, Iterator<ParseNode> children) {
+      this.id = id;
+      this.typeId = typeId;
+      this.children = children;
+    }
+
+  }
+
+}
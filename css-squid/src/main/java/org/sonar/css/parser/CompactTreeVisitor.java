@@ -0,0 +1,59 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNodeType;
+
+import java.util.List;
+
+/**
+ * Visitor of a {@link CompactTree}, walked by {@link CompactTreeWalker}: same life cycle as
+ * {@link org.sonar.squidbridge.SquidAstVisitor}, with nodes given as indexes in the tree.
+ */
+public abstract class CompactTreeVisitor {
+
+  private final List<AstNodeType> nodeTypes = Lists.newArrayList();
+
+  public void init() {
+  }
+
+  public void subscribeTo(AstNodeType... types) {
+    nodeTypes.addAll(ImmutableList.copyOf(types));
+  }
+
+  public List<AstNodeType> getNodeTypesToVisit() {
+    return nodeTypes;
+  }
+
+  public void visitFile(CompactTree tree) {
+  }
+
+  public void visitNode(CompactTree tree, int node) {
+  }
+
+  public void leaveNode(CompactTree tree, int node) {
+  }
+
+  public void leaveFile(CompactTree tree) {
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNodeType;
+
+import java.util.List;
+
+import static org.sonar.css.parser.CompactTree.NONE;
+
+/**
+ * Walks a {@link CompactTree} without recursion, and dispatches each node to the visitors subscribed to its type
+ * with a lookup by type identifier. Nodes are left in the reverse order of the visitors, as by
+ * {@link com.sonar.sslr.impl.ast.AstWalker}.
+ */
+public final class CompactTreeWalker {
+
+  private static final CompactTreeVisitor[] NO_VISITORS = new CompactTreeVisitor[0];
+
+  private final List<CompactTreeVisitor> visitors;
+
+  public CompactTreeWalker(List<? extends CompactTreeVisitor> visitors) {
+    this.visitors = ImmutableList.copyOf(visitors);
+  }
+
+  public void walkAndVisit(CompactTree tree) {
+    CompactTreeVisitor[][] visitorsByType = visitorsByType(tree);
+    for (CompactTreeVisitor visitor : visitors) {
+      visitor.visitFile(tree);
+    }
+    int node = tree.root();
+    while (node != NONE) {
+      visitNode(tree, node, visitorsByType[tree.typeId(node)]);
+      int child = tree.firstChild(node);
+      if (child != NONE) {
+        node = child;
+      } else {
+        node = leave(tree, node, visitorsByType);
+      }
+    }
+    for (CompactTreeVisitor visitor : Lists.reverse(visitors)) {
+      visitor.leaveFile(tree);
+    }
+  }
+
+  /**
+   * Leaves the given node, and its ancestors which have no next sibling.
+   *
+   * @return the next node to visit, or {@link CompactTree#NONE} once the root has been left
+   */
+  private static int leave(CompactTree tree, int node, CompactTreeVisitor[][] visitorsByType) {
+    int n = node;
+    while (n != NONE) {
+      leaveNode(tree, n, visitorsByType[tree.typeId(n)]);
+      if (n == tree.root()) {
+        return NONE;
+      }
+      int sibling = tree.nextSibling(n);
+      if (sibling != NONE) {
+        return sibling;
+      }
+      n = tree.parent(n);
+    }
+    return NONE;
+  }
+
+  private static void visitNode(CompactTree tree, int node, CompactTreeVisitor[] nodeVisitors) {
+    for (CompactTreeVisitor visitor : nodeVisitors) {
+      visitor.visitNode(tree, node);
+    }
+  }
+
+  private static void leaveNode(CompactTree tree, int node, CompactTreeVisitor[] nodeVisitors) {
+    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
+      nodeVisitors[i].leaveNode(tree, node);
+    }
+  }
+
+  private CompactTreeVisitor[][] visitorsByType(CompactTree tree) {
+    List<List<CompactTreeVisitor>> byType = Lists.newArrayList();
+    for (int i = 0; i < tree.typeCount(); i++) {
+      byType.add(Lists.<CompactTreeVisitor>newArrayList());
+    }
+    for (CompactTreeVisitor visitor : visitors) {
+      for (AstNodeType type : visitor.getNodeTypesToVisit()) {
+        int typeId = tree.typeIdOf(type);
+        if (typeId != NONE) {
+          byType.get(typeId).add(visitor);
+        }
+      }
+    }
+    CompactTreeVisitor[][] result = new CompactTreeVisitor[byType.size()][];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = byType.get(i).toArray(NO_VISITORS);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.api.Trivia.TriviaKind;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+import org.sonar.sslr.internal.vm.TokenExpression;
+import org.sonar.sslr.internal.vm.TriviaExpression;
+import org.sonar.sslr.parser.ParsingResult;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Creates the same {@link AstNode} tree as {@link org.sonar.sslr.internal.matchers.AstCreator}, but visits the parse tree
+ * with a stack of the rules being visited instead of recursion: the depth of the tree, for instance of nested SCSS
+ * blocks, is not bounded by the thread stack.
+ * <p>
+ * The source may be a range of a larger source: nodes and tokens are then positioned in the larger source.
+ */
+final class CssAstCreator {
+
+  private final char[] source;
+  private final LineIndex lines;
+  private final URI uri;
+  private final List<Trivia> trivia = Lists.newArrayList();
+  private final int line;
+  private final int column;
+  private final int index;
+
+  private CssAstCreator(char[] source, @Nullable File file, int line, int column, int index) {
+    this.source = source;
+    this.lines = new LineIndex(source);
+    this.uri = LineIndex.uri(file);
+    this.line = line;
+    this.column = column;
+    this.index = index;
+  }
+
+  static AstNode create(ParsingResult result, char[] source, @Nullable File file) {
+    return create(result, source, file, 1, 0, 0);
+  }
+
+  /**
+   * @param line line of the first character of the source in the larger source, from 1
+   * @param column column of the first character of the source in the larger source, from 0
+   * @param index index of the first character of the source in the larger source
+   */
+  static AstNode create(ParsingResult result, char[] source, @Nullable File file, int line, int column, int index) {
+    return new CssAstCreator(source, file, line, column, index).visit(result.getParseTreeRoot());
+  }
+
+  private AstNode visit(ParseNode root) {
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    stack.push(new Frame(root));
+    while (true) {
+      Frame frame = stack.peek();
+      if (!frame.children.hasNext()) {
+        stack.pop();
+        AstNode node = frame.build();
+        if (stack.isEmpty()) {
+          // unwraps the type of the root, as the one of the other nodes when they are added to their parent
+          node.hasToBeSkippedFromAst();
+          return node;
+        }
+        stack.peek().add(node);
+      } else {
+        ParseNode child = frame.children.next();
+        if (child.getMatcher() instanceof MutableParsingRule) {
+          stack.push(new Frame(child));
+        } else {
+          frame.add(visitTerminal(child));
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private AstNode visitTerminal(ParseNode node) {
+    Matcher matcher = node.getMatcher();
+    if (matcher instanceof TriviaExpression) {
+      TriviaKind kind = ((TriviaExpression) matcher).getTriviaKind();
+      if (kind == TriviaKind.COMMENT) {
+        addComment(node);
+      } else if (kind != TriviaKind.SKIPPED_TEXT) {
+        throw new IllegalStateException("Unexpected trivia kind: " + kind);
+      }
+      return null;
+    }
+    TokenType tokenType = matcher instanceof TokenExpression
+      ? ((TokenExpression) matcher).getTokenType()
+      : CompactTreeBuilder.UNDEFINED_TOKEN_TYPE;
+    if (tokenType == GenericTokenType.COMMENT) {
+      addComment(node);
+      return null;
+    }
+    AstNode astNode = new AstNode(token(node, tokenType, ImmutableList.copyOf(trivia)));
+    trivia.clear();
+    astNode.setFromIndex(node.getStartIndex() + index);
+    astNode.setToIndex(node.getEndIndex() + index);
+    return astNode;
+  }
+
+  private void addComment(ParseNode node) {
+    trivia.add(Trivia.createComment(token(node, GenericTokenType.COMMENT, Collections.<Trivia>emptyList())));
+  }
+
+  private Token token(ParseNode node, TokenType tokenType, List<Trivia> tokenTrivia) {
+    int start = node.getStartIndex();
+    int tokenLine = lines.line(start);
+    return Token.builder()
+      .setType(tokenType)
+      .setValueAndOriginalValue(new String(source, start, Math.min(node.getEndIndex(), source.length) - start))
+      .setLine(tokenLine + line - 1)
+      .setColumn(tokenLine == 1 ? lines.column(start) + column : lines.column(start))
+      .setURI(uri)
+      .setGeneratedCode(false)
+      .notCopyBook()
+      .setTrivia(tokenTrivia)
+      .build();
+  }
+
+  /**
+   * Rule being visited, with the nodes created for its children so far.
+   */
+  private final class Frame {
+
+    private final ParseNode node;
+    private final Iterator<ParseNode> children;
+    private final List<AstNode> astNodes = Lists.newArrayList();
+
+    Frame(ParseNode node) {
+      this.node = node;
+      this.children = node.getChildren().iterator();
+    }
+
+    void add(@Nullable AstNode astNode) {
+      if (astNode == null) {
+        return;
+      }
+      if (astNode.hasToBeSkippedFromAst()) {
+        astNodes.addAll(astNode.getChildren());
+      } else {
+        astNodes.add(astNode);
+      }
+    }
+
+    AstNode build() {
+      MutableParsingRule rule = (MutableParsingRule) node.getMatcher();
+      Token token = null;
+      for (AstNode astNode : astNodes) {
+        if (astNode.getToken() != null) {
+          token = astNode.getToken();
+          break;
+        }
+      }
+      AstNode result = new AstNode(rule, rule.getName(), token);
+      for (AstNode astNode : astNodes) {
+        result.addChild(astNode);
+      }
+      result.setFromIndex(node.getStartIndex() + index);
+      result.setToIndex(node.getEndIndex() + index);
+      return result;
+    }
+
+  }
+
+}
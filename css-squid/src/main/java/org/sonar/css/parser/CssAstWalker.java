@@ -0,0 +1,161 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.Token;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as {@link com.sonar.sslr.impl.ast.AstWalker}, but walks the tree with a stack of the nodes being visited instead of
+ * recursion, so that the depth of the tree is not bounded by the thread stack.
+ * <p>
+ * The children of a node are read once the node has been visited, so that visitors may replace them, see
+ * {@link LazyBlocks#expand(AstNode)}.
+ * <p>
+ * The visitors of the rules of {@link CssGrammar} and {@link SassGrammar} are found in arrays indexed by the ordinal of
+ * the rule, without hashing: only the other node types, such as the ones of the tokens, are looked up in a map.
+ * <p>
+ * Only {@link org.sonar.css.CssStreamingScanner} and {@link org.sonar.css.CssIncrementalScanner} walk their trees with
+ * this class: {@link org.sonar.css.CssAstScanner}, and so the sensor, is built on the scanner of squid-bridge, which
+ * walks them with the {@link com.sonar.sslr.impl.ast.AstWalker} of SSLR.
+ */
+public final class CssAstWalker {
+
+  private static final AstVisitor[] NO_VISITORS = new AstVisitor[0];
+
+  private final List<AstVisitor> visitors;
+  private final List<AstAndTokenVisitor> tokenVisitors = Lists.newArrayList();
+  private final AstVisitor[][] cssVisitors = new AstVisitor[CssGrammar.values().length][];
+  private final AstVisitor[][] sassVisitors = new AstVisitor[SassGrammar.values().length][];
+  private final Map<AstNodeType, AstVisitor[]> otherVisitors = Maps.newHashMap();
+
+  private Token lastVisitedToken;
+
+  public CssAstWalker(List<? extends AstVisitor> visitors) {
+    this.visitors = ImmutableList.copyOf(visitors);
+    Map<AstNodeType, List<AstVisitor>> byType = Maps.newHashMap();
+    for (AstVisitor visitor : visitors) {
+      for (AstNodeType type : visitor.getAstNodeTypesToVisit()) {
+        List<AstVisitor> typeVisitors = byType.get(type);
+        if (typeVisitors == null) {
+          typeVisitors = Lists.newArrayList();
+          byType.put(type, typeVisitors);
+        }
+        typeVisitors.add(visitor);
+      }
+      if (visitor instanceof AstAndTokenVisitor) {
+        tokenVisitors.add((AstAndTokenVisitor) visitor);
+      }
+    }
+    Arrays.fill(cssVisitors, NO_VISITORS);
+    Arrays.fill(sassVisitors, NO_VISITORS);
+    for (Map.Entry<AstNodeType, List<AstVisitor>> entry : byType.entrySet()) {
+      AstVisitor[] typeVisitors = entry.getValue().toArray(NO_VISITORS);
+      if (entry.getKey() instanceof CssGrammar) {
+        cssVisitors[((CssGrammar) entry.getKey()).ordinal()] = typeVisitors;
+      } else if (entry.getKey() instanceof SassGrammar) {
+        sassVisitors[((SassGrammar) entry.getKey()).ordinal()] = typeVisitors;
+      } else {
+        otherVisitors.put(entry.getKey(), typeVisitors);
+      }
+    }
+  }
+
+  public void walkAndVisit(AstNode ast) {
+    for (AstVisitor visitor : visitors) {
+      visitor.visitFile(ast);
+    }
+    walk(ast);
+    for (AstVisitor visitor : Lists.reverse(visitors)) {
+      visitor.leaveFile(ast);
+    }
+  }
+
+  /**
+   * Visits the given node and its descendants, without the file callbacks: for the parts of a file visited one by one.
+   */
+  public void walk(AstNode root) {
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    stack.push(visit(root));
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      List<AstNode> children = frame.node.getChildren();
+      if (frame.nextChild < children.size()) {
+        stack.push(visit(children.get(frame.nextChild++)));
+      } else {
+        stack.pop();
+        for (int i = frame.nodeVisitors.length - 1; i >= 0; i--) {
+          frame.nodeVisitors[i].leaveNode(frame.node);
+        }
+      }
+    }
+  }
+
+  private Frame visit(AstNode node) {
+    AstVisitor[] nodeVisitors = visitors(node.getType());
+    for (AstVisitor visitor : nodeVisitors) {
+      visitor.visitNode(node);
+    }
+    Token token = node.getToken();
+    if (token != null && token != lastVisitedToken) {
+      lastVisitedToken = token;
+      for (AstAndTokenVisitor visitor : tokenVisitors) {
+        visitor.visitToken(token);
+      }
+    }
+    return new Frame(node, nodeVisitors);
+  }
+
+  private AstVisitor[] visitors(AstNodeType type) {
+    if (type instanceof CssGrammar) {
+      return cssVisitors[((CssGrammar) type).ordinal()];
+    } else if (type instanceof SassGrammar) {
+      return sassVisitors[((SassGrammar) type).ordinal()];
+    }
+    AstVisitor[] typeVisitors = otherVisitors.get(type);
+    return typeVisitors == null ? NO_VISITORS : typeVisitors;
+  }
+
+  private static final class Frame {
+
+    private final AstNode node;
+    private final AstVisitor[] nodeVisitors;
+    private int nextChild;
+
+    Frame(AstNode node, AstVisitor[] nodeVisitors) {
+      this.node = node;
+      this.nodeVisitors = nodeVisitors;
+    }
+
+  }
+
+}
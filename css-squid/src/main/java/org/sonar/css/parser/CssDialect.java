@@ -0,0 +1,169 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * Grammars which are built and compiled once per JVM, on first use or on {@link #warmUp()}, and shared by all the parsers.
+ * <p>
+ * Compiled grammars are immutable and hold no parsing state: regular expressions are matched by {@link RegexpExpression},
+ * so parsers of the same dialect can run concurrently.
+ */
+public enum CssDialect {
+
+  CSS {
+    @Override
+    LexerlessGrammar createGrammar() {
+      return CssGrammar.createGrammar();
+    }
+  },
+
+  /**
+   * {@link #CSS} with the tokens matched by {@link CssLexer}, see {@link org.sonar.css.CssConfiguration#useLexer()}.
+   */
+  CSS_LEXER {
+    @Override
+    LexerlessGrammar createGrammar() {
+      return CssGrammar.createLexerGrammar();
+    }
+  },
+
+  SCSS {
+    @Override
+    LexerlessGrammar createGrammar() {
+      return SassGrammar.createGrammar();
+    }
+  },
+
+  /**
+   * {@link #CSS} with declaration blocks which are only parsed on demand, see {@link LazyBlocks}.
+   */
+  CSS_LAZY_BLOCKS {
+    @Override
+    LexerlessGrammar createGrammar() {
+      return CssGrammar.createLazyBlockGrammar();
+    }
+
+    @Override
+    public CssFileParser parser(Charset charset) {
+      return new CssLazyParser(charset, newParser(charset), CSS);
+    }
+  };
+
+  private final Supplier<Snapshot> snapshot = Suppliers.memoize(new Supplier<Snapshot>() {
+    @Override
+    public Snapshot get() {
+      return new Snapshot(createGrammar());
+    }
+  });
+
+  private final Supplier<CompiledGrammar> declarations = Suppliers.memoize(new Supplier<CompiledGrammar>() {
+    @Override
+    public CompiledGrammar get() {
+      return MutableGrammarCompiler.compile((CompilableGrammarRule) grammar().rule(CssGrammar.SUP_DECLARATION));
+    }
+  });
+
+  abstract LexerlessGrammar createGrammar();
+
+  public LexerlessGrammar grammar() {
+    return snapshot.get().grammar;
+  }
+
+  /**
+   * Creating a parser is cheap: the compiled grammar is reused.
+   */
+  public CssFileParser parser(Charset charset) {
+    return newParser(charset);
+  }
+
+  CssParser newParser(Charset charset) {
+    Snapshot compiled = snapshot.get();
+    return new CssParser(charset, compiled.grammar, compiled.compiledGrammar);
+  }
+
+  /**
+   * Parser which splits sources of at least twice the given number of characters at top-level statements,
+   * and parses the parts concurrently. The trees are the same as the ones of {@link #parser(Charset)}.
+   */
+  public CssFileParser parallelParser(Charset charset, int minChunkLength) {
+    return new CssParallelParser(this, charset, CssParallelParser.sharedPool(), minChunkLength);
+  }
+
+  /**
+   * Whether the top-level statements of this dialect can be delimited by braces and semicolons only.
+   * SCSS has line comments and interpolations, which {@link CssLexer} does not know, and the trees of
+   * {@link #CSS_LAZY_BLOCKS} keep their source.
+   */
+  boolean isSplittable() {
+    return this == CSS || this == CSS_LEXER;
+  }
+
+  /**
+   * The {@link CssGrammar#SUP_DECLARATION} rule, compiled as a root rule: it parses the declarations of a block.
+   */
+  CompiledGrammar declarationsGrammar() {
+    return declarations.get();
+  }
+
+  /**
+   * Parses the source into a {@link CompactTree}, which retains much less memory than the tree of {@link #parser(Charset)}.
+   *
+   * @throws com.sonar.sslr.api.RecognitionException if the source can not be parsed
+   */
+  public CompactTree parseCompact(String source) {
+    char[] chars = source.toCharArray();
+    return CompactTreeBuilder.create(CssParser.match(chars, snapshot.get().compiledGrammar), chars, null);
+  }
+
+  public CompactTree parseCompact(File file, Charset charset) {
+    char[] chars = CssFileParser.read(file, charset);
+    return CompactTreeBuilder.create(CssParser.match(chars, snapshot.get().compiledGrammar), chars, file);
+  }
+
+  /**
+   * Builds and compiles the grammar, if not already done.
+   */
+  public void warmUp() {
+    snapshot.get();
+  }
+
+  private static final class Snapshot {
+
+    private final LexerlessGrammar grammar;
+    private final CompiledGrammar compiledGrammar;
+
+    Snapshot(LexerlessGrammar grammar) {
+      this.grammar = grammar;
+      this.compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.getRootRule());
+    }
+
+  }
+
+}
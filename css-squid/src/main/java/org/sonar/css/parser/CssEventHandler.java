@@ -0,0 +1,84 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+/**
+ * Receives the events of {@link CssEventParser}, in the order of the source.
+ * <p>
+ * Nothing is kept once an event has been delivered: values are passed as strings, and the position
+ * of the source which produced the current event can be read from the {@link Locator}.
+ */
+public interface CssEventHandler {
+
+  interface Locator {
+
+    /**
+     * Line of the first character of the current event, starting at 1.
+     */
+    int line();
+
+    /**
+     * Column of the first character of the current event, starting at 0.
+     */
+    int column();
+
+    /**
+     * Offset of the first character of the current event.
+     */
+    int startOffset();
+
+    /**
+     * Offset following the last character of the current event.
+     */
+    int endOffset();
+
+  }
+
+  void startStylesheet(Locator locator);
+
+  /**
+   * At-rule without block, such as {@code @import url(a.css);}. The name does not include the '@'.
+   */
+  void atRule(String name, String prelude);
+
+  /**
+   * At-rule with a block, such as {@code @media print {}}.
+   */
+  void startAtRule(String name, String prelude);
+
+  void endAtRule();
+
+  void startRuleSet();
+
+  /**
+   * One of the comma separated selectors of the current rule set.
+   */
+  void selector(String selector);
+
+  /**
+   * @param value value of the declaration, without the {@code !important} annotation
+   */
+  void declaration(String property, String value, boolean important);
+
+  void endRuleSet();
+
+  void endStylesheet();
+
+}
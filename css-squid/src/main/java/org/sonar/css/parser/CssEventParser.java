@@ -0,0 +1,298 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.sonar.sslr.api.RecognitionException;
+import org.sonar.css.parser.CssLexer.Kind;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Streaming parser which reports rule sets, selectors, declarations and at-rules to a {@link CssEventHandler}
+ * without building any tree.
+ * <p>
+ * Only the structure of the source is checked: braces must be balanced, and blocks must contain declarations,
+ * rule sets or at-rules. The content of selectors, values and at-rule preludes is reported as is.
+ * Nested blocks are tracked with a stack, so the depth of the source does not matter.
+ */
+public final class CssEventParser implements CssEventHandler.Locator {
+
+  private static final int INITIAL_COMMAS = 16;
+
+  private final CssEventHandler handler;
+
+  private CharSequence input;
+  private CssLexer lexer;
+  private final Deque<Boolean> blocks = new ArrayDeque<Boolean>();
+
+  /* Position of the current event */
+  private int line;
+  private int lineStart;
+  private int lineCursor;
+  private int eventStart;
+  private int eventEnd;
+
+  /* Current declaration, at-rule or rule set prelude */
+  private int start;
+  private int lastEnd;
+  private boolean atRule;
+  private int keywordEnd;
+  private int colon;
+  private int bang;
+  private int important;
+  private int nesting;
+  private int braces;
+  private int[] commas = new int[INITIAL_COMMAS];
+  private int commaCount;
+
+  public CssEventParser(CssEventHandler handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * @throws RecognitionException if braces are not balanced, or if a block contains something else than declarations,
+   * rule sets and at-rules
+   */
+  public void parse(CharSequence source) {
+    input = source;
+    lexer = new CssLexer(source);
+    blocks.clear();
+    line = 1;
+    lineStart = 0;
+    lineCursor = 0;
+    reset();
+
+    locate(0, 0);
+    handler.startStylesheet(this);
+    Kind kind;
+    while ((kind = lexer.next()) != Kind.EOF) {
+      int tokenStart = lexer.tokenStart();
+      int tokenEnd = lexer.tokenEnd();
+      switch (kind) {
+        case WHITESPACE:
+        case COMMENT:
+          break;
+        case BAD_COMMENT:
+          throw error(tokenStart, "unterminated comment");
+        case OPEN_CURLY_BRACE:
+          openBrace(tokenStart, tokenEnd);
+          break;
+        case CLOSE_CURLY_BRACE:
+          closeBrace(tokenStart, tokenEnd);
+          break;
+        case SEMICOLON:
+          if (nesting == 0 && braces == 0) {
+            endComponent(tokenEnd);
+          } else {
+            significant(kind, tokenStart, tokenEnd);
+          }
+          break;
+        default:
+          significant(kind, tokenStart, tokenEnd);
+          break;
+      }
+    }
+    endComponent(lastEnd);
+    if (!blocks.isEmpty()) {
+      throw error(input.length(), "missing closing brace");
+    }
+    locate(input.length(), input.length());
+    handler.endStylesheet();
+  }
+
+  @Override
+  public int line() {
+    return line;
+  }
+
+  @Override
+  public int column() {
+    return eventStart - lineStart;
+  }
+
+  @Override
+  public int startOffset() {
+    return eventStart;
+  }
+
+  @Override
+  public int endOffset() {
+    return eventEnd;
+  }
+
+  private void significant(Kind kind, int tokenStart, int tokenEnd) {
+    if (start < 0) {
+      start = tokenStart;
+      atRule = kind == Kind.AT_KEYWORD;
+      keywordEnd = tokenEnd;
+    }
+    if (nesting == 0 && braces == 0) {
+      if (kind == Kind.COLON && colon < 0) {
+        colon = tokenStart;
+      } else if (kind == Kind.COMMA) {
+        addComma(tokenStart);
+      }
+    }
+    if (kind == Kind.FUNCTION || kind == Kind.OPEN_PARENTHESIS || kind == Kind.OPEN_BRACKET) {
+      nesting++;
+    } else if ((kind == Kind.CLOSE_PARENTHESIS || kind == Kind.CLOSE_BRACKET) && nesting > 0) {
+      nesting--;
+    } else if (kind == Kind.DELIM && input.charAt(tokenStart) == '!') {
+      bang = tokenEnd;
+    } else if (kind == Kind.IDENT && bang == tokenStart && regionMatches(tokenStart, tokenEnd, "important")) {
+      important = tokenStart - 1;
+    }
+    lastEnd = tokenEnd;
+  }
+
+  private void openBrace(int tokenStart, int tokenEnd) {
+    if (braces > 0 || (start >= 0 && colon >= 0 && !atRule && inRuleSet())) {
+      braces++;
+      lastEnd = tokenEnd;
+      return;
+    }
+    if (start < 0) {
+      start = tokenStart;
+      lastEnd = tokenStart;
+    }
+    locate(start, tokenEnd);
+    if (atRule) {
+      handler.startAtRule(name(), text(keywordEnd, lastEnd));
+      blocks.push(Boolean.FALSE);
+    } else {
+      handler.startRuleSet();
+      selectors();
+      blocks.push(Boolean.TRUE);
+    }
+    reset();
+  }
+
+  private void closeBrace(int tokenStart, int tokenEnd) {
+    if (braces > 0) {
+      braces--;
+      lastEnd = tokenEnd;
+      return;
+    }
+    endComponent(lastEnd);
+    if (blocks.isEmpty()) {
+      throw error(tokenStart, "unexpected closing brace");
+    }
+    locate(tokenStart, tokenEnd);
+    if (blocks.pop()) {
+      handler.endRuleSet();
+    } else {
+      handler.endAtRule();
+    }
+  }
+
+  /**
+   * Reports the pending declaration or at-rule, if any.
+   */
+  private void endComponent(int end) {
+    if (start < 0) {
+      return;
+    }
+    if (atRule) {
+      locate(start, end);
+      handler.atRule(name(), text(keywordEnd, lastEnd));
+    } else if (colon >= 0 && !blocks.isEmpty()) {
+      locate(start, end);
+      handler.declaration(text(start, colon), text(colon + 1, important >= 0 ? important : lastEnd), important >= 0);
+    } else {
+      throw error(start, blocks.isEmpty() ? "expected a rule set or an at-rule" : "expected a declaration");
+    }
+    reset();
+  }
+
+  private void selectors() {
+    int from = start;
+    for (int i = 0; i <= commaCount; i++) {
+      int to = i < commaCount ? commas[i] : lastEnd;
+      while (from < to && CssLexer.is(input.charAt(from), CssLexer.WHITESPACE)) {
+        from++;
+      }
+      if (from < to) {
+        locate(from, to);
+        handler.selector(text(from, to));
+      }
+      from = to + 1;
+    }
+  }
+
+  private boolean inRuleSet() {
+    return !blocks.isEmpty() && blocks.peek();
+  }
+
+  private String name() {
+    return input.subSequence(start + 1, keywordEnd).toString();
+  }
+
+  private String text(int from, int to) {
+    return from < to ? input.subSequence(from, to).toString().trim() : "";
+  }
+
+  private boolean regionMatches(int from, int to, String value) {
+    return to - from == value.length() && CssLexer.startsWith(input, from, value);
+  }
+
+  private void addComma(int offset) {
+    if (commaCount == commas.length) {
+      commas = Arrays.copyOf(commas, commas.length * 2);
+    }
+    commas[commaCount++] = offset;
+  }
+
+  private void reset() {
+    start = -1;
+    lastEnd = -1;
+    atRule = false;
+    colon = -1;
+    bang = -1;
+    important = -1;
+    nesting = 0;
+    braces = 0;
+    commaCount = 0;
+  }
+
+  /**
+   * Makes the given range the current event. Events are reported in the order of the source,
+   * so lines are counted incrementally.
+   */
+  private void locate(int from, int to) {
+    for (int i = lineCursor; i < from; i++) {
+      char c = input.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == input.length() || input.charAt(i + 1) != '\n'))) {
+        line++;
+        lineStart = i + 1;
+      }
+    }
+    lineCursor = Math.max(lineCursor, from);
+    eventStart = from;
+    eventEnd = to;
+  }
+
+  private RecognitionException error(int offset, String message) {
+    locate(offset, offset);
+    return new RecognitionException(line, "Parse error at line " + line + " column " + (column() + 1) + ": " + message);
+  }
+
+}
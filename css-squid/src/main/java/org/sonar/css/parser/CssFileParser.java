@@ -0,0 +1,104 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Parser of a {@link CssDialect}, which can also parse a source which has already been read, see
+ * {@link org.sonar.css.CssVisitorContext#source()}.
+ */
+public abstract class CssFileParser extends Parser<LexerlessGrammar> {
+
+  private final Charset charset;
+
+  CssFileParser(LexerlessGrammar grammar, Charset charset) {
+    super(grammar);
+    this.charset = charset;
+  }
+
+  @Override
+  public final AstNode parse(String source) {
+    return parse(null, source.toCharArray());
+  }
+
+  @Override
+  public final AstNode parse(File file) {
+    return parse(file, read(file, charset));
+  }
+
+  /**
+   * @param file file of the tokens, or {@code null} if the source is not read from a file
+   * @param source content of the file, which is not modified
+   * @throws RecognitionException if the source does not match the grammar
+   */
+  public final AstNode parse(@Nullable File file, char[] source) {
+    return parse(file, source, 1, 0, 0);
+  }
+
+  /**
+   * Same as {@link #parse(File, char[])} for a source which is a range of a larger source: nodes and tokens are
+   * positioned in the larger source. The position of a parse error is the one in the range.
+   *
+   * @param line line of the first character of the range, from 1
+   * @param column column of the first character of the range, from 0
+   * @param index index of the first character of the range
+   */
+  public abstract AstNode parse(@Nullable File file, char[] source, int line, int column, int index);
+
+  /**
+   * @throws RecognitionException if the file can not be read, as {@link #parse(File)}
+   */
+  public static char[] read(File file, Charset charset) {
+    try {
+      return Files.toString(file, charset).toCharArray();
+    } catch (IOException e) {
+      throw new RecognitionException(0, e.getMessage(), e);
+    }
+  }
+
+  Charset charset() {
+    return charset;
+  }
+
+  @Override
+  public final AstNode parse(List<Token> tokens) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public final RuleDefinition getRootRule() {
+    throw new UnsupportedOperationException();
+  }
+
+}
@@ -20,6 +20,8 @@
 package org.sonar.css.parser;
 
 import com.sonar.sslr.api.GenericTokenType;
+import org.sonar.css.parser.CssLexerExpression.Scanner;
+import org.sonar.css.parser.FirstCharDispatch.FirstChar;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
@@ -121,14 +123,10 @@ public enum CssGrammar implements GrammarRuleKey {
   _NMCHAR,
   _NUM,
   _STRING,
-  _STRING1,
-  _STRING2,
   _BAD_STRING,
   _BAD_STRING1,
   _BAD_STRING2,
   _BAD_COMMENT,
-  _BAD_COMMENT1,
-  _BAD_COMMENT2,
   _BADURI,
   _BADURI1,
   _BADURI2,
@@ -136,7 +134,9 @@ public enum CssGrammar implements GrammarRuleKey {
   _NL,
   _W,
 
-  eof, animationEvent, unit, parameters, comma, parameter, to, from, atRuleBlock, identNoWS, _URI_CONTENT;
+  eof, animationEvent, unit, parameters, comma, parameter, to, from, atRuleBlock, identNoWS, _URI_CONTENT,
+
+  lazyDeclaration, lazyValue, lazyBlock;
 
   private static final String NMCHAR_REGEX = "(?i)[_a-z0-9-]";
   private static final String NONASCII_REGEX = "[^\\x00-\\xED]";
@@ -144,26 +144,64 @@ public enum CssGrammar implements GrammarRuleKey {
   public static final String WHITESPACE_REGEX = "[ \\t\\r\\n\\f]+";
   public static final String IDENTIFIER_REGEX = NMSTART_REGEX + NMCHAR_REGEX.replace("\\(\\?i\\)", "") + "*";
   public static final String LITERAL_REGEX = "\"[^\"]*?\"|'[^']*?'";
-  public static final String COMMENT_REGEX = "(?:/\\*[\\s\\S]*?\\*/)";
-  public static final String COMMENT2_REGEX = "(?:\\<\\!--[\\s\\S]*?--\\>)";
 
   public static LexerlessGrammar createGrammar() {
     return createGrammarBuilder().build();
   }
 
   public static LexerlessGrammarBuilder createGrammarBuilder() {
+    return createGrammarBuilder(false);
+  }
+
+  /**
+   * Same grammar, but identifiers, names, numbers, delimiters and whitespaces are recognized
+   * by the hand-written {@link CssLexer} instead of regular expressions.
+   */
+  public static LexerlessGrammar createLexerGrammar() {
+    return createLexerGrammarBuilder().build();
+  }
+
+  public static LexerlessGrammarBuilder createLexerGrammarBuilder() {
+    return createGrammarBuilder(true);
+  }
+
+  /**
+   * Same grammar, but the declarations of blocks are not parsed: each one is a {@link #lazyDeclaration} which holds its
+   * {@link #PROPERTY}, its {@link #COLON}, and a {@link #lazyValue} made of {@link #STRING}s and raw tokens.
+   * Braces are still matched, and comments are still trivia. See {@link LazyBlocks#expand} for the full tree.
+   */
+  public static LexerlessGrammar createLazyBlockGrammar() {
+    LexerlessGrammarBuilder b = createGrammarBuilder(false, true);
+    lazyBlocks(b);
+    return b.build();
+  }
+
+  /**
+   * Same grammar, without first character dispatch of {@link #STATEMENT} and {@link #ANY}: only used to measure its benefit.
+   */
+  static LexerlessGrammar createGrammarWithoutDispatch() {
+    return createGrammarBuilder(false, false).build();
+  }
+
+  private static LexerlessGrammarBuilder createGrammarBuilder(boolean lexer) {
+    return createGrammarBuilder(lexer, true);
+  }
+
+  private static LexerlessGrammarBuilder createGrammarBuilder(boolean lexer, boolean dispatch) {
     LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
-    macros(b);
-    tokens(b);
-    syntax(b);
+    macros(b, lexer);
+    tokens(b, lexer);
+    syntax(b, dispatch);
     b.setRootRule(STYLESHEET);
 
     return b;
   }
 
-  private static void syntax(LexerlessGrammarBuilder b) {
+  private static void syntax(LexerlessGrammarBuilder b, boolean dispatch) {
     b.rule(STYLESHEET).is(WHITESPACES, b.zeroOrMore(STATEMENT), eof);
-    b.rule(STATEMENT).is(b.firstOf(AT_RULE, RULESET));
+    b.rule(STATEMENT).is(FirstCharDispatch.firstOf(b, dispatch)
+      .or(AT_RULE, "@")
+      .or(RULESET, FirstChar.ANY_CHAR));
     b.rule(AT_RULE).is(AT_KEYWORD,
       addSpacing(b.zeroOrMore(ANY), b),
       b.firstOf(
@@ -234,31 +272,46 @@ public enum CssGrammar implements GrammarRuleKey {
       b.oneOrMore(b.firstOf(ANY, BLOCK, AT_KEYWORD)));
     b.rule(ANY)
       .is(
-        b.firstOf(
-          URI,
-          FUNCTION,
-          b.sequence(OPEN_PARENTHESIS,
+        FirstCharDispatch.firstOf(b, dispatch)
+          .or(URI, "u")
+          .or(FUNCTION, FirstChar.IDENT_START)
+          .or(b.sequence(OPEN_PARENTHESIS,
             b.zeroOrMore(ANY),
-            CLOSE_PARENTHESIS),
-          b.sequence(OPEN_BRACKET,
-            b.zeroOrMore(ANY), CLOSE_BRACKET),
-          PERCENTAGE,
-          DIMENSION,
-          NUMBER,
-          STRING,
-          HASH,
-          UNICODE_RANGE,
-          INCLUDES,
-          DASH_MATCH,
-          addSpacing(IDENT, b),
-          COLON,
-          IMPORTANT,
-          addSpacing(DELIM, b))).skipIfOneChild();
+            CLOSE_PARENTHESIS), "(")
+          .or(b.sequence(OPEN_BRACKET,
+            b.zeroOrMore(ANY), CLOSE_BRACKET), "[")
+          .or(PERCENTAGE, FirstChar.NUMBER_START)
+          .or(DIMENSION, FirstChar.NUMBER_START)
+          .or(NUMBER, FirstChar.NUMBER_START)
+          .or(STRING, "\"'")
+          .or(HASH, "#")
+          .or(UNICODE_RANGE, "u")
+          .or(INCLUDES, "~")
+          .or(DASH_MATCH, "|")
+          .or(addSpacing(IDENT, b), FirstChar.IDENT_START)
+          .or(COLON, ":")
+          .or(IMPORTANT, "!")
+          .or(addSpacing(DELIM, b), FirstChar.DELIM)).skipIfOneChild();
     b.rule(eof).is(b.token(GenericTokenType.EOF, b.endOfInput())).skip();
 
   }
 
-  private static void tokens(LexerlessGrammarBuilder b) {
+  private static void lazyBlocks(LexerlessGrammarBuilder b) {
+    b.rule(SUP_DECLARATION).override(
+      b.oneOrMore(b.firstOf(SEMICOLON, lazyDeclaration)));
+    b.rule(lazyDeclaration).is(PROPERTY, COLON, lazyValue);
+    b.rule(lazyValue).is(
+      b.oneOrMore(b.firstOf(
+        STRING,
+        lazyBlock,
+        addSpacing(b.token(GenericTokenType.LITERAL, new CssLexerExpression(Scanner.RAW_VALUE)), b))));
+    b.rule(lazyBlock).is(
+      OPEN_CURLY_BRACE,
+      b.zeroOrMore(b.firstOf(SEMICOLON, lazyValue)),
+      CLOSE_CURLY_BRACE);
+  }
+
+  private static void tokens(LexerlessGrammarBuilder b, boolean lexer) {
     b.rule(IDENT).is(addSpacing(_IDENT, b));
     b.rule(identNoWS).is(_IDENT);
     b.rule(AT_KEYWORD).is(addSpacing(b.sequence("@", IDENT), b));
@@ -279,12 +332,12 @@ public enum CssGrammar implements GrammarRuleKey {
         STRING,
         b.zeroOrMore(
           b.firstOf(
-            b.regexp("[!#$%&*-\\[\\]-~]+"),
+            new CssLexerExpression(Scanner.URL_CHARS),
             _NONASCII,
             _ESCAPE))
       ), _W));
     b.rule(UNICODE_RANGE)
-      .is(addSpacing(b.regexp("u\\+[0-9a-f?]{1,6}(-[0-9a-f]{1,6})?"), b));
+      .is(addSpacing(pattern(b, lexer, "u\\+[0-9a-f?]{1,6}(-[0-9a-f]{1,6})?", Scanner.UNICODE_RANGE), b));
     b.rule(COLON).is(addSpacing(":", b));
     b.rule(SEMICOLON).is(addSpacing(";", b));
     b.rule(OPEN_CURLY_BRACE).is(addSpacing("{", b));
@@ -294,11 +347,11 @@ public enum CssGrammar implements GrammarRuleKey {
     b.rule(OPEN_BRACKET).is(addSpacing("[", b));
     b.rule(CLOSE_BRACKET).is(addSpacing("]", b));
     b.rule(comma).is(addSpacing(",", b));
-    b.rule(WHITESPACE).is(b.regexp(WHITESPACE_REGEX)).skip();
+    b.rule(WHITESPACE).is(pattern(b, lexer, WHITESPACE_REGEX, Scanner.WHITESPACE)).skip();
     b.rule(WHITESPACES).is(b.zeroOrMore(
       b.firstOf(
         b.skippedTrivia(WHITESPACE),
-        b.commentTrivia(b.regexp("(?:" + COMMENT_REGEX + "|" + COMMENT2_REGEX + ")"))))).skip();
+        b.commentTrivia(new CssLexerExpression(Scanner.COMMENT))))).skip();
     b.rule(FUNCTION).is(addSpacing(b.sequence(IDENT, OPEN_PARENTHESIS), b), b.zeroOrMore(parameters),
       CLOSE_PARENTHESIS);
     b.rule(parameters).is(parameter, b.zeroOrMore(comma, parameter));
@@ -318,55 +371,62 @@ public enum CssGrammar implements GrammarRuleKey {
      * TODO: How to cover this: any other character not matched by the above
      * rules, and neither a single nor a double quote
      */
-    b.rule(DELIM).is(b.regexp("[^\"'\\{\\}\\(\\)\\[\\]:; \t\r\n\f]"));
+    b.rule(DELIM).is(pattern(b, lexer, "[^\"'\\{\\}\\(\\)\\[\\]:; \t\r\n\f]", Scanner.DELIM));
 
   }
 
-  private static void macros(LexerlessGrammarBuilder b) {
-    b.rule(_IDENT).is(b.token(GenericTokenType.IDENTIFIER, b.sequence(_NMSTART, b.zeroOrMore(_NMCHAR)))).skip();
-    b.rule(_NAME).is(b.token(GenericTokenType.LITERAL, b.oneOrMore(_NMCHAR))).skip();
+  private static void macros(LexerlessGrammarBuilder b, boolean lexer) {
+    if (lexer) {
+      b.rule(_IDENT).is(b.token(GenericTokenType.IDENTIFIER, new CssLexerExpression(Scanner.IDENT))).skip();
+      b.rule(_NAME).is(b.token(GenericTokenType.LITERAL, new CssLexerExpression(Scanner.NAME))).skip();
+    } else {
+      b.rule(_IDENT).is(b.token(GenericTokenType.IDENTIFIER, b.sequence(_NMSTART, b.zeroOrMore(_NMCHAR)))).skip();
+      b.rule(_NAME).is(b.token(GenericTokenType.LITERAL, b.oneOrMore(_NMCHAR))).skip();
+    }
     b.rule(_NMSTART).is(
-      b.firstOf(b.regexp(NMSTART_REGEX), "-", "*", _NONASCII, _ESCAPE)).skip();
-    b.rule(_NONASCII).is(b.regexp(NONASCII_REGEX)).skip();
+      b.firstOf(new RegexpExpression(NMSTART_REGEX), "-", "*", _NONASCII, _ESCAPE)).skip();
+    b.rule(_NONASCII).is(pattern(b, lexer, NONASCII_REGEX, Scanner.NONASCII)).skip();
     b.rule(_UNICODE).is(
-      b.regexp("\\\\[0-9a-f]{1,6}(\\r\\n|[ \\n\\r\\t\\f])?")).skip();
-    b.rule(_ESCAPE).is(
-      b.firstOf(_UNICODE, b.regexp("\\\\[^\\n\\r\\f0-9a-f]"))).skip();
+      new RegexpExpression("\\\\[0-9a-f]{1,6}(\\r\\n|[ \\n\\r\\t\\f])?")).skip();
+    if (lexer) {
+      b.rule(_ESCAPE).is(new CssLexerExpression(Scanner.ESCAPE)).skip();
+    } else {
+      b.rule(_ESCAPE).is(
+        b.firstOf(_UNICODE, new RegexpExpression("\\\\[^\\n\\r\\f0-9a-f]"))).skip();
+    }
     b.rule(_NMCHAR).is(
-      b.firstOf(b.regexp(NMCHAR_REGEX), _NONASCII, _ESCAPE)).skip();
-    b.rule(_NUM).is(b.token(GenericTokenType.LITERAL, b.sequence(b.optional(b.firstOf("-", "+")),
-      b.firstOf(b.regexp("[0-9]*\\.[0-9]+"), b.regexp("[0-9]+"))))).skip();
-    b.rule(_STRING).is(b.token(GenericTokenType.LITERAL, b.firstOf(_STRING1, _STRING2))).skip();
-    b.rule(_STRING1).is(
-      "\"",
-      b.zeroOrMore(b.firstOf(b.regexp("[^\\n\\r\\f\\\\\"]"),
-        b.sequence("\\", _NL), _ESCAPE)), "\"").skip();
-    b.rule(_STRING2).is(
-      "'",
-      b.zeroOrMore(b.firstOf(b.regexp("[^\\n\\r\\f\\\\']"),
-        b.sequence("\\", _NL), _ESCAPE)), "'").skip();
+      b.firstOf(new RegexpExpression(NMCHAR_REGEX), _NONASCII, _ESCAPE)).skip();
+    if (lexer) {
+      b.rule(_NUM).is(b.token(GenericTokenType.LITERAL, new CssLexerExpression(Scanner.NUMBER))).skip();
+    } else {
+      b.rule(_NUM).is(b.token(GenericTokenType.LITERAL, b.sequence(b.optional(b.firstOf("-", "+")),
+        b.firstOf(new RegexpExpression("[0-9]*\\.[0-9]+"), new RegexpExpression("[0-9]+"))))).skip();
+    }
+    b.rule(_STRING).is(b.token(GenericTokenType.LITERAL, new CssLexerExpression(Scanner.STRING))).skip();
     b.rule(_BAD_STRING).is(b.firstOf(_BAD_STRING1, _BAD_STRING2)).skip();
     b.rule(_BAD_STRING1).is(
       "\"",
-      b.zeroOrMore(b.regexp("[^\\n\\r\\f\\\\\"]"),
+      b.zeroOrMore(new RegexpExpression("[^\\n\\r\\f\\\\\"]"),
         b.sequence("\\", _NL), _ESCAPE), "\"").skip();
     b.rule(_BAD_STRING2).is(
       "'",
-      b.zeroOrMore(b.regexp("[^\\n\\r\\f\\\\\']"),
+      b.zeroOrMore(new RegexpExpression("[^\\n\\r\\f\\\\\']"),
         b.sequence("\\", _NL), _ESCAPE), "'").skip();
-    b.rule(_BAD_COMMENT).is(b.firstOf(_BAD_COMMENT1, _BAD_COMMENT2)).skip();
-    b.rule(_BAD_COMMENT1).is(b.regexp("\\/\\*[^*]*\\*+([^/*][^*]*\\*+)*")).skip();
-    b.rule(_BAD_COMMENT2).is(b.regexp("\\/\\*[^*]*(\\*+[^/*][^*]*)*")).skip();
+    b.rule(_BAD_COMMENT).is(new CssLexerExpression(Scanner.BAD_COMMENT)).skip();
     b.rule(_BADURI).is(b.firstOf(_BADURI1, _BADURI2, _BADURI3)).skip();
     b.rule(_BADURI1).is(
       "url(",
       _W,
-      b.zeroOrMore(b.firstOf(b.regexp("[!#$%&*-~]"), _NONASCII,
+      b.zeroOrMore(b.firstOf(new RegexpExpression("[!#$%&*-~]"), _NONASCII,
         _ESCAPE)), _W).skip();
     b.rule(_BADURI2).is("url(", _W, _STRING, _W).skip();
     b.rule(_BADURI3).is("url(", _W, _BAD_STRING).skip();
     b.rule(_NL).is(b.firstOf("\n", "\r\n", "\r", "\f")).skip();
-    b.rule(_W).is(b.regexp("[ \\t\\r\\n\\f]*")).skip();
+    b.rule(_W).is(pattern(b, lexer, "[ \\t\\r\\n\\f]*", Scanner.OPTIONAL_WHITESPACE)).skip();
+  }
+
+  private static Object pattern(LexerlessGrammarBuilder b, boolean lexer, String regexp, Scanner scanner) {
+    return lexer ? new CssLexerExpression(scanner) : new RegexpExpression(regexp);
   }
 
   static Object addSpacing(Object value, LexerlessGrammarBuilder b) {
@@ -0,0 +1,215 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Parser which, after an edit, only re-parses the top-level statements touched by the edit and splices them
+ * into the previous tree. The statements before the edit are reused as is, the ones after it are relocated.
+ * <p>
+ * When the edit moves statement boundaries, for instance by removing a closing brace, the whole source is parsed again.
+ * The previous tree is recycled: it must not be used anymore once it has been re-parsed.
+ */
+public final class CssIncrementalParser {
+
+  private final CssFileParser parser;
+
+  public CssIncrementalParser(Charset charset, CssDialect dialect) {
+    this.parser = dialect.parser(charset);
+  }
+
+  public AstNode parse(String source) {
+    return parser.parse(source);
+  }
+
+  /**
+   * @throws RecognitionException if the edited source can not be parsed
+   */
+  public Result reparse(AstNode tree, String source, TextEdit edit) {
+    String newSource = edit.apply(source);
+    List<AstNode> children = tree.getChildren();
+    int first = -1;
+    int last = -1;
+    for (int i = 0; i < children.size() - 1; i++) {
+      AstNode statement = children.get(i);
+      if (statement.getFromIndex() <= edit.offset() + edit.length() && statement.getToIndex() >= edit.offset()) {
+        if (first < 0) {
+          first = i;
+        }
+        last = i;
+      } else if (first >= 0) {
+        break;
+      }
+    }
+    if (first < 0) {
+      return fullParse(tree, newSource);
+    }
+
+    int from = children.get(first).getFromIndex();
+    int to = children.get(last).getToIndex() + edit.delta();
+    Token firstToken = children.get(first).getToken();
+    int firstLine = firstToken.getLine();
+    AstNode parsed;
+    try {
+      parsed = parser.parse(null, newSource.substring(from, to).toCharArray(), firstLine, firstToken.getColumn(), from);
+    } catch (RecognitionException e) {
+      return fullParse(tree, newSource);
+    }
+    List<AstNode> parsedStatements = Lists.newArrayList(parsed.getChildren().subList(0, parsed.getNumberOfChildren() - 1));
+    if (!parsedStatements.isEmpty() && parsedStatements.get(0).getFromIndex() != from) {
+      return fullParse(tree, newSource);
+    }
+
+    Token nextToken = children.get(last + 1).getToken();
+    int lastLine = nextToken.getLine();
+    int[] end = advance(firstLine, firstToken.getColumn(), newSource, from, to);
+    List<Trivia> carriedTrivia = firstToken.getTrivia();
+    List<Trivia> trailingTrivia = eof(parsed).getTrivia();
+
+    Relocation following = new Relocation(end[0] - lastLine, lastLine, end[1] - nextToken.getColumn(), edit.delta());
+    List<AstNode> followingStatements = Lists.newArrayList();
+    for (int i = last + 1; i < children.size(); i++) {
+      followingStatements.add(following.relocate(children.get(i)));
+    }
+
+    if (parsedStatements.isEmpty()) {
+      List<Trivia> trivia = ImmutableList.<Trivia>builder().addAll(carriedTrivia).addAll(trailingTrivia).build();
+      followingStatements.set(0, Relocation.withTrivia(followingStatements.get(0), trivia));
+    } else {
+      parsedStatements.set(0, Relocation.withTrivia(parsedStatements.get(0), carriedTrivia));
+      followingStatements.set(0, Relocation.withTrivia(followingStatements.get(0), trailingTrivia));
+    }
+
+    List<AstNode> newChildren = Lists.newArrayList();
+    newChildren.addAll(children.subList(0, first));
+    newChildren.addAll(parsedStatements);
+    newChildren.addAll(followingStatements);
+    AstNode root = new AstNode(tree.getType(), tree.getName(), newChildren.get(0).getToken());
+    for (AstNode child : newChildren) {
+      root.addChild(child);
+    }
+    root.setFromIndex(0);
+    root.setToIndex(newSource.length());
+
+    return new Result(root, newSource, children.subList(first, last + 1), parsedStatements, firstLine, lastLine, following.lineDelta());
+  }
+
+  private Result fullParse(AstNode tree, String newSource) {
+    AstNode newTree = parser.parse(newSource);
+    List<AstNode> oldChildren = tree.getChildren();
+    List<AstNode> newChildren = newTree.getChildren();
+    return new Result(newTree, newSource, oldChildren.subList(0, oldChildren.size() - 1), newChildren.subList(0, newChildren.size() - 1),
+      1, eof(tree).getLine(), eof(newTree).getLine() - eof(tree).getLine());
+  }
+
+  private static Token eof(AstNode tree) {
+    return tree.getChildren().get(tree.getNumberOfChildren() - 1).getToken();
+  }
+
+  /**
+   * Line and column reached after reading the given range of the source from the given line and column.
+   */
+  private static int[] advance(int line, int column, String source, int from, int to) {
+    int newLine = line;
+    int newColumn = column;
+    for (int i = from; i < to; i++) {
+      char c = source.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+        newLine++;
+        newColumn = 0;
+      } else {
+        newColumn++;
+      }
+    }
+    return new int[] {newLine, newColumn};
+  }
+
+  public static final class Result {
+
+    private final AstNode tree;
+    private final String source;
+    private final List<AstNode> removed;
+    private final List<AstNode> added;
+    private final int firstLine;
+    private final int lastLine;
+    private final int lineDelta;
+
+    Result(AstNode tree, String source, List<AstNode> removed, List<AstNode> added, int firstLine, int lastLine, int lineDelta) {
+      this.tree = tree;
+      this.source = source;
+      this.removed = ImmutableList.copyOf(removed);
+      this.added = ImmutableList.copyOf(added);
+      this.firstLine = firstLine;
+      this.lastLine = lastLine;
+      this.lineDelta = lineDelta;
+    }
+
+    public AstNode tree() {
+      return tree;
+    }
+
+    public String source() {
+      return source;
+    }
+
+    /**
+     * Top-level statements of the previous tree which have been replaced.
+     */
+    public List<AstNode> removed() {
+      return removed;
+    }
+
+    /**
+     * Top-level statements of the new tree which replace the removed ones.
+     */
+    public List<AstNode> added() {
+      return added;
+    }
+
+    /**
+     * First line of the replaced range, in the previous source.
+     */
+    public int firstLine() {
+      return firstLine;
+    }
+
+    /**
+     * Last line of the replaced range, in the previous source. Following lines have been shifted by {@link #lineDelta()}.
+     */
+    public int lastLine() {
+      return lastLine;
+    }
+
+    public int lineDelta() {
+      return lineDelta;
+    }
+
+  }
+
+}
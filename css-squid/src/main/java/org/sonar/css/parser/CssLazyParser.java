@@ -0,0 +1,49 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.sonar.sslr.api.AstNode;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * Parser of {@link CssDialect#CSS_LAZY_BLOCKS}: the root of its trees keeps the source, so that {@link LazyBlocks}
+ * can parse declarations when they are needed.
+ */
+final class CssLazyParser extends CssFileParser {
+
+  private final CssParser parser;
+  private final CssDialect fullDialect;
+
+  CssLazyParser(Charset charset, CssParser parser, CssDialect fullDialect) {
+    super(parser.getGrammar(), charset);
+    this.parser = parser;
+    this.fullDialect = fullDialect;
+  }
+
+  @Override
+  public AstNode parse(@Nullable File file, char[] chars, int line, int column, int index) {
+    return LazyBlocks.root(parser.parse(file, chars, line, column, index), chars, index, file, fullDialect);
+  }
+
+}
@@ -0,0 +1,562 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+/**
+ * Hand-written CSS tokenizer based on http://www.w3.org/TR/css-syntax-3/#tokenization
+ *
+ * Character classes are looked up in a precomputed table, nothing here relies on java.util.regex.
+ * The static scan methods return the length of the token starting at a given offset, or -1 when
+ * there is no such token, and are shared by the streaming API ({@link #next()}) and by the
+ * parsing expressions of {@link CssGrammar#createLexerGrammar()}.
+ *
+ * Identifier characters follow the definitions of {@link CssGrammar} rather than the specification
+ * (for instance '*' may start an identifier) so that both grammars build the same trees.
+ */
+public final class CssLexer {
+
+  public enum Kind {
+    IDENT,
+    FUNCTION,
+    AT_KEYWORD,
+    HASH,
+    STRING,
+    BAD_STRING,
+    URL,
+    NUMBER,
+    PERCENTAGE,
+    DIMENSION,
+    UNICODE_RANGE,
+    WHITESPACE,
+    COMMENT,
+    BAD_COMMENT,
+    CDO,
+    CDC,
+    COLON,
+    SEMICOLON,
+    COMMA,
+    OPEN_BRACKET,
+    CLOSE_BRACKET,
+    OPEN_PARENTHESIS,
+    CLOSE_PARENTHESIS,
+    OPEN_CURLY_BRACE,
+    CLOSE_CURLY_BRACE,
+    DELIM,
+    EOF
+  }
+
+  static final int NMSTART = 1;
+  static final int NMCHAR = 1 << 1;
+  static final int WHITESPACE = 1 << 2;
+  static final int DIGIT = 1 << 3;
+  static final int HEX = 1 << 4;
+  static final int NOT_DELIM = 1 << 5;
+  static final int URL_CHAR = 1 << 6;
+  static final int NEWLINE = 1 << 7;
+  static final int NONASCII = 1 << 8;
+  static final int NOT_STRING_CHAR = 1 << 9;
+
+  /**
+   * Characters above 0xED are "nonascii", see {@link CssGrammar}.
+   */
+  private static final char LAST_ASCII = 0xED;
+  private static final int[] CLASSES = new int[256];
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      CLASSES[c] |= NMSTART | NMCHAR;
+      CLASSES[Character.toUpperCase(c)] |= NMSTART | NMCHAR;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      CLASSES[c] |= NMCHAR | DIGIT | HEX;
+    }
+    for (char c = 'a'; c <= 'f'; c++) {
+      CLASSES[c] |= HEX;
+    }
+    CLASSES['_'] |= NMSTART | NMCHAR;
+    CLASSES['-'] |= NMCHAR;
+    for (char c : " \t\r\n\f".toCharArray()) {
+      CLASSES[c] |= WHITESPACE | NOT_DELIM;
+    }
+    for (char c : "\r\n\f".toCharArray()) {
+      CLASSES[c] |= NEWLINE | NOT_STRING_CHAR;
+    }
+    CLASSES['\\'] |= NOT_STRING_CHAR;
+    for (char c : "\"'{}()[]:;".toCharArray()) {
+      CLASSES[c] |= NOT_DELIM;
+    }
+    for (char c : "!#$%&".toCharArray()) {
+      CLASSES[c] |= URL_CHAR;
+    }
+    for (char c = '*'; c <= '['; c++) {
+      CLASSES[c] |= URL_CHAR;
+    }
+    for (char c = ']'; c <= '~'; c++) {
+      CLASSES[c] |= URL_CHAR;
+    }
+    for (int c = LAST_ASCII + 1; c < CLASSES.length; c++) {
+      CLASSES[c] |= NONASCII;
+    }
+  }
+
+  private final CharSequence input;
+  private int tokenStart;
+  private int tokenEnd;
+
+  public CssLexer(CharSequence input) {
+    this.input = input;
+  }
+
+  /**
+   * Consumes the next token of the input.
+   * Comments are returned as tokens so that callers can keep them as trivia.
+   */
+  public Kind next() {
+    tokenStart = tokenEnd;
+    int i = tokenStart;
+    if (i >= input.length()) {
+      return Kind.EOF;
+    }
+    char c = input.charAt(i);
+    int length;
+    Kind kind;
+    if ((length = whitespaceLength(input, i)) > 0) {
+      kind = Kind.WHITESPACE;
+    } else if ((length = commentLength(input, i)) > 0) {
+      kind = Kind.COMMENT;
+    } else if (startsWith(input, i, "/*")) {
+      length = input.length() - i;
+      kind = Kind.BAD_COMMENT;
+    } else if (c == '"' || c == '\'') {
+      length = stringLength(input, i);
+      kind = length > 0 ? Kind.STRING : Kind.BAD_STRING;
+      length = length > 0 ? length : badStringLength(input, i);
+    } else if ((length = urlLength(input, i)) > 0) {
+      kind = Kind.URL;
+    } else if ((length = unicodeRangeLength(input, i)) > 0) {
+      kind = Kind.UNICODE_RANGE;
+    } else if ((length = numberLength(input, i)) > 0) {
+      kind = Kind.NUMBER;
+      if (i + length < input.length() && input.charAt(i + length) == '%') {
+        kind = Kind.PERCENTAGE;
+        length++;
+      } else {
+        int unit = identLength(input, i + length);
+        if (unit > 0) {
+          kind = Kind.DIMENSION;
+          length += unit;
+        }
+      }
+    } else if (startsWith(input, i, "<!--")) {
+      length = 4;
+      kind = Kind.CDO;
+    } else if (startsWith(input, i, "-->")) {
+      length = 3;
+      kind = Kind.CDC;
+    } else if ((length = identLength(input, i)) > 0) {
+      kind = Kind.IDENT;
+      if (i + length < input.length() && input.charAt(i + length) == '(') {
+        kind = Kind.FUNCTION;
+        length++;
+      }
+    } else if (c == '@' && identLength(input, i + 1) > 0) {
+      length = 1 + identLength(input, i + 1);
+      kind = Kind.AT_KEYWORD;
+    } else if (c == '#' && nameLength(input, i + 1) > 0) {
+      length = 1 + nameLength(input, i + 1);
+      kind = Kind.HASH;
+    } else {
+      length = 1;
+      kind = punctuator(c);
+      if (kind == Kind.DELIM) {
+        length = delimLength(input, i);
+      }
+    }
+    tokenEnd = i + length;
+    return kind;
+  }
+
+  public int tokenStart() {
+    return tokenStart;
+  }
+
+  public int tokenEnd() {
+    return tokenEnd;
+  }
+
+  public String tokenValue() {
+    return input.subSequence(tokenStart, tokenEnd).toString();
+  }
+
+  private static Kind punctuator(char c) {
+    switch (c) {
+      case ':':
+        return Kind.COLON;
+      case ';':
+        return Kind.SEMICOLON;
+      case ',':
+        return Kind.COMMA;
+      case '[':
+        return Kind.OPEN_BRACKET;
+      case ']':
+        return Kind.CLOSE_BRACKET;
+      case '(':
+        return Kind.OPEN_PARENTHESIS;
+      case ')':
+        return Kind.CLOSE_PARENTHESIS;
+      case '{':
+        return Kind.OPEN_CURLY_BRACE;
+      case '}':
+        return Kind.CLOSE_CURLY_BRACE;
+      default:
+        return Kind.DELIM;
+    }
+  }
+
+  static boolean is(char c, int charClass) {
+    return c < CLASSES.length ? (CLASSES[c] & charClass) != 0 : charClass == NONASCII;
+  }
+
+  static boolean startsWith(CharSequence input, int i, String prefix) {
+    if (i + prefix.length() > input.length()) {
+      return false;
+    }
+    for (int j = 0; j < prefix.length(); j++) {
+      if (input.charAt(i + j) != prefix.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Length of the code point at the given offset: 2 for a surrogate pair, 1 otherwise.
+   */
+  private static int codePointLength(CharSequence input, int i) {
+    return Character.isHighSurrogate(input.charAt(i)) && i + 1 < input.length() && Character.isLowSurrogate(input.charAt(i + 1)) ? 2 : 1;
+  }
+
+  public static int identLength(CharSequence input, int i) {
+    int length = nmstartLength(input, i);
+    if (length < 0) {
+      return -1;
+    }
+    int n;
+    while ((n = nmcharLength(input, i + length)) > 0) {
+      length += n;
+    }
+    return length;
+  }
+
+  public static int nameLength(CharSequence input, int i) {
+    int length = 0;
+    int n;
+    while ((n = nmcharLength(input, i + length)) > 0) {
+      length += n;
+    }
+    return length > 0 ? length : -1;
+  }
+
+  static int nmstartLength(CharSequence input, int i) {
+    if (i >= input.length()) {
+      return -1;
+    }
+    char c = input.charAt(i);
+    if (is(c, NMSTART) || c == '-' || c == '*') {
+      return 1;
+    }
+    return nonasciiOrEscapeLength(input, i);
+  }
+
+  static int nmcharLength(CharSequence input, int i) {
+    if (i >= input.length()) {
+      return -1;
+    }
+    if (is(input.charAt(i), NMCHAR)) {
+      return 1;
+    }
+    return nonasciiOrEscapeLength(input, i);
+  }
+
+  private static int nonasciiOrEscapeLength(CharSequence input, int i) {
+    int length = nonasciiLength(input, i);
+    return length > 0 ? length : escapeLength(input, i);
+  }
+
+  public static int nonasciiLength(CharSequence input, int i) {
+    if (i >= input.length() || !is(input.charAt(i), NONASCII)) {
+      return -1;
+    }
+    return codePointLength(input, i);
+  }
+
+  /**
+   * Either a unicode escape (backslash followed by 1 to 6 lowercase hex digits and an optional whitespace),
+   * or a backslash followed by any character which is neither a newline nor a lowercase hex digit.
+   */
+  public static int escapeLength(CharSequence input, int i) {
+    if (i + 1 >= input.length() || input.charAt(i) != '\\') {
+      return -1;
+    }
+    int length = 1;
+    while (length <= 6 && i + length < input.length() && is(input.charAt(i + length), HEX)) {
+      length++;
+    }
+    if (length > 1) {
+      if (startsWith(input, i + length, "\r\n")) {
+        length += 2;
+      } else if (i + length < input.length() && is(input.charAt(i + length), WHITESPACE)) {
+        length++;
+      }
+      return length;
+    }
+    char c = input.charAt(i + 1);
+    if (is(c, NEWLINE)) {
+      return -1;
+    }
+    return 1 + codePointLength(input, i + 1);
+  }
+
+  public static int whitespaceLength(CharSequence input, int i) {
+    int length = 0;
+    while (i + length < input.length() && is(input.charAt(i + length), WHITESPACE)) {
+      length++;
+    }
+    return length > 0 ? length : -1;
+  }
+
+  /**
+   * Any character but quotes, braces, brackets, parentheses, colon, semicolon and whitespaces.
+   */
+  public static int delimLength(CharSequence input, int i) {
+    if (i >= input.length() || is(input.charAt(i), NOT_DELIM)) {
+      return -1;
+    }
+    return codePointLength(input, i);
+  }
+
+  /**
+   * Optional sign followed by digits, with an optional fractional part.
+   */
+  public static int numberLength(CharSequence input, int i) {
+    int length = 0;
+    if (i < input.length() && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+      length++;
+    }
+    int digits = digitsLength(input, i + length);
+    length += digits;
+    if (i + length + 1 < input.length() && input.charAt(i + length) == '.' && is(input.charAt(i + length + 1), DIGIT)) {
+      return length + 1 + digitsLength(input, i + length + 1);
+    }
+    return digits > 0 ? length : -1;
+  }
+
+  private static int digitsLength(CharSequence input, int i) {
+    int length = 0;
+    while (i + length < input.length() && is(input.charAt(i + length), DIGIT)) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * "u+" followed by 1 to 6 lowercase hex digits or question marks, and an optional "-" with 1 to 6 lowercase hex digits.
+   */
+  public static int unicodeRangeLength(CharSequence input, int i) {
+    if (!startsWith(input, i, "u+")) {
+      return -1;
+    }
+    int length = 2;
+    while (length < 8 && i + length < input.length() && (is(input.charAt(i + length), HEX) || input.charAt(i + length) == '?')) {
+      length++;
+    }
+    if (length == 2) {
+      return -1;
+    }
+    if (i + length < input.length() && input.charAt(i + length) == '-') {
+      int end = length + 1;
+      while (end - length <= 6 && i + end < input.length() && is(input.charAt(i + end), HEX)) {
+        end++;
+      }
+      if (end > length + 1) {
+        length = end;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Characters allowed in unquoted url() content, escapes and nonascii characters aside.
+   */
+  public static int urlCharsLength(CharSequence input, int i) {
+    int length = 0;
+    while (i + length < input.length() && is(input.charAt(i + length), URL_CHAR)) {
+      length++;
+    }
+    return length > 0 ? length : -1;
+  }
+
+  /**
+   * Unquoted or quoted url() token, including the closing parenthesis.
+   */
+  public static int urlLength(CharSequence input, int i) {
+    if (!startsWith(input, i, "url(")) {
+      return -1;
+    }
+    int length = 4 + Math.max(whitespaceLength(input, i + 4), 0);
+    int string = stringLength(input, i + length);
+    if (string > 0) {
+      length += string;
+    } else {
+      int n;
+      while ((n = urlContentCharLength(input, i + length)) > 0) {
+        length += n;
+      }
+    }
+    length += Math.max(whitespaceLength(input, i + length), 0);
+    return i + length < input.length() && input.charAt(i + length) == ')' ? length + 1 : -1;
+  }
+
+  private static int urlContentCharLength(CharSequence input, int i) {
+    int length = urlCharsLength(input, i);
+    if (length > 0) {
+      return length;
+    }
+    return nonasciiOrEscapeLength(input, i);
+  }
+
+  /**
+   * Run of characters of a declaration value, as matched by {@link CssGrammar#createLazyBlockGrammar()}: it stops before
+   * a whitespace, a quote, a brace, a semicolon or a comment. Unquoted url() tokens without whitespaces are included as a
+   * whole, so that they may contain comment starts and semicolons.
+   */
+  public static int rawValueLength(CharSequence input, int i) {
+    int length = 0;
+    while (i + length < input.length()) {
+      int j = i + length;
+      char c = input.charAt(j);
+      int n;
+      if (is(c, WHITESPACE) || c == '"' || c == '\'' || c == '{' || c == '}' || c == ';'
+        || (c == '/' && startsWith(input, j, "/*")) || (c == '<' && commentLength(input, j) > 0)) {
+        break;
+      } else if (c == 'u' && (n = unquotedUrlLength(input, j)) > 0) {
+        length += n;
+      } else if (c == '\\' && (n = escapeLength(input, j)) > 0) {
+        length += n;
+      } else {
+        length++;
+      }
+    }
+    return length > 0 ? length : -1;
+  }
+
+  private static int unquotedUrlLength(CharSequence input, int i) {
+    if (!startsWith(input, i, "url(") || i + 4 >= input.length() || is(input.charAt(i + 4), WHITESPACE) || stringLength(input, i + 4) > 0) {
+      return -1;
+    }
+    int length = urlLength(input, i);
+    return length > 0 && !is(input.charAt(i + length - 2), WHITESPACE) ? length : -1;
+  }
+
+  /**
+   * Quoted string, escaped newlines included. Unterminated strings do not match.
+   */
+  public static int stringLength(CharSequence input, int i) {
+    if (i >= input.length()) {
+      return -1;
+    }
+    char quote = input.charAt(i);
+    if (quote != '"' && quote != '\'') {
+      return -1;
+    }
+    int length = 1;
+    while (i + length < input.length()) {
+      char c = input.charAt(i + length);
+      if (c == quote) {
+        return length + 1;
+      } else if (!is(c, NOT_STRING_CHAR)) {
+        length++;
+      } else if (c == '\\') {
+        int escaped = escapedNewlineLength(input, i + length);
+        if (escaped < 0) {
+          escaped = escapeLength(input, i + length);
+        }
+        if (escaped < 0) {
+          return -1;
+        }
+        length += escaped;
+      } else {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private static int badStringLength(CharSequence input, int i) {
+    int length = 1;
+    while (i + length < input.length() && !is(input.charAt(i + length), NEWLINE)) {
+      length++;
+    }
+    return length;
+  }
+
+  private static int escapedNewlineLength(CharSequence input, int i) {
+    if (startsWith(input, i, "\\\r\n")) {
+      return 3;
+    }
+    return i + 1 < input.length() && input.charAt(i) == '\\' && is(input.charAt(i + 1), NEWLINE) ? 2 : -1;
+  }
+
+  /**
+   * Either a C-style comment or an HTML comment. Unterminated comments do not match.
+   */
+  public static int commentLength(CharSequence input, int i) {
+    if (startsWith(input, i, "/*")) {
+      int end = indexOf(input, "*/", i + 2);
+      return end < 0 ? -1 : end + 2 - i;
+    } else if (startsWith(input, i, "<!--")) {
+      int end = indexOf(input, "-->", i + 4);
+      return end < 0 ? -1 : end + 3 - i;
+    }
+    return -1;
+  }
+
+  /**
+   * C-style comment which is never closed: it runs until the end of the input.
+   */
+  public static int badCommentLength(CharSequence input, int i) {
+    if (startsWith(input, i, "/*") && indexOf(input, "*/", i + 2) < 0) {
+      return input.length() - i;
+    }
+    return -1;
+  }
+
+  static int indexOf(CharSequence input, String target, int from) {
+    char first = target.charAt(0);
+    int max = input.length() - target.length();
+    for (int i = from; i <= max; i++) {
+      if (input.charAt(i) == first && startsWith(input, i, target)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
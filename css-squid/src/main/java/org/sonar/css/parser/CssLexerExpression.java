@@ -0,0 +1,137 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.sonar.sslr.api.RecognitionException;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+
+/**
+ * Parsing expression delegating to one of the {@link CssLexer} scanners instead of a regular expression.
+ * All scanners run in linear time and never backtrack.
+ */
+final class CssLexerExpression extends NativeExpression implements Matcher {
+
+  enum Scanner {
+    IDENT,
+    NAME,
+    NONASCII,
+    ESCAPE,
+    WHITESPACE,
+    OPTIONAL_WHITESPACE,
+    DELIM,
+    NUMBER,
+    UNICODE_RANGE,
+    URL_CHARS,
+    STRING,
+    COMMENT,
+    BAD_COMMENT,
+    RAW_VALUE
+  }
+
+  private final Scanner scanner;
+
+  CssLexerExpression(Scanner scanner) {
+    this.scanner = scanner;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    ParseDeadline.check();
+    int length = scan(machine);
+    if (length >= 0) {
+      machine.createLeafNode(this, length);
+      machine.jump(1);
+    } else {
+      machine.backtrack();
+    }
+  }
+
+  private int scan(Machine machine) {
+    if (scanner == Scanner.COMMENT) {
+      return comment(machine);
+    }
+    return scan((CharSequence) machine);
+  }
+
+  /**
+   * An unterminated C-style comment would swallow the rest of the file: fail fast instead of letting
+   * the parser try every alternative before reporting an error at the comment start.
+   */
+  private static int comment(Machine machine) {
+    int length = CssLexer.commentLength(machine, 0);
+    if (length < 0 && CssLexer.badCommentLength(machine, 0) >= 0) {
+      int offset = machine.getIndex();
+      int line = 1;
+      int column = 1;
+      for (int i = -offset; i < 0; i++) {
+        char c = machine.charAt(i);
+        if (c == '\n' || (c == '\r' && machine.charAt(i + 1) != '\n')) {
+          line++;
+          column = 1;
+        } else {
+          column++;
+        }
+      }
+      throw new RecognitionException(line, "Parse error at line " + line + " column " + column + ": unterminated comment");
+    }
+    return length;
+  }
+
+  private int scan(CharSequence input) {
+    switch (scanner) {
+      case IDENT:
+        return CssLexer.identLength(input, 0);
+      case NAME:
+        return CssLexer.nameLength(input, 0);
+      case NONASCII:
+        return CssLexer.nonasciiLength(input, 0);
+      case ESCAPE:
+        return CssLexer.escapeLength(input, 0);
+      case WHITESPACE:
+        return CssLexer.whitespaceLength(input, 0);
+      case OPTIONAL_WHITESPACE:
+        return Math.max(CssLexer.whitespaceLength(input, 0), 0);
+      case DELIM:
+        return CssLexer.delimLength(input, 0);
+      case NUMBER:
+        return CssLexer.numberLength(input, 0);
+      case UNICODE_RANGE:
+        return CssLexer.unicodeRangeLength(input, 0);
+      case URL_CHARS:
+        return CssLexer.urlCharsLength(input, 0);
+      case STRING:
+        return CssLexer.stringLength(input, 0);
+      case BAD_COMMENT:
+        return CssLexer.badCommentLength(input, 0);
+      case RAW_VALUE:
+        return CssLexer.rawValueLength(input, 0);
+      default:
+        throw new IllegalStateException("Unknown scanner " + scanner);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Lexer " + scanner;
+  }
+
+}
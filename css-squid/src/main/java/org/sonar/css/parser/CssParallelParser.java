@@ -0,0 +1,269 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Trivia;
+import org.sonar.css.parser.CssLexer.Kind;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parser which splits a large source at top-level statements, and parses the parts concurrently on a {@link ForkJoinPool}.
+ * Each part is parsed at its position in the source, so the trees of the parts are stitched into one tree identical to
+ * the one of a sequential parse: the comments which follow the last statement of a part are moved to the first token of
+ * the next one.
+ * <p>
+ * Boundaries are found with {@link CssLexer}, so braces and semicolons in strings, comments and urls are ignored.
+ * The source is parsed sequentially when it is too small, when the boundaries are ambiguous (unterminated string or
+ * comment, unbalanced brace, SCSS), or when a part can not be parsed on its own.
+ */
+final class CssParallelParser extends CssFileParser {
+
+  /**
+   * Number of parts per thread of the pool: parts do not take the same time to parse.
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int INITIAL_CHUNKS = 16;
+
+  private final CssDialect dialect;
+  private final ForkJoinPool pool;
+  private final int minChunkLength;
+
+  CssParallelParser(CssDialect dialect, Charset charset, ForkJoinPool pool, int minChunkLength) {
+    super(dialect.grammar(), charset);
+    this.dialect = dialect;
+    this.pool = pool;
+    this.minChunkLength = minChunkLength;
+  }
+
+  static ForkJoinPool sharedPool() {
+    return SharedPool.POOL;
+  }
+
+  @Override
+  public AstNode parse(@Nullable File file, char[] chars, int line, int column, int index) {
+    int[] offsets = null;
+    if (dialect.isSplittable() && chars.length >= 2 * minChunkLength) {
+      int chunkLength = Math.max(minChunkLength, chars.length / (pool.getParallelism() * CHUNKS_PER_THREAD));
+      offsets = split(CharBuffer.wrap(chars), chunkLength);
+    }
+    if (offsets != null && offsets.length > 1) {
+      AstNode[] trees = new AstNode[offsets.length];
+      int[][] origins = origins(chars, offsets, line, column);
+      try {
+        pool.invoke(new ChunkTask(file, chars, offsets, origins, index, trees, 0, offsets.length, ParseDeadline.current()));
+        return stitch(trees, chars, index);
+      } catch (RecognitionException e) {
+        // A part does not parse on its own: the sequential parse reports the error, if any, with its actual position
+      }
+    }
+    return dialect.newParser(charset()).parse(file, chars, line, column, index);
+  }
+
+  /**
+   * Offsets at which the source is split. The first one is 0, each other one is the start of a top-level statement,
+   * after the whitespaces and comments which follow the previous statement. Parts are at least {@code minLength} long.
+   *
+   * @return null if the boundaries of the statements are ambiguous
+   */
+  @Nullable
+  static int[] split(CharSequence input, int minLength) {
+    CssLexer lexer = new CssLexer(input);
+    int[] offsets = new int[INITIAL_CHUNKS];
+    int count = 1;
+    int braces = 0;
+    int nesting = 0;
+    boolean boundary = false;
+    Kind kind;
+    while ((kind = lexer.next()) != Kind.EOF) {
+      if (kind == Kind.WHITESPACE || kind == Kind.COMMENT) {
+        continue;
+      }
+      if (kind == Kind.BAD_STRING || kind == Kind.BAD_COMMENT) {
+        return null;
+      }
+      if (boundary && lexer.tokenStart() - offsets[count - 1] >= minLength) {
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = lexer.tokenStart();
+      }
+      boundary = false;
+      switch (kind) {
+        case OPEN_CURLY_BRACE:
+          braces++;
+          break;
+        case CLOSE_CURLY_BRACE:
+          if (braces == 0) {
+            return null;
+          }
+          braces--;
+          boundary = braces == 0 && nesting == 0;
+          break;
+        case SEMICOLON:
+          boundary = braces == 0 && nesting == 0;
+          break;
+        case FUNCTION:
+        case OPEN_PARENTHESIS:
+        case OPEN_BRACKET:
+          nesting++;
+          break;
+        case CLOSE_PARENTHESIS:
+        case CLOSE_BRACKET:
+          if (nesting == 0) {
+            return null;
+          }
+          nesting--;
+          break;
+        default:
+          break;
+      }
+    }
+    return braces == 0 && nesting == 0 ? Arrays.copyOf(offsets, count) : null;
+  }
+
+  /**
+   * Line and column of the first character of each part, the column being relative to the origin on its first line.
+   */
+  private static int[][] origins(char[] chars, int[] offsets, int line, int column) {
+    int[][] origins = new int[offsets.length][];
+    int currentLine = line;
+    int lineStart = -column;
+    int cursor = 0;
+    for (int i = 0; i < offsets.length; i++) {
+      for (; cursor < offsets[i]; cursor++) {
+        char c = chars[cursor];
+        if (c == '\n' || (c == '\r' && (cursor + 1 == chars.length || chars[cursor + 1] != '\n'))) {
+          currentLine++;
+          lineStart = cursor + 1;
+        }
+      }
+      origins[i] = new int[] {currentLine, offsets[i] - lineStart};
+    }
+    return origins;
+  }
+
+  private static AstNode stitch(AstNode[] trees, char[] chars, int index) {
+    List<AstNode> statements = Lists.newArrayList();
+    List<Trivia> pendingTrivia = Lists.newArrayList();
+    AstNode eof = null;
+    for (AstNode tree : trees) {
+      List<AstNode> children = tree.getChildren();
+      List<AstNode> chunkStatements = Lists.newArrayList(children.subList(0, children.size() - 1));
+      if (!chunkStatements.isEmpty() && !pendingTrivia.isEmpty()) {
+        AstNode first = chunkStatements.get(0);
+        pendingTrivia.addAll(first.getToken().getTrivia());
+        chunkStatements.set(0, Relocation.withTrivia(first, pendingTrivia));
+        pendingTrivia = Lists.newArrayList();
+      }
+      eof = children.get(children.size() - 1);
+      pendingTrivia.addAll(eof.getToken().getTrivia());
+      statements.addAll(chunkStatements);
+    }
+    if (pendingTrivia.size() != eof.getToken().getTrivia().size()) {
+      eof = Relocation.withTrivia(eof, pendingTrivia);
+    }
+
+    AstNode root = new AstNode(trees[0].getType(), trees[0].getName(), statements.isEmpty() ? eof.getToken() : statements.get(0).getToken());
+    for (AstNode statement : statements) {
+      root.addChild(statement);
+    }
+    root.addChild(eof);
+    root.setFromIndex(index);
+    root.setToIndex(index + chars.length);
+    return root;
+  }
+
+  /**
+   * Parses the parts of a range of chunks, splitting the range in halves until one part is left.
+   */
+  private final class ChunkTask extends RecursiveAction {
+
+    @Nullable
+    private final File file;
+    private final char[] chars;
+    private final int[] offsets;
+    private final int[][] origins;
+    private final int index;
+    private final AstNode[] trees;
+    private final int from;
+    private final int to;
+    @Nullable
+    private final ParseDeadline deadline;
+
+    ChunkTask(@Nullable File file, char[] chars, int[] offsets, int[][] origins, int index, AstNode[] trees, int from, int to,
+      @Nullable ParseDeadline deadline) {
+      this.file = file;
+      this.chars = chars;
+      this.offsets = offsets;
+      this.origins = origins;
+      this.index = index;
+      this.trees = trees;
+      this.from = from;
+      this.to = to;
+      this.deadline = deadline;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        int end = to < offsets.length ? offsets[to] : chars.length;
+        ParseDeadline previous = ParseDeadline.current();
+        ParseDeadline.set(deadline);
+        try {
+          char[] chunk = Arrays.copyOfRange(chars, offsets[from], end);
+          trees[from] = dialect.newParser(charset()).parse(file, chunk, origins[from][0], origins[from][1], index + offsets[from]);
+        } finally {
+          ParseDeadline.set(previous);
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+          new ChunkTask(file, chars, offsets, origins, index, trees, from, middle, deadline),
+          new ChunkTask(file, chars, offsets, origins, index, trees, middle, to, deadline));
+      }
+    }
+
+  }
+
+  private static final class SharedPool {
+
+    /**
+     * Worker threads of a {@link ForkJoinPool} are daemon threads: the pool does not need to be shut down.
+     */
+    static final ForkJoinPool POOL = new ForkJoinPool();
+
+    private SharedPool() {
+    }
+
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParseError;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+import org.sonar.sslr.parser.ParsingResult;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * Same as {@link org.sonar.sslr.parser.ParserAdapter}, but on a grammar which has already been compiled, see {@link CssDialect},
+ * and with a tree created without recursion, see {@link CssAstCreator}.
+ */
+final class CssParser extends CssFileParser {
+
+  private final CompiledGrammar compiledGrammar;
+
+  CssParser(Charset charset, LexerlessGrammar grammar, CompiledGrammar compiledGrammar) {
+    super(grammar, charset);
+    this.compiledGrammar = compiledGrammar;
+  }
+
+  @Override
+  public AstNode parse(@Nullable File file, char[] chars, int line, int column, int index) {
+    return CssAstCreator.create(match(chars, compiledGrammar), chars, file, line, column, index);
+  }
+
+  /**
+   * @throws RecognitionException if the input does not match the grammar
+   */
+  static ParsingResult match(char[] chars, CompiledGrammar compiledGrammar) {
+    ParsingResult result = Machine.parse(chars, compiledGrammar);
+    if (result.isMatched()) {
+      return result;
+    }
+    ParseError parseError = result.getParseError();
+    int line = parseError.getInputBuffer().getPosition(parseError.getErrorIndex()).getLine();
+    throw new RecognitionException(line, new ParseErrorFormatter().format(parseError));
+  }
+
+}
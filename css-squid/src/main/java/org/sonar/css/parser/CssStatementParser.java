@@ -0,0 +1,75 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a range of a source which holds whole top-level statements, for instance the range reported by
+ * {@link CssEventParser} between a start event and the matching end event.
+ * Nodes and tokens are positioned as if the whole source had been parsed.
+ */
+public final class CssStatementParser {
+
+  private static final Pattern POSITION = Pattern.compile("Parse error at line (\\d+) column (\\d+)");
+
+  private final CssFileParser parser;
+
+  public CssStatementParser(Charset charset, CssDialect dialect) {
+    this.parser = dialect.parser(charset);
+  }
+
+  /**
+   * @param line line of the first character of the range, starting at 1
+   * @param column column of the first character of the range, starting at 0
+   * @return the statements of the range
+   * @throws RecognitionException if the range can not be parsed, with the line of the error in the whole source
+   */
+  public List<AstNode> parse(CharSequence source, int from, int to, int line, int column) {
+    AstNode parsed;
+    try {
+      parsed = parser.parse(null, source.subSequence(from, to).toString().toCharArray(), line, column, from);
+    } catch (RecognitionException e) {
+      throw relocate(e, line, column);
+    }
+    return parsed.getChildren().subList(0, parsed.getNumberOfChildren() - 1);
+  }
+
+  /**
+   * The excerpt of the source which follows the position in the message is dropped, as its lines are numbered from the
+   * beginning of the range.
+   */
+  private static RecognitionException relocate(RecognitionException e, int line, int column) {
+    int errorLine = e.getLine() + line - 1;
+    Matcher matcher = POSITION.matcher(e.getMessage());
+    if (!matcher.lookingAt()) {
+      return new RecognitionException(errorLine, e.getMessage(), e);
+    }
+    int errorColumn = Integer.parseInt(matcher.group(2)) + (e.getLine() == 1 ? column : 0);
+    return new RecognitionException(errorLine, "Parse error at line " + errorLine + " column " + errorColumn, e);
+  }
+
+}
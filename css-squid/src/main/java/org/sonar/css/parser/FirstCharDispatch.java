@@ -0,0 +1,222 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.ParsingExpression;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered choice which only tries the alternatives that can start with the next character of the input.
+ * <p>
+ * Each alternative is declared with the characters it may start with. For every character the candidates
+ * are kept in declaration order, so the result is the same as the one of the plain ordered choice as long as
+ * the declared characters are a superset of the real ones.
+ */
+final class FirstCharDispatch implements ParsingExpression {
+
+  /**
+   * Characters an alternative may start with, in addition to explicit ones.
+   */
+  enum FirstChar {
+    IDENT_START {
+      @Override
+      boolean accepts(int c) {
+        return c == NON_LATIN1 || (c != END_OF_INPUT && (CssLexer.is((char) c, CssLexer.NMSTART | CssLexer.NONASCII) || c == '-' || c == '*' || c == '\\'));
+      }
+    },
+    NUMBER_START {
+      @Override
+      boolean accepts(int c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '+' || c == '-';
+      }
+    },
+    DELIM {
+      @Override
+      boolean accepts(int c) {
+        return c == NON_LATIN1 || (c != END_OF_INPUT && !CssLexer.is((char) c, CssLexer.NOT_DELIM));
+      }
+    },
+    ANY_CHAR {
+      @Override
+      boolean accepts(int c) {
+        return c != END_OF_INPUT;
+      }
+    };
+
+    abstract boolean accepts(int c);
+  }
+
+  /**
+   * Bucket of any character above 0xFF: all of them are "nonascii" for the grammar.
+   */
+  private static final int NON_LATIN1 = 256;
+  private static final int END_OF_INPUT = 257;
+  private static final int BUCKETS = 258;
+
+  private final LexerlessGrammarBuilder b;
+  private final boolean dispatch;
+  private final List<Object> alternatives = Lists.newArrayList();
+  private final List<String> chars = Lists.newArrayList();
+  private final List<FirstChar[]> classes = Lists.newArrayList();
+
+  private FirstCharDispatch(LexerlessGrammarBuilder b, boolean dispatch) {
+    this.b = b;
+    this.dispatch = dispatch;
+  }
+
+  static FirstCharDispatch firstOf(LexerlessGrammarBuilder b) {
+    return new FirstCharDispatch(b, true);
+  }
+
+  /**
+   * When dispatch is disabled, all the alternatives are tried whatever the next character is,
+   * exactly like with {@link LexerlessGrammarBuilder#firstOf}.
+   */
+  static FirstCharDispatch firstOf(LexerlessGrammarBuilder b, boolean dispatch) {
+    return new FirstCharDispatch(b, dispatch);
+  }
+
+  /**
+   * Adds an alternative which may only start with one of the given characters or character classes.
+   */
+  FirstCharDispatch or(Object alternative, String firstChars, FirstChar... firstClasses) {
+    alternatives.add(alternative);
+    chars.add(firstChars);
+    classes.add(firstClasses);
+    return this;
+  }
+
+  FirstCharDispatch or(Object alternative, FirstChar... firstClasses) {
+    return or(alternative, "", firstClasses);
+  }
+
+  @Override
+  public Instruction[] compile(CompilationHandler compiler) {
+    Map<List<Integer>, Integer> offsets = Maps.newLinkedHashMap();
+    int[] table = new int[BUCKETS];
+    List<Instruction[]> blocks = Lists.newArrayList();
+    int size = 1;
+    for (int c = 0; c < BUCKETS; c++) {
+      List<Integer> candidates = candidates(c);
+      Integer offset = offsets.get(candidates);
+      if (offset == null) {
+        offset = size;
+        offsets.put(candidates, offset);
+        Instruction[] block = compiler.compile(choice(candidates));
+        blocks.add(block);
+        size += block.length + 1;
+      }
+      table[c] = offset;
+    }
+
+    Instruction[] result = new Instruction[size];
+    result[0] = new DispatchInstruction(table);
+    int index = 1;
+    for (Instruction[] block : blocks) {
+      System.arraycopy(block, 0, result, index, block.length);
+      index += block.length;
+      result[index] = Instruction.jump(size - index);
+      index++;
+    }
+    return result;
+  }
+
+  private List<Integer> candidates(int c) {
+    List<Integer> candidates = Lists.newArrayList();
+    for (int i = 0; i < alternatives.size(); i++) {
+      if (startsWith(i, c)) {
+        candidates.add(i);
+      }
+    }
+    return candidates;
+  }
+
+  private boolean startsWith(int alternative, int c) {
+    if (!dispatch) {
+      return true;
+    }
+    if (c < NON_LATIN1 && chars.get(alternative).indexOf(c) >= 0) {
+      return true;
+    }
+    for (FirstChar firstChar : classes.get(alternative)) {
+      if (firstChar.accepts(c)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ParsingExpression choice(List<Integer> candidates) {
+    if (candidates.isEmpty()) {
+      return (ParsingExpression) b.nothing();
+    }
+    Object first = alternatives.get(candidates.get(0));
+    if (candidates.size() == 1) {
+      return (ParsingExpression) b.firstOf(first, b.nothing());
+    }
+    Object[] rest = new Object[candidates.size() - 2];
+    for (int i = 2; i < candidates.size(); i++) {
+      rest[i - 2] = alternatives.get(candidates.get(i));
+    }
+    return (ParsingExpression) b.firstOf(first, alternatives.get(candidates.get(1)), rest);
+  }
+
+  @Override
+  public String toString() {
+    return "FirstCharDispatch[" + Joiner.on(", ").join(alternatives) + "]";
+  }
+
+  private static final class DispatchInstruction extends Instruction {
+
+    private final int[] table;
+
+    DispatchInstruction(int[] table) {
+      this.table = table;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      int c;
+      if (machine.length() == 0) {
+        c = END_OF_INPUT;
+      } else {
+        c = Math.min(machine.charAt(0), NON_LATIN1);
+      }
+      machine.jump(table[c]);
+    }
+
+    @Override
+    public String toString() {
+      return "Dispatch " + Arrays.toString(table);
+    }
+
+  }
+
+}
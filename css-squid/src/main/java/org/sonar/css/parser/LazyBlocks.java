@@ -0,0 +1,136 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Declaration blocks of the trees of {@link CssDialect#CSS_LAZY_BLOCKS}.
+ * <p>
+ * Such trees are built without parsing declarations: each {@link CssGrammar#SUP_DECLARATION} holds
+ * {@link CssGrammar#lazyDeclaration}s, and the source of the tree is kept by its root.
+ * {@link #expand(AstNode)} parses the declarations of a node with the full grammar, and replaces the children of each
+ * of its {@link CssGrammar#SUP_DECLARATION} in place, so that the expanded tree is the one of a full parse.
+ * It can be called while the tree is walked: the walker visits the children of a node after the node itself.
+ */
+public final class LazyBlocks {
+
+  private LazyBlocks() {
+  }
+
+  /**
+   * @return whether the given node, or one of its descendants, holds declarations which have not been parsed yet
+   */
+  public static boolean isLazy(AstNode node) {
+    return node.is(CssGrammar.lazyDeclaration) || node.hasDescendant(CssGrammar.lazyDeclaration);
+  }
+
+  /**
+   * Parses the declarations of the given node and of its descendants, if they have not been parsed yet.
+   *
+   * @return the given node
+   * @throws com.sonar.sslr.api.RecognitionException if declarations do not match the full grammar
+   */
+  public static AstNode expand(AstNode node) {
+    Root root = root(node);
+    if (root == null) {
+      return node;
+    }
+    List<AstNode> blocks = Lists.newArrayList();
+    if (node.is(CssGrammar.SUP_DECLARATION)) {
+      blocks.add(node);
+    }
+    blocks.addAll(node.getDescendants(CssGrammar.SUP_DECLARATION));
+    for (AstNode block : blocks) {
+      if (block.hasDirectChildren(CssGrammar.lazyDeclaration)) {
+        expandBlock(root, block);
+      }
+    }
+    return node;
+  }
+
+  private static void expandBlock(Root root, AstNode block) {
+    Token first = block.getToken();
+    int from = block.getFromIndex();
+    char[] chars = Arrays.copyOfRange(root.source, from - root.offset, block.getToIndex() - root.offset);
+    AstNode expanded = CssAstCreator.create(CssParser.match(chars, root.dialect.declarationsGrammar()), chars, root.file,
+      first.getLine(), first.getColumn(), from);
+
+    List<AstNode> children = Lists.newArrayList(expanded.getChildren());
+    children.set(0, Relocation.withTrivia(children.get(0), first.getTrivia()));
+
+    block.getChildren().clear();
+    for (AstNode child : children) {
+      block.addChild(child);
+    }
+  }
+
+  @Nullable
+  private static Root root(AstNode node) {
+    AstNode root = node;
+    while (root.getParent() != null) {
+      root = root.getParent();
+    }
+    return root instanceof Root ? (Root) root : null;
+  }
+
+  /**
+   * @param offset index of the first character of the source, see {@link CssFileParser#parse(File, char[], int, int, int)}
+   */
+  static AstNode root(AstNode tree, char[] source, int offset, @Nullable File file, CssDialect dialect) {
+    Root root = new Root(tree, source, offset, file, dialect);
+    for (AstNode child : Lists.newArrayList(tree.getChildren())) {
+      root.addChild(child);
+    }
+    root.setFromIndex(tree.getFromIndex());
+    root.setToIndex(tree.getToIndex());
+    return root;
+  }
+
+  /**
+   * Root of a tree with lazy blocks, which keeps the source of the tree.
+   */
+  private static final class Root extends AstNode {
+
+    private final char[] source;
+    private final int offset;
+    @Nullable
+    private final File file;
+    private final CssDialect dialect;
+
+    Root(AstNode tree, char[] source, int offset, @Nullable File file, CssDialect dialect) {
+      super(tree.getType(), tree.getName(), tree.getToken());
+      this.source = source;
+      this.offset = offset;
+      this.file = file;
+      this.dialect = dialect;
+    }
+
+  }
+
+}
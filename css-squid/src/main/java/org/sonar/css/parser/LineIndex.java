@@ -0,0 +1,100 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+
+/**
+ * Lines of a source, to compute the positions of tokens as {@link org.sonar.sslr.internal.text.LocatedText}.
+ */
+final class LineIndex {
+
+  private static final URI FAKE_URI = fakeUri();
+
+  private final int[] lineStarts;
+
+  LineIndex(char[] source) {
+    this.lineStarts = lineStarts(source);
+  }
+
+  /**
+   * Line of the given index, from {@code 1}.
+   */
+  int line(int index) {
+    int i = Arrays.binarySearch(lineStarts, index);
+    return i >= 0 ? i + 2 : -i;
+  }
+
+  /**
+   * Column of the given index, from {@code 0} as {@link com.sonar.sslr.api.Token#getColumn()}.
+   */
+  int column(int index) {
+    return index - lineStart(line(index));
+  }
+
+  private int lineStart(int line) {
+    return line == 1 ? 0 : lineStarts[line - 2];
+  }
+
+  /**
+   * URI of the tokens of the given file: sources which are not read from a file get the same URI as with SSLR.
+   */
+  static URI uri(@Nullable File file) {
+    return file == null ? FAKE_URI : file.toURI();
+  }
+
+  /**
+   * Indexes following the ends of lines.
+   */
+  private static int[] lineStarts(char[] source) {
+    int count = 0;
+    for (int i = 0; i < source.length; i++) {
+      if (isEndOfLine(source, i)) {
+        count++;
+      }
+    }
+    int[] result = new int[count];
+    count = 0;
+    for (int i = 0; i < source.length; i++) {
+      if (isEndOfLine(source, i)) {
+        result[count++] = i + 1;
+      }
+    }
+    return result;
+  }
+
+  private static boolean isEndOfLine(char[] source, int i) {
+    return source[i] == '\n' || (source[i] == '\r' && (i + 1 == source.length || source[i + 1] != '\n'));
+  }
+
+  private static URI fakeUri() {
+    try {
+      return new URI("tests://unittest");
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time limit of the parses of the current thread. The parsing expressions of the grammars check it while they match
+ * tokens, so that a parse which takes too long is abandoned with a {@link ParseTimeoutException}.
+ */
+public final class ParseDeadline {
+
+  /**
+   * Parsing expressions are matched millions of times per second: the clock is only read every this number of matches.
+   */
+  private static final int MATCHES_PER_CHECK = 256;
+
+  private static final ThreadLocal<ParseDeadline> CURRENT = new ThreadLocal<ParseDeadline>();
+
+  private final long start;
+  private final long deadline;
+  private int matches;
+
+  private ParseDeadline(long start, long deadline) {
+    this.start = start;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Limits the parses of the current thread to the given number of milliseconds from now, until {@link #clear()}.
+   */
+  public static void start(long budgetMillis) {
+    long now = System.nanoTime();
+    CURRENT.set(new ParseDeadline(now, now + TimeUnit.MILLISECONDS.toNanos(budgetMillis)));
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Deadline of the current thread, to be given to the threads which parse parts of the same source.
+   */
+  @Nullable
+  static ParseDeadline current() {
+    return CURRENT.get();
+  }
+
+  static void set(@Nullable ParseDeadline deadline) {
+    if (deadline == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(deadline);
+    }
+  }
+
+  /**
+   * @throws ParseTimeoutException if the deadline of the current thread has passed
+   */
+  static void check() {
+    ParseDeadline current = CURRENT.get();
+    // matches is not synchronized: threads which share a deadline may only read the clock a bit later
+    if (current != null && ++current.matches % MATCHES_PER_CHECK == 0) {
+      long now = System.nanoTime();
+      if (now - current.deadline > 0) {
+        throw new ParseTimeoutException(TimeUnit.NANOSECONDS.toMillis(now - current.start));
+      }
+    }
+  }
+
+}
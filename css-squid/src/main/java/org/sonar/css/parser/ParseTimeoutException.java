@@ -17,37 +17,24 @@
  * License along with this program; if not, write to the Free Software
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
  */
-package org.sonar.css.checks.utils;
+package org.sonar.css.parser;
 
-public class CssP {
-
-  String name;
-
-  String vendor;
-
-  private CssP() {
+/**
+ * Thrown by a parser when its {@link ParseDeadline} has passed.
+ */
+public class ParseTimeoutException extends RuntimeException {
 
-  }
+  private static final long serialVersionUID = 1L;
 
-  public static CssP factory(String property) {
-    if (CssProperties.isVendor(property)) {
-      CssP ret = new CssP();
-      ret.vendor = property.replaceAll("(-)(.*?)(-.*)", "$2");
-      ret.name = property.replaceAll("(-.*?-)(.*)", "$2");
-      return ret;
-    }
-    CssP ret = new CssP();
-    ret.vendor = null;
-    ret.name = property;
-    return ret;
-  }
+  private final long elapsedMillis;
 
-  public String getName() {
-    return name;
+  public ParseTimeoutException(long elapsedMillis) {
+    super("Parse abandoned after " + elapsedMillis + " ms");
+    this.elapsedMillis = elapsedMillis;
   }
 
-  public String getVendor() {
-    return vendor;
+  public long getElapsedMillis() {
+    return elapsedMillis;
   }
 
 }
@@ -0,0 +1,73 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import org.sonar.sslr.grammar.GrammarException;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+
+import java.util.regex.Pattern;
+
+/**
+ * Same as {@link org.sonar.sslr.parser.LexerlessGrammarBuilder#regexp(String)}, but each thread gets its own
+ * {@link java.util.regex.Matcher}, so that a compiled grammar can be shared by parsers running concurrently.
+ */
+final class RegexpExpression extends NativeExpression implements Matcher {
+
+  private final Pattern pattern;
+  private final ThreadLocal<java.util.regex.Matcher> matchers = new ThreadLocal<java.util.regex.Matcher>() {
+    @Override
+    protected java.util.regex.Matcher initialValue() {
+      return pattern.matcher("");
+    }
+  };
+
+  RegexpExpression(String regexp) {
+    this.pattern = Pattern.compile(regexp);
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    ParseDeadline.check();
+    java.util.regex.Matcher matcher = matchers.get();
+    matcher.reset(machine);
+    boolean matched;
+    try {
+      matched = matcher.lookingAt();
+    } catch (StackOverflowError e) {
+      throw new GrammarException(e, "The regular expression '" + pattern.pattern() + "' has led to a stack overflow error.");
+    }
+    if (matched) {
+      machine.createLeafNode(this, matcher.end());
+      machine.jump(1);
+    } else {
+      machine.backtrack();
+    }
+    // Do not keep a reference on the input
+    matcher.reset("");
+  }
+
+  @Override
+  public String toString() {
+    return "Pattern " + pattern.pattern();
+  }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Moves nodes and tokens: all the lines are shifted, and so are the columns of the tokens of one of the lines.
+ * <p>
+ * Tokens are immutable: moved tokens are copies, and so are the nodes which hold them. When only the indexes change,
+ * the nodes are updated in place.
+ */
+final class Relocation {
+
+  private final int lineDelta;
+  private final int columnLine;
+  private final int columnDelta;
+  private final int indexDelta;
+
+  Relocation(int lineDelta, int columnLine, int columnDelta, int indexDelta) {
+    this.lineDelta = lineDelta;
+    this.columnLine = columnLine;
+    this.columnDelta = columnDelta;
+    this.indexDelta = indexDelta;
+  }
+
+  int lineDelta() {
+    return lineDelta;
+  }
+
+  /**
+   * @return the moved node: the given one when the tokens do not move, a copy otherwise
+   */
+  AstNode relocate(AstNode node) {
+    if (lineDelta == 0 && columnDelta == 0) {
+      shiftIndexes(node);
+      return node;
+    }
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    stack.push(new Frame(node));
+    while (true) {
+      Frame frame = stack.peek();
+      List<AstNode> children = frame.node.getChildren();
+      if (frame.copies.size() < children.size()) {
+        stack.push(new Frame(children.get(frame.copies.size())));
+      } else {
+        stack.pop();
+        AstNode copy = copy(frame);
+        if (stack.isEmpty()) {
+          return copy;
+        }
+        stack.peek().copies.add(copy);
+      }
+    }
+  }
+
+  private void shiftIndexes(AstNode node) {
+    if (indexDelta == 0) {
+      return;
+    }
+    Deque<AstNode> stack = new ArrayDeque<AstNode>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      AstNode n = stack.pop();
+      n.setFromIndex(n.getFromIndex() + indexDelta);
+      n.setToIndex(n.getToIndex() + indexDelta);
+      for (AstNode child : n.getChildren()) {
+        stack.push(child);
+      }
+    }
+  }
+
+  private AstNode copy(Frame frame) {
+    AstNode node = frame.node;
+    Token token = null;
+    if (frame.copies.isEmpty()) {
+      token = node.getToken() == null ? null : relocate(node.getToken());
+    } else if (node.getToken() != null) {
+      token = firstToken(frame.copies);
+    }
+    AstNode copy = new AstNode(node.getType(), node.getName(), token);
+    for (AstNode child : frame.copies) {
+      copy.addChild(child);
+    }
+    copy.setFromIndex(node.getFromIndex() + indexDelta);
+    copy.setToIndex(node.getToIndex() + indexDelta);
+    return copy;
+  }
+
+  /**
+   * @return the moved token, with its moved comments
+   */
+  Token relocate(Token token) {
+    List<Trivia> trivia = token.getTrivia();
+    List<Trivia> movedTrivia = Lists.newArrayListWithCapacity(trivia.size());
+    boolean moved = false;
+    for (Trivia t : trivia) {
+      Token triviaToken = t.isComment() ? move(t.getToken()) : t.getToken();
+      moved |= triviaToken != t.getToken();
+      movedTrivia.add(triviaToken == t.getToken() ? t : Trivia.createComment(triviaToken));
+    }
+    Token movedToken = move(token);
+    if (!moved) {
+      return movedToken;
+    }
+    return Token.builder(movedToken).setTrivia(movedTrivia).build();
+  }
+
+  private Token move(Token token) {
+    boolean moveColumn = columnDelta != 0 && token.getLine() == columnLine;
+    if (lineDelta == 0 && !moveColumn) {
+      return token;
+    }
+    return Token.builder(token)
+      .setLine(token.getLine() + lineDelta)
+      .setColumn(moveColumn ? token.getColumn() + columnDelta : token.getColumn())
+      .build();
+  }
+
+  /**
+   * @return a copy of the given node whose first token has the given trivia: the nodes which hold this token are
+   * copied, their other children are moved to the copies
+   */
+  static AstNode withTrivia(AstNode node, List<Trivia> trivia) {
+    Token first = node.getToken();
+    Token token = Token.builder(first).setTrivia(ImmutableList.copyOf(trivia)).build();
+    List<AstNode> path = Lists.newArrayList();
+    for (AstNode n = node; n != null; n = childWithToken(n, first)) {
+      path.add(n);
+    }
+    AstNode copy = null;
+    for (int i = path.size() - 1; i >= 0; i--) {
+      AstNode original = path.get(i);
+      AstNode parent = new AstNode(original.getType(), original.getName(), token);
+      for (AstNode child : Lists.newArrayList(original.getChildren())) {
+        parent.addChild(i + 1 < path.size() && child == path.get(i + 1) ? copy : child);
+      }
+      parent.setFromIndex(original.getFromIndex());
+      parent.setToIndex(original.getToIndex());
+      copy = parent;
+    }
+    return copy;
+  }
+
+  @Nullable
+  private static AstNode childWithToken(AstNode node, Token token) {
+    for (AstNode child : node.getChildren()) {
+      if (child.getToken() == token) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static Token firstToken(List<AstNode> nodes) {
+    for (AstNode node : nodes) {
+      if (node.getToken() != null) {
+        return node.getToken();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Node being copied, with the copies of its children so far.
+   */
+  private static final class Frame {
+
+    private final AstNode node;
+    private final List<AstNode> copies = Lists.newArrayList();
+
+    Frame(AstNode node) {
+      this.node = node;
+    }
+
+  }
+
+}
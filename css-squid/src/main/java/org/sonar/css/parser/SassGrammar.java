@@ -19,6 +19,7 @@
  */
 package org.sonar.css.parser;
 
+import org.sonar.css.parser.FirstCharDispatch.FirstChar;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
@@ -63,7 +64,10 @@ public enum SassGrammar implements GrammarRuleKey {
     /**
      * STATEMENT OVERRIDE
      */
-    b.rule(CssGrammar.STATEMENT).override(b.firstOf(VAR_DECLARATION, CssGrammar.AT_RULE, CssGrammar.RULESET));
+    b.rule(CssGrammar.STATEMENT).override(FirstCharDispatch.firstOf(b)
+        .or(VAR_DECLARATION, "$")
+        .or(CssGrammar.AT_RULE, "@")
+        .or(CssGrammar.RULESET, FirstChar.ANY_CHAR));
     b.rule(VAR_DECLARATION).is(VARIABLE, CssGrammar.COLON, CssGrammar.VALUE, CssGrammar.SEMICOLON);
     b.rule(VARIABLE).is(CssGrammar.addSpacing(b.sequence("$", CssGrammar.IDENT), b));
     b.rule(EXTEND).is(CssGrammar.addSpacing("@extend", b), CssGrammar.addSpacing(CssGrammar.SELECTOR, b), b.optional(OPT));
@@ -138,7 +142,7 @@ public enum SassGrammar implements GrammarRuleKey {
     b.rule(CssGrammar.WHITESPACES).override(b.zeroOrMore(
         b.firstOf(
             b.skippedTrivia(CssGrammar.WHITESPACE),
-            b.commentTrivia(b.regexp("(?:" + CssGrammar.COMMENT_REGEX + "|" + CssGrammar.COMMENT2_REGEX + "|" + SINGLE_LINE_COMMENT + ")"))))).skip();
+            b.commentTrivia(b.firstOf(new CssLexerExpression(CssLexerExpression.Scanner.COMMENT), new RegexpExpression(SINGLE_LINE_COMMENT)))))).skip();
 
     b.rule(INTERPOLATION).is(
         "#", CssGrammar.OPEN_CURLY_BRACE,
@@ -151,32 +155,32 @@ public enum SassGrammar implements GrammarRuleKey {
      * ANY OVERRIDE
      */
     b.rule(CssGrammar.ANY).override(
-        b.firstOf(
-            CssGrammar.FUNCTION,
-            b.sequence(CssGrammar.OPEN_PARENTHESIS,
+        FirstCharDispatch.firstOf(b)
+            .or(CssGrammar.FUNCTION, FirstChar.IDENT_START)
+            .or(b.sequence(CssGrammar.OPEN_PARENTHESIS,
                 b.zeroOrMore(CssGrammar.ANY),
-                CssGrammar.CLOSE_PARENTHESIS),
-            b.sequence(CssGrammar.OPEN_BRACKET,
-                b.zeroOrMore(CssGrammar.ANY), CssGrammar.CLOSE_BRACKET),
-            DEF,
-            DEBUG,
-            WARN,
-            EXPRESSION,
-            STRING_EXP,
-            CssGrammar.PERCENTAGE,
-            CssGrammar.DIMENSION,
-            CssGrammar.STRING,
-            INTERPOLATION,
-            CssGrammar.URI,
-            CssGrammar.HASH,
-            CssGrammar.UNICODE_RANGE,
-            CssGrammar.INCLUDES,
-            CssGrammar.DASH_MATCH,
-            CssGrammar.addSpacing(CssGrammar.IDENT, b),
-            CssGrammar.NUMBER,
-            CssGrammar.COLON,
-            CssGrammar.IMPORTANT,
-            CssGrammar.addSpacing(CssGrammar.DELIM, b))).skipIfOneChild();
+                CssGrammar.CLOSE_PARENTHESIS), "(")
+            .or(b.sequence(CssGrammar.OPEN_BRACKET,
+                b.zeroOrMore(CssGrammar.ANY), CssGrammar.CLOSE_BRACKET), "[")
+            .or(DEF, "!")
+            .or(DEBUG, "@")
+            .or(WARN, "@")
+            .or(EXPRESSION, "#$(", FirstChar.IDENT_START, FirstChar.NUMBER_START)
+            .or(STRING_EXP, "\"'", FirstChar.IDENT_START)
+            .or(CssGrammar.PERCENTAGE, FirstChar.NUMBER_START)
+            .or(CssGrammar.DIMENSION, FirstChar.NUMBER_START)
+            .or(CssGrammar.STRING, "\"'")
+            .or(INTERPOLATION, "#")
+            .or(CssGrammar.URI, "u")
+            .or(CssGrammar.HASH, "#")
+            .or(CssGrammar.UNICODE_RANGE, "u")
+            .or(CssGrammar.INCLUDES, "~")
+            .or(CssGrammar.DASH_MATCH, "|")
+            .or(CssGrammar.addSpacing(CssGrammar.IDENT, b), FirstChar.IDENT_START)
+            .or(CssGrammar.NUMBER, FirstChar.NUMBER_START)
+            .or(CssGrammar.COLON, ":")
+            .or(CssGrammar.IMPORTANT, "!")
+            .or(CssGrammar.addSpacing(CssGrammar.DELIM, b), FirstChar.DELIM)).skipIfOneChild();
 
     b.rule(DEF).is(CssGrammar.addSpacing("!default", b));
     b.rule(DEBUG).is(CssGrammar.addSpacing("@debug", b), CssGrammar.VALUE);
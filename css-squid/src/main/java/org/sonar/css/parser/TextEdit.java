@@ -0,0 +1,77 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Replacement of a range of characters of a source by a new text.
+ */
+public final class TextEdit {
+
+  private final int offset;
+  private final int length;
+  private final String text;
+
+  public TextEdit(int offset, int length, String text) {
+    Preconditions.checkArgument(offset >= 0 && length >= 0, "Invalid range: %s, %s", offset, length);
+    this.offset = offset;
+    this.length = length;
+    this.text = text;
+  }
+
+  public static TextEdit insert(int offset, String text) {
+    return new TextEdit(offset, 0, text);
+  }
+
+  public static TextEdit delete(int offset, int length) {
+    return new TextEdit(offset, length, "");
+  }
+
+  public int offset() {
+    return offset;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public String text() {
+    return text;
+  }
+
+  /**
+   * Difference between the length of the source after and before the edit.
+   */
+  public int delta() {
+    return text.length() - length;
+  }
+
+  public String apply(String source) {
+    Preconditions.checkArgument(offset + length <= source.length(), "Edit out of source range");
+    return source.substring(0, offset) + text + source.substring(offset + length);
+  }
+
+  @Override
+  public String toString() {
+    return "TextEdit[" + offset + ", " + length + ", \"" + text + "\"]";
+  }
+
+}
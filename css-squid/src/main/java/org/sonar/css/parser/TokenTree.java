@@ -0,0 +1,116 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import org.sonar.css.parser.CssLexer.Kind;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tree of a source which is not parsed: the children of its root, of type {@link #TOKENS}, are the tokens of
+ * {@link CssLexer}, with the comments as trivia, followed by the end of file. The lines, comments and tokens of the
+ * source are the same as in a parsed tree, but the visitors which subscribe to grammar rules see no node.
+ */
+public final class TokenTree {
+
+  public static final AstNodeType TOKENS = Type.TOKENS;
+
+  private final char[] source;
+  private final LineIndex lines;
+  private final URI uri;
+
+  private TokenTree(char[] source, @Nullable File file) {
+    this.source = source;
+    this.lines = new LineIndex(source);
+    this.uri = LineIndex.uri(file);
+  }
+
+  /**
+   * Tokenizes the given source, in a time proportional to its length.
+   */
+  public static AstNode create(@Nullable File file, char[] source) {
+    return new TokenTree(source, file).create();
+  }
+
+  private AstNode create() {
+    CssLexer lexer = new CssLexer(CharBuffer.wrap(source));
+    List<AstNode> children = Lists.newArrayList();
+    List<Trivia> trivia = Lists.newArrayList();
+    Kind kind;
+    while ((kind = lexer.next()) != Kind.EOF) {
+      if (kind == Kind.COMMENT || kind == Kind.BAD_COMMENT) {
+        trivia.add(Trivia.createComment(token(GenericTokenType.COMMENT, lexer.tokenStart(), lexer.tokenEnd(), Collections.<Trivia>emptyList())));
+      } else if (kind != Kind.WHITESPACE) {
+        TokenType type = kind == Kind.IDENT ? GenericTokenType.IDENTIFIER : GenericTokenType.LITERAL;
+        children.add(node(token(type, lexer.tokenStart(), lexer.tokenEnd(), ImmutableList.copyOf(trivia)), lexer.tokenStart(), lexer.tokenEnd()));
+        trivia.clear();
+      }
+    }
+    AstNode eof = node(token(GenericTokenType.EOF, source.length, source.length, ImmutableList.copyOf(trivia)), source.length, source.length);
+    children.add(eof);
+
+    AstNode root = new AstNode(TOKENS, Type.TOKENS.name(), children.get(0).getToken());
+    for (AstNode child : children) {
+      root.addChild(child);
+    }
+    root.setFromIndex(0);
+    root.setToIndex(source.length);
+    return root;
+  }
+
+  private static AstNode node(Token token, int start, int end) {
+    AstNode node = new AstNode(token);
+    node.setFromIndex(start);
+    node.setToIndex(end);
+    return node;
+  }
+
+  private Token token(TokenType type, int start, int end, List<Trivia> tokenTrivia) {
+    return Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(new String(source, start, end - start))
+      .setLine(lines.line(start))
+      .setColumn(lines.column(start))
+      .setURI(uri)
+      .setGeneratedCode(false)
+      .notCopyBook()
+      .setTrivia(tokenTrivia)
+      .build();
+  }
+
+  private enum Type implements AstNodeType {
+    TOKENS
+  }
+
+}
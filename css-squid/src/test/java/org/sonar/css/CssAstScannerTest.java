@@ -19,16 +19,34 @@
  */
 package org.sonar.css;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.sonar.css.api.CssMetric;
+import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.sslr.parser.LexerlessGrammar;
 
 import java.io.File;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class CssAstScannerTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   // FIXME Drop the computation of the FILES metric
   @Test
   public void files() {
@@ -78,4 +96,74 @@ public class CssAstScannerTest {
     assertThat(file.getInt(CssMetric.AT_RULES)).isEqualTo(1);
   }
 
+  @Test
+  public void source() throws Exception {
+    SourceVisitor visitor = new SourceVisitor();
+    File metric = new File("src/test/resources/metrics/metric.css");
+    File parseError = temp.newFile();
+    Files.write("ParseError\r\n", parseError, Charsets.UTF_8);
+    CssAstScanner.create(new CssConfiguration(Charsets.UTF_8), null, visitor).scanFiles(ImmutableList.of(metric, parseError));
+
+    assertThat(visitor.sources).containsExactly(Files.toString(metric, Charsets.UTF_8), Files.toString(parseError, Charsets.UTF_8));
+  }
+
+  @Test
+  public void listener() throws Exception {
+    final List<String> scanned = Lists.newArrayList();
+    SourceFileListener listener = new SourceFileListener() {
+      @Override
+      public void fileScanned(SourceFile sourceFile, boolean timedOut) {
+        scanned.add(sourceFile.getInt(CssMetric.LINES) + " " + sourceFile.getInt(CssMetric.COMMENT_LINES) + " " + sourceFile.getNoSonarTagLines());
+      }
+    };
+    File metric = new File("src/test/resources/metrics/metric.css");
+    File copy = temp.newFile();
+    Files.copy(metric, copy);
+    CssAstScanner.create(new CssConfiguration(Charsets.UTF_8), null, listener).scanFiles(ImmutableList.of(metric, copy));
+
+    assertThat(scanned).containsExactly("24 2 [10]", "24 2 [10]");
+  }
+
+  @Test
+  public void statements_of_each_file() throws Exception {
+    final List<String> scanned = Lists.newArrayList();
+    SourceFileListener listener = new SourceFileListener() {
+      @Override
+      public void fileScanned(SourceFile sourceFile, boolean timedOut) {
+        scanned.add(sourceFile.getInt(CssMetric.STATEMENTS) + " " + sourceFile.getInt(CssMetric.RULE_SETS) + " " + sourceFile.getInt(CssMetric.AT_RULES));
+      }
+    };
+    File metric = new File("src/test/resources/metrics/metric.css");
+    File empty = temp.newFile();
+    CssAstScanner.create(new CssConfiguration(Charsets.UTF_8), null, listener).scanFiles(ImmutableList.of(metric, empty, metric));
+
+    assertThat(scanned).containsExactly("11 5 1", "0 0 0", "11 5 1");
+  }
+
+  @Test
+  public void time_budget() throws Exception {
+    File file = temp.newFile();
+    Files.write(Strings.repeat("/* a */\na {\n  color: red;\n}\n", 20000), file, Charsets.UTF_8);
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+    conf.fileTimeBudget(1);
+    SourceFileListener listener = mock(SourceFileListener.class);
+    CssAstScanner.create(conf, null, listener).scanFiles(ImmutableList.of(file));
+
+    ArgumentCaptor<SourceFile> scanned = ArgumentCaptor.forClass(SourceFile.class);
+    verify(listener).fileScanned(scanned.capture(), Mockito.eq(true));
+    assertThat(scanned.getValue().getInt(CssMetric.LINES)).isEqualTo(80001);
+    assertThat(scanned.getValue().getInt(CssMetric.LINES_OF_CODE)).isEqualTo(60000);
+    assertThat(scanned.getValue().getInt(CssMetric.COMMENT_LINES)).isEqualTo(20000);
+    assertThat(scanned.getValue().getInt(CssMetric.RULE_SETS)).isEqualTo(0);
+  }
+
+  private static class SourceVisitor extends SquidAstVisitor<LexerlessGrammar> {
+    private final List<String> sources = Lists.newArrayList();
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      sources.add(new String(CssVisitorContext.source(getContext()).chars()));
+    }
+  }
+
 }
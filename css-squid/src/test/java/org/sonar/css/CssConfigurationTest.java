@@ -55,4 +55,36 @@ public class CssConfigurationTest {
     assertThat(conf.ignoreHeaderComments()).isFalse();
   }
 
+  @Test
+  public void useLexer() {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+
+    assertThat(conf.useLexer()).isFalse();
+
+    conf.useLexer(true);
+    assertThat(conf.useLexer()).isTrue();
+  }
+
+  @Test
+  public void lazyBlocks() {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+
+    assertThat(conf.lazyBlocks()).isFalse();
+
+    conf.lazyBlocks(true);
+    assertThat(conf.lazyBlocks()).isTrue();
+  }
+
+  @Test
+  public void parallelParsingChunkSize() {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+
+    assertThat(conf.parallelParsingChunkSize()).isEqualTo(0);
+    assertThat(conf.parser().getClass().getSimpleName()).isEqualTo("CssParser");
+
+    conf.parallelParsingChunkSize(1024);
+    assertThat(conf.parallelParsingChunkSize()).isEqualTo(1024);
+    assertThat(conf.parser().getClass().getSimpleName()).isEqualTo("CssParallelParser");
+  }
+
 }
@@ -0,0 +1,234 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.css.parser.TextEdit;
+import org.sonar.squidbridge.AstScannerExceptionHandler;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.checks.SquidCheck;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssIncrementalScannerTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CssIncrementalScannerTest.class);
+  private static final int KEYSTROKES = 50;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final String SOURCE = "a { color: red; }\n"
+    + "@import url(a.css);\n"
+    + "b { color: blue; margin: 0 }\n"
+    + "\n"
+    + "c { color: green }\n";
+
+  private final ColorCheck colorCheck = new ColorCheck();
+  private final ImportCheck importCheck = new ImportCheck();
+  private final FileCheck fileCheck = new FileCheck();
+
+  @Test
+  public void should_report_same_issues_as_full_scan() throws Exception {
+    CssIncrementalScanner scanner = scanner(SOURCE);
+
+    assertSameIssues(scanner, TextEdit.insert(SOURCE.indexOf("margin"), "color: black;\n"));
+    assertSameIssues(scanner, TextEdit.delete(0, "a { color: red; }\n".length()));
+    assertSameIssues(scanner, TextEdit.insert(scanner.source().indexOf("c {"), "\n\n"));
+    assertSameIssues(scanner, TextEdit.insert(scanner.source().length(), "@import url(b.css);\n"));
+  }
+
+  @Test
+  public void should_only_run_affected_checks() throws Exception {
+    CssIncrementalScanner scanner = scanner(SOURCE);
+    assertThat(importCheck.runs).isEqualTo(1);
+    assertThat(fileCheck.runs).isEqualTo(1);
+
+    scanner.edit(new TextEdit(SOURCE.indexOf("red"), 3, "pink"));
+    assertThat(importCheck.runs).isEqualTo(1);
+    assertThat(fileCheck.runs).isEqualTo(2);
+
+    scanner.edit(TextEdit.insert(SOURCE.indexOf("url("), " "));
+    assertThat(importCheck.runs).isEqualTo(2);
+  }
+
+  @Test
+  public void should_report_parse_errors() throws Exception {
+    CssIncrementalScanner scanner = scanner(SOURCE);
+
+    SourceFile sourceFile = scanner.edit(TextEdit.delete(SOURCE.indexOf("}"), 1));
+    assertThat(lines(sourceFile, fileCheck)).containsExactly(2);
+
+    sourceFile = scanner.edit(TextEdit.insert(SOURCE.indexOf("}") - 1, "}"));
+    assertThat(lines(sourceFile, fileCheck)).containsExactly(6);
+    assertThat(lines(sourceFile, colorCheck)).containsExactly(1, 3, 5);
+  }
+
+  @Test
+  public void should_edit_large_file() throws Exception {
+    String source = largeSource();
+    CssIncrementalScanner scanner = scanner(source);
+
+    int offset = keystrokesOffset(source);
+    for (int i = 0; i < KEYSTROKES; i++) {
+      scanner.edit(keystroke(offset, i));
+    }
+
+    assertSameIssues(scanner, TextEdit.insert(offset, ";"));
+  }
+
+  /**
+   * Only run with the {@code benchmarks} profile.
+   */
+  @Test
+  public void keystroke_latency() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    String source = largeSource();
+    CssIncrementalScanner scanner = scanner(source);
+
+    int offset = keystrokesOffset(source);
+    long start = System.nanoTime();
+    for (int i = 0; i < KEYSTROKES; i++) {
+      scanner.edit(keystroke(offset, i));
+    }
+    long latency = (System.nanoTime() - start) / 1000000 / KEYSTROKES;
+    LOG.info("Incremental scan of {} KB: {} ms per keystroke", source.length() / 1024, latency);
+  }
+
+  private static String largeSource() throws Exception {
+    return Strings.repeat(Files.toString(new File("src/test/resources/animate.css"), Charsets.UTF_8), 18);
+  }
+
+  private static int keystrokesOffset(String source) {
+    return source.indexOf("animation-duration: 1s;") + "animation-duration: 1".length();
+  }
+
+  private static TextEdit keystroke(int offset, int i) {
+    return TextEdit.insert(offset + i, i % 10 == 9 ? "\n" : "0");
+  }
+
+  private CssIncrementalScanner scanner(String source) throws Exception {
+    File file = temp.newFile();
+    Files.write(source, file, Charsets.UTF_8);
+    CssIncrementalScanner scanner = new CssIncrementalScanner(new CssConfiguration(Charsets.UTF_8), colorCheck, importCheck, fileCheck);
+    scanner.scan(file);
+    return scanner;
+  }
+
+  private void assertSameIssues(CssIncrementalScanner scanner, TextEdit edit) throws Exception {
+    SourceFile incremental = scanner.edit(edit);
+
+    File file = temp.newFile();
+    Files.write(scanner.source(), file, Charsets.UTF_8);
+    ColorCheck color = new ColorCheck();
+    ImportCheck imports = new ImportCheck();
+    FileCheck files = new FileCheck();
+    SourceFile full = new CssIncrementalScanner(new CssConfiguration(Charsets.UTF_8), color, imports, files).scan(file);
+
+    assertThat(lines(incremental, colorCheck)).isEqualTo(lines(full, color));
+    assertThat(lines(incremental, importCheck)).isEqualTo(lines(full, imports));
+    assertThat(lines(incremental, fileCheck)).isEqualTo(lines(full, files));
+  }
+
+  private static List<Integer> lines(SourceFile sourceFile, Object check) {
+    List<Integer> lines = Lists.newArrayList();
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      if (message.getCheck() == check) {
+        lines.add(message.getLine());
+      }
+    }
+    return Ordering.natural().sortedCopy(lines);
+  }
+
+  private static class ColorCheck extends SquidCheck<LexerlessGrammar> {
+    @Override
+    public void init() {
+      subscribeTo(CssGrammar.DECLARATION);
+    }
+
+    @Override
+    public void visitNode(AstNode node) {
+      if ("color".equals(node.getTokenValue())) {
+        getContext().createLineViolation(this, "Color", node);
+      }
+    }
+  }
+
+  private static class ImportCheck extends SquidCheck<LexerlessGrammar> {
+    private int runs;
+
+    @Override
+    public void init() {
+      subscribeTo(CssGrammar.AT_RULE);
+    }
+
+    @Override
+    public void visitFile(AstNode node) {
+      runs++;
+    }
+
+    @Override
+    public void visitNode(AstNode node) {
+      getContext().createLineViolation(this, "Import", node);
+    }
+  }
+
+  private static class FileCheck extends SquidCheck<LexerlessGrammar> implements AstScannerExceptionHandler {
+    private int runs;
+
+    @Override
+    public void visitFile(AstNode node) {
+      runs++;
+      if (node == null) {
+        return;
+      }
+      getContext().createLineViolation(this, "Last line", node.getLastToken());
+    }
+
+    @Override
+    public void processException(Exception e) {
+      getContext().createFileViolation(this, e.getMessage());
+    }
+
+    @Override
+    public void processRecognitionException(RecognitionException e) {
+      getContext().createLineViolation(this, e.getMessage(), e.getLine());
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssSourceTest {
+
+  @Test
+  public void lines_with_all_terminators() {
+    CssSource source = new CssSource("a\nbb\r\nc\rd".toCharArray());
+
+    assertThat(source.lineCount()).isEqualTo(4);
+    assertThat(ImmutableList.copyOf(source.lines())).containsExactly("a", "bb", "c", "d");
+    assertThat(source.offset(1, 0)).isEqualTo(0);
+    assertThat(source.offset(2, 1)).isEqualTo(3);
+    assertThat(source.offset(3, 0)).isEqualTo(6);
+    assertThat(source.offset(4, 0)).isEqualTo(8);
+  }
+
+  @Test
+  public void final_terminator_does_not_start_a_line() {
+    CssSource source = new CssSource("a\r\n".toCharArray());
+
+    assertThat(source.lineCount()).isEqualTo(1);
+    assertThat(source.line(1)).isEqualTo("a");
+    assertThat(source.offset(2, 0)).isEqualTo(3);
+  }
+
+  @Test
+  public void empty_lines() {
+    CssSource source = new CssSource("\n\r\r\n x".toCharArray());
+
+    assertThat(ImmutableList.copyOf(source.lines())).containsExactly("", "", "", " x");
+  }
+
+  @Test
+  public void empty_source() {
+    CssSource source = new CssSource(new char[0]);
+
+    assertThat(source.length()).isEqualTo(0);
+    assertThat(source.lineCount()).isEqualTo(0);
+    assertThat(source.lines()).isEmpty();
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.squidbridge.AstScannerExceptionHandler;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.checks.SquidCheck;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssStreamingScannerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_report_same_issues_as_full_scan() {
+    for (File file : new File("src/test/resources").listFiles()) {
+      if (file.isFile()) {
+        assertThat(streamingScan(file)).as(file.getName()).isEqualTo(fullScan(file));
+      }
+    }
+  }
+
+  @Test
+  public void should_scan_minified_bundle() throws Exception {
+    File file = temp.newFile();
+    String animate = Files.toString(new File("src/test/resources/animate.min.css"), Charsets.UTF_8);
+    Files.write(Strings.repeat(animate, 50), file, Charsets.UTF_8);
+
+    assertThat(streamingScan(file)).hasSize(50 * streamingScan(new File("src/test/resources/animate.min.css")).size());
+  }
+
+  @Test
+  public void should_report_parse_errors() throws Exception {
+    File file = temp.newFile();
+    Files.write("a { color: red; }\nb { color: }\nc { color: blue; }", file, Charsets.UTF_8);
+    ErrorCheck errorCheck = new ErrorCheck();
+    SourceFile sourceFile = new CssStreamingScanner(new CssConfiguration(Charsets.UTF_8), new DeclarationCheck(), errorCheck).scan(file);
+
+    assertThat(messages(sourceFile)).containsExactly("1 DECLARATION 1:4 color", "1 SELECTOR 1:0 a", "2 Parse error at line 2 column 12");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_reject_checks_needing_whole_file() {
+    new CssStreamingScanner(new CssConfiguration(Charsets.UTF_8), new SquidCheck<LexerlessGrammar>() {
+    });
+  }
+
+  private static List<String> fullScan(File file) {
+    return messages(CssAstScanner.scanSingleFile(file, new DeclarationCheck()));
+  }
+
+  private static List<String> streamingScan(File file) {
+    return messages(new CssStreamingScanner(new CssConfiguration(Charsets.UTF_8), new DeclarationCheck()).scan(file));
+  }
+
+  private static List<String> messages(SourceFile sourceFile) {
+    List<String> messages = Lists.newArrayList();
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      messages.add(message.getLine() + " " + message.formatDefaultMessage());
+    }
+    return Ordering.natural().sortedCopy(messages);
+  }
+
+  private static class DeclarationCheck extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor {
+    @Override
+    public void init() {
+      subscribeTo(CssGrammar.DECLARATION, CssGrammar.SELECTOR, CssGrammar.AT_RULE);
+    }
+
+    @Override
+    public void leaveNode(AstNode node) {
+      getContext().createLineViolation(this, node.getName() + " " + node.getToken().getLine() + ":" + node.getToken().getColumn() + " "
+        + node.getTokenValue(), node);
+    }
+  }
+
+  private static class ErrorCheck extends SquidCheck<LexerlessGrammar> implements LocalContextVisitor, AstScannerExceptionHandler {
+    @Override
+    public void processException(Exception e) {
+      getContext().createFileViolation(this, e.getMessage());
+    }
+
+    @Override
+    public void processRecognitionException(RecognitionException e) {
+      getContext().createLineViolation(this, e.getMessage(), e.getLine());
+    }
+  }
+
+}
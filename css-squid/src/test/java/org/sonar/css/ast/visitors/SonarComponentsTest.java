@@ -19,6 +19,7 @@
  */
 package org.sonar.css.ast.visitors;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.sonar.api.batch.fs.FilePredicate;
@@ -51,6 +52,21 @@ public class SonarComponentsTest {
     assertThat(sonarComponents.inputFileFor(file)).isSameAs(inputFile);
   }
 
+  @Test
+  public void indexed_inputFileFor() {
+    InputFile inputFile = mock(InputFile.class);
+    when(inputFile.file()).thenReturn(new File("a.css"));
+    FileSystem fs = mock(FileSystem.class);
+    when(fs.predicates()).thenReturn(mock(FilePredicates.class));
+
+    SonarComponents sonarComponents = new SonarComponents(mock(ResourcePerspectives.class), fs);
+    sonarComponents.index(ImmutableList.of(inputFile));
+
+    assertThat(sonarComponents.inputFileFor(new File("a.css").getAbsoluteFile())).isSameAs(inputFile);
+    verify(fs, Mockito.never()).inputFile(Mockito.any(FilePredicate.class));
+    assertThat(sonarComponents.inputFileFor(new File("b.css"))).isNull();
+  }
+
   @Test
   public void highlightableFor() {
     ResourcePerspectives resourcePerspectives = mock(ResourcePerspectives.class);
@@ -62,6 +78,20 @@ public class SonarComponentsTest {
     verify(resourcePerspectives).as(Highlightable.class, inputFile);
   }
 
+  @Test
+  public void newHighlighting() {
+    ResourcePerspectives resourcePerspectives = mock(ResourcePerspectives.class);
+    InputFile inputFile = mock(InputFile.class);
+    Highlightable highlightable = mock(Highlightable.class);
+    Highlightable.HighlightingBuilder highlighting = mock(Highlightable.HighlightingBuilder.class);
+    when(resourcePerspectives.as(Highlightable.class, inputFile)).thenReturn(highlightable);
+    when(highlightable.newHighlighting()).thenReturn(highlighting);
+
+    SonarComponents sonarComponents = new SonarComponents(resourcePerspectives, mock(FileSystem.class));
+
+    assertThat(sonarComponents.newHighlighting(inputFile)).isSameAs(highlighting);
+  }
+
   @Test
   public void getResourcePerspectives() {
     ResourcePerspectives resourcePerspectives = mock(ResourcePerspectives.class);
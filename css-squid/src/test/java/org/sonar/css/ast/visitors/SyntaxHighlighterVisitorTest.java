@@ -41,10 +41,9 @@ public class SyntaxHighlighterVisitorTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   private final SonarComponents sonarComponents = Mockito.mock(SonarComponents.class);
-  private final Highlightable highlightable = Mockito.mock(Highlightable.class);
   private final Highlightable.HighlightingBuilder highlighting = Mockito.mock(Highlightable.HighlightingBuilder.class);
 
-  private final SyntaxHighlighterVisitor syntaxHighlighterVisitor = new SyntaxHighlighterVisitor(sonarComponents, Charsets.UTF_8);
+  private final SyntaxHighlighterVisitor syntaxHighlighterVisitor = new SyntaxHighlighterVisitor(sonarComponents);
 
   private List<String> lines;
   private String eol;
@@ -53,8 +52,7 @@ public class SyntaxHighlighterVisitorTest {
   public void setUp() {
     InputFile inputFile = mock(InputFile.class);
     Mockito.when(sonarComponents.inputFileFor(Mockito.any(File.class))).thenReturn(inputFile);
-    Mockito.when(sonarComponents.highlightableFor(inputFile)).thenReturn(highlightable);
-    Mockito.when(highlightable.newHighlighting()).thenReturn(highlighting);
+    Mockito.when(sonarComponents.newHighlighting(inputFile)).thenReturn(highlighting);
   }
 
   @Test
@@ -63,7 +61,7 @@ public class SyntaxHighlighterVisitorTest {
     Files.write("ParseError", file, Charsets.UTF_8);
     CssAstScanner.scanSingleFile(file, syntaxHighlighterVisitor);
 
-    Mockito.verifyZeroInteractions(highlightable);
+    Mockito.verifyZeroInteractions(highlighting);
   }
 
   // TODO Factorize duplicated methods, but still allow double click on failures to jump to the right line
@@ -19,9 +19,15 @@
  */
 package org.sonar.css.parser;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.RecognitionException;
+import org.fest.assertions.Assertions;
 import org.junit.Test;
 import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
 
+import static org.fest.assertions.Fail.fail;
 import static org.sonar.sslr.tests.Assertions.assertThat;
 
 public class CommentTest extends TestBase {
@@ -33,7 +39,29 @@ public class CommentTest extends TestBase {
     assertThat(b.rule(CssGrammar.STYLESHEET))
         .matches(code("p {color:red;text-align:center;} /* comment */"))
         .matches(code("/* comment */p {color:red;text-align:center;} /* comment */"))
+        .matches(code("<!-- comment -->p {color:red;} /** /* **/"))
+        .matches(code("p {color:/* a */red/* b */;}"))
         ;
   }
 
+  @Test
+  public void huge_comment() {
+    String banner = "/*" + Strings.repeat(" license banner line\n", 100000) + "*/";
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, b);
+
+    Assertions.assertThat(parser.parse(banner + "p {color:red;}").getToken().getTrivia()).hasSize(1);
+  }
+
+  @Test
+  public void unterminated_comment() {
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, b);
+    try {
+      parser.parse(code("p {color:red;}", "  /* never closed", "p {color:blue;}"));
+      fail();
+    } catch (RecognitionException e) {
+      Assertions.assertThat(e.getLine()).isEqualTo(2);
+      Assertions.assertThat(e.getMessage()).contains("line 2 column 3");
+    }
+  }
+
 }
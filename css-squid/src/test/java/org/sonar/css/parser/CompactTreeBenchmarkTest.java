@@ -0,0 +1,106 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Compares the AstNode tree and the compact tree of a minified file. Retained memory is only measured with the
+ * {@code benchmarks} profile.
+ */
+public class CompactTreeBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CompactTreeBenchmarkTest.class);
+  private static final int TREES = 5;
+
+  @Test
+  public void should_hold_one_entry_per_node() throws Exception {
+    String source = source();
+
+    AstNode astNode = CssDialect.CSS.parser(Charsets.UTF_8).parse(source);
+    CompactTree compact = CssDialect.CSS.parseCompact(source);
+
+    assertThat(compact.size()).isEqualTo(count(astNode));
+  }
+
+  @Test
+  public void retained_memory() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    String source = source();
+
+    List<Object> trees = Lists.newArrayList();
+    long start = usedMemory();
+    for (int i = 0; i < TREES; i++) {
+      trees.add(CssDialect.CSS.parser(Charsets.UTF_8).parse(source));
+    }
+    long astNodes = (usedMemory() - start) / TREES;
+    trees.clear();
+
+    start = usedMemory();
+    for (int i = 0; i < TREES; i++) {
+      trees.add(CssDialect.CSS.parseCompact(source));
+    }
+    long compact = (usedMemory() - start) / TREES;
+
+    LOG.info("Retained per char of animate.min.css: {} bytes with AstNode, {} bytes with compact tree",
+      astNodes / source.length(), compact / source.length());
+  }
+
+  private static String source() throws Exception {
+    return Files.toString(new File("src/test/resources/animate.min.css"), Charsets.UTF_8);
+  }
+
+  private static int count(AstNode root) {
+    int count = 0;
+    Deque<AstNode> stack = new ArrayDeque<AstNode>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      count++;
+      for (AstNode child : node.getChildren()) {
+        stack.push(child);
+      }
+    }
+    return count;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.ast.AstXmlPrinter;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompactTreeTest {
+
+  private static final String[] FILES = {"normalize.css", "animate.css", "animate.min.css", "demo.autoprefixed.css",
+    "effeckt.autoprefixed.css", "form-elements.css", "syntax_highlight.css"};
+
+  private static final String SCSS = "/* vars */\n"
+    + "$width: 5em;\r\n"
+    + "#main {\n"
+    + "  width: $width; // nested\n"
+    + "  p { color: red; }\r"
+    + "  font: { family: fantasy; size: 30em; }\n"
+    + "}\n";
+
+  @Test
+  public void should_create_same_nodes_as_parser() {
+    for (String name : FILES) {
+      File file = new File("src/test/resources/" + name);
+      for (CssDialect dialect : new CssDialect[] {CssDialect.CSS, CssDialect.CSS_LEXER}) {
+        AstNode expected = dialect.parser(Charsets.UTF_8).parse(file);
+        AstNode actual = dialect.parseCompact(file, Charsets.UTF_8).toAstNode();
+        assertSameTree(actual, expected, dialect + " " + name);
+      }
+    }
+    assertSameTree(CssDialect.SCSS.parseCompact(SCSS).toAstNode(), CssDialect.SCSS.parser(Charsets.UTF_8).parse(SCSS), "scss");
+  }
+
+  @Test
+  public void should_navigate() {
+    CompactTree tree = CssDialect.CSS.parseCompact("a {\n  color: red;\n}\n");
+    int root = tree.root();
+    assertThat(tree.type(root)).isEqualTo(CssGrammar.STYLESHEET);
+    assertThat(tree.parent(root)).isEqualTo(CompactTree.NONE);
+
+    int ruleset = tree.firstChild(tree.firstChild(root));
+    assertThat(tree.type(ruleset)).isEqualTo(CssGrammar.RULESET);
+    assertThat(tree.text(ruleset).toString()).isEqualTo("a {\n  color: red;\n}\n");
+    assertThat(tree.isToken(ruleset)).isFalse();
+
+    int declaration = find(tree, CssGrammar.DECLARATION);
+    assertThat(tree.text(declaration).toString()).isEqualTo("color: red");
+    assertThat(tree.line(declaration)).isEqualTo(2);
+    assertThat(tree.column(declaration)).isEqualTo(2);
+    assertThat(tree.is(tree.parent(tree.parent(declaration)), CssGrammar.BLOCK)).isTrue();
+
+    int token = tree.token(declaration);
+    assertThat(tree.isToken(token)).isTrue();
+    assertThat(tree.firstChild(token)).isEqualTo(CompactTree.NONE);
+    assertThat(tree.text(token).toString()).isEqualTo("color");
+    assertThat(tree.typeIdOf(CssGrammar.DECLARATION)).isEqualTo(tree.typeId(declaration));
+    assertThat(tree.typeIdOf(CssGrammar.AT_RULE)).isEqualTo(CompactTree.NONE);
+  }
+
+  @Test
+  public void should_keep_comments() {
+    CompactTree tree = CssDialect.SCSS.parseCompact(SCSS);
+    assertThat(tree.commentCount()).isEqualTo(2);
+    assertThat(SCSS.substring(tree.commentFromIndex(0), tree.commentToIndex(0))).isEqualTo("/* vars */");
+    assertThat(tree.text(tree.commentToken(0)).toString()).isEqualTo("$");
+    assertThat(SCSS.substring(tree.commentFromIndex(1), tree.commentToIndex(1))).isEqualTo("// nested");
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void should_fail_on_parse_error() {
+    CssDialect.CSS.parseCompact("a { color: red;");
+  }
+
+  @Test
+  public void should_walk_tree() {
+    CompactTree tree = CssDialect.CSS.parseCompact("a { color: red; margin: 0 } @media print { b { color: blue } }");
+    final List<String> events = Lists.newArrayList();
+    CompactTreeVisitor declarations = new CompactTreeVisitor() {
+      @Override
+      public void init() {
+        subscribeTo(CssGrammar.DECLARATION);
+      }
+
+      @Override
+      public void visitNode(CompactTree tree, int node) {
+        events.add("declaration " + tree.text(node));
+      }
+    };
+    CompactTreeVisitor rules = new CompactTreeVisitor() {
+      @Override
+      public void init() {
+        subscribeTo(CssGrammar.RULESET, CssGrammar.AT_RULE);
+      }
+
+      @Override
+      public void visitFile(CompactTree tree) {
+        events.add("file");
+      }
+
+      @Override
+      public void visitNode(CompactTree tree, int node) {
+        events.add("visit " + tree.type(node));
+      }
+
+      @Override
+      public void leaveNode(CompactTree tree, int node) {
+        events.add("leave " + tree.type(node));
+      }
+    };
+    declarations.init();
+    rules.init();
+    new CompactTreeWalker(Lists.newArrayList(declarations, rules)).walkAndVisit(tree);
+
+    assertThat(events).containsExactly(
+      "file",
+      "visit RULESET",
+      "declaration color: red",
+      "declaration margin: 0 ",
+      "leave RULESET",
+      "visit AT_RULE",
+      "visit RULESET",
+      "declaration color: blue ",
+      "leave RULESET",
+      "leave AT_RULE");
+  }
+
+  private static int find(CompactTree tree, CssGrammar type) {
+    for (int node = 0; node < tree.size(); node++) {
+      if (tree.is(node, type)) {
+        return node;
+      }
+    }
+    return CompactTree.NONE;
+  }
+
+  private static void assertSameTree(AstNode actual, AstNode expected, String message) {
+    assertThat(AstXmlPrinter.print(actual)).as(message).isEqualTo(AstXmlPrinter.print(expected));
+    List<Token> actualTokens = actual.getTokens();
+    List<Token> expectedTokens = expected.getTokens();
+    assertThat(actualTokens).hasSize(expectedTokens.size());
+    for (int i = 0; i < actualTokens.size(); i++) {
+      assertSameToken(actualTokens.get(i), expectedTokens.get(i), message);
+      List<Trivia> actualTrivia = actualTokens.get(i).getTrivia();
+      List<Trivia> expectedTrivia = expectedTokens.get(i).getTrivia();
+      assertThat(actualTrivia).hasSize(expectedTrivia.size());
+      for (int j = 0; j < actualTrivia.size(); j++) {
+        assertSameToken(actualTrivia.get(j).getToken(), expectedTrivia.get(j).getToken(), message);
+      }
+    }
+  }
+
+  private static void assertSameToken(Token actual, Token expected, String message) {
+    String description = message + " " + expected;
+    assertThat(actual.getType()).as(description).isSameAs(expected.getType());
+    assertThat(actual.getValue()).as(description).isEqualTo(expected.getValue());
+    assertThat(actual.getLine()).as(description).isEqualTo(expected.getLine());
+    assertThat(actual.getColumn()).as(description).isEqualTo(expected.getColumn());
+    assertThat(actual.getURI()).as(description).isEqualTo(expected.getURI());
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.ast.AstWalker;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Measures the dispatch of the nodes to the visitors by the {@link AstWalker} of SSLR, which looks up the visitors of
+ * each node in a map, and by {@link CssAstWalker}, which finds them in arrays indexed by the ordinal of the rule.
+ * This only concerns the streaming and incremental scanners: {@link org.sonar.css.CssAstScanner} walks with
+ * {@link AstWalker}. Times are only measured with the {@code benchmarks} profile.
+ */
+public class CssAstWalkerBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CssAstWalkerBenchmarkTest.class);
+  private static final String[] FILES = {"normalize.css", "animate.css"};
+  private static final int RUNS = 50;
+  private static final int VISITORS = 40;
+
+  @Test
+  public void should_dispatch_as_ast_walker() throws Exception {
+    for (String name : FILES) {
+      AstNode tree = parse(name);
+      List<CountingVisitor> visitors = visitors();
+
+      new AstWalker(visitors).walkAndVisit(tree);
+      long expected = events(visitors);
+      new CssAstWalker(visitors).walkAndVisit(tree);
+      assertThat(events(visitors)).isEqualTo(2 * expected);
+    }
+  }
+
+  @Test
+  public void dispatch_times() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    for (String name : FILES) {
+      AstNode tree = parse(name);
+      List<CountingVisitor> visitors = visitors();
+
+      long astWalker = nanos(new AstWalker(visitors), tree);
+      long cssAstWalker = nanos(new CssAstWalker(visitors), tree);
+      long nodes = count(tree);
+      LOG.info("{}: {} nodes, {} visitors: {} ns per node with AstWalker, {} ns per node with CssAstWalker",
+        new Object[] {name, nodes, visitors.size(), astWalker / RUNS / nodes, cssAstWalker / RUNS / nodes});
+    }
+  }
+
+  private static AstNode parse(String name) {
+    return CssDialect.CSS.parser(Charsets.UTF_8).parse(new File("src/test/resources/" + name));
+  }
+
+  private static long count(AstNode node) {
+    long count = 1;
+    for (AstNode child : node.getChildren()) {
+      count += count(child);
+    }
+    return count;
+  }
+
+  private static long nanos(AstWalker walker, AstNode tree) {
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      walker.walkAndVisit(tree);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static long nanos(CssAstWalker walker, AstNode tree) {
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      walker.walkAndVisit(tree);
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Visitors subscribed to a few rules each, as the checks are, and a visitor of the tokens.
+   */
+  private static List<CountingVisitor> visitors() {
+    CssGrammar[] rules = CssGrammar.values();
+    List<CountingVisitor> visitors = Lists.newArrayList();
+    for (int i = 0; i < VISITORS; i++) {
+      visitors.add(new CountingVisitor(false, rules[i % rules.length], rules[(i * 7 + 3) % rules.length],
+        CssGrammar.DECLARATION, CssGrammar.RULESET));
+    }
+    visitors.add(new CountingVisitor(true));
+    return visitors;
+  }
+
+  private static long events(List<CountingVisitor> visitors) {
+    long events = 0;
+    for (CountingVisitor visitor : visitors) {
+      events += visitor.events;
+    }
+    return events;
+  }
+
+  private static class CountingVisitor implements AstAndTokenVisitor {
+
+    private final boolean tokens;
+    private final List<AstNodeType> types;
+    private long events;
+
+    CountingVisitor(boolean tokens, AstNodeType... types) {
+      this.tokens = tokens;
+      this.types = ImmutableList.copyOf(types);
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return types;
+    }
+
+    @Override
+    public void visitFile(AstNode ast) {
+      events++;
+    }
+
+    @Override
+    public void leaveFile(AstNode ast) {
+      events++;
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      events++;
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      events++;
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      if (tokens) {
+        events++;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.ast.AstWalker;
+import org.junit.Test;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssAstWalkerTest {
+
+  @Test
+  public void should_visit_as_ast_walker() {
+    for (CssDialect dialect : new CssDialect[] {CssDialect.CSS, CssDialect.SCSS}) {
+      File file = new File("src/test/resources/normalize.css");
+      List<String> expected = Lists.newArrayList();
+      new AstWalker(visitors(expected)).walkAndVisit(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, dialect.createGrammar()).parse(file));
+
+      List<String> events = Lists.newArrayList();
+      new CssAstWalker(visitors(events)).walkAndVisit(dialect.parser(Charsets.UTF_8).parse(file));
+
+      assertThat(events).as(dialect.name()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void should_walk_without_file_callbacks() {
+    List<String> events = Lists.newArrayList();
+    AstNode tree = CssDialect.CSS.parser(Charsets.UTF_8).parse("a { color: red }");
+
+    new CssAstWalker(visitors(events)).walk(tree.getFirstDescendant(CssGrammar.DECLARATION));
+
+    assertThat(events.get(0)).isEqualTo("first visit DECLARATION 4-15");
+    assertThat(events).contains("second visit PROPERTY 4-9", "second leave PROPERTY");
+    assertThat(events.get(events.size() - 1)).isEqualTo("first leave DECLARATION");
+    assertThat(events).excludes("first visitFile DECLARATION", "first leaveFile DECLARATION");
+  }
+
+  private static List<Visitor> visitors(List<String> events) {
+    return ImmutableList.of(
+      new Visitor("first", events, CssGrammar.RULESET, CssGrammar.DECLARATION, CssGrammar.STYLESHEET),
+      new Visitor("second", events, CssGrammar.DECLARATION, CssGrammar.PROPERTY));
+  }
+
+  private static class Visitor implements AstAndTokenVisitor {
+
+    private final String name;
+    private final List<String> events;
+    private final List<AstNodeType> types;
+
+    Visitor(String name, List<String> events, AstNodeType... types) {
+      this.name = name;
+      this.events = events;
+      this.types = ImmutableList.copyOf(types);
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return types;
+    }
+
+    @Override
+    public void visitFile(AstNode ast) {
+      events.add(name + " visitFile " + ast.getName());
+    }
+
+    @Override
+    public void leaveFile(AstNode ast) {
+      events.add(name + " leaveFile " + ast.getName());
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      events.add(name + " visit " + ast.getName() + " " + ast.getFromIndex() + "-" + ast.getToIndex());
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      events.add(name + " leave " + ast.getName());
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      StringBuilder sb = new StringBuilder(name).append(" token ").append(token.getValue()).append(' ')
+        .append(token.getLine()).append(':').append(token.getColumn()).append(' ').append(token.getType());
+      for (Trivia trivia : token.getTrivia()) {
+        sb.append(" [").append(trivia.getToken().getValue()).append(' ').append(trivia.getToken().getLine()).append(':')
+          .append(trivia.getToken().getColumn()).append(']');
+      }
+      events.add(sb.toString());
+    }
+
+  }
+
+}
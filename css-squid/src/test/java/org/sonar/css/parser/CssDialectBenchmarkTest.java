@@ -0,0 +1,75 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Measures the cost of getting a parser, as paid by each scanner, CPD tokenizer and toolkit: building and compiling
+ * the grammar each time, versus reusing the grammar compiled once per JVM by {@link CssDialect}.
+ * Times are only measured with the {@code benchmarks} profile.
+ */
+public class CssDialectBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CssDialectBenchmarkTest.class);
+  private static final int RUNS = 20;
+
+  @Test
+  public void should_share_grammar_between_parsers() {
+    LexerlessGrammar grammar = CssDialect.CSS.grammar();
+
+    assertThat(CssDialect.CSS.parser(Charsets.UTF_8).getGrammar()).isSameAs(grammar);
+    assertThat(CssDialect.CSS.parser(Charsets.ISO_8859_1).getGrammar()).isSameAs(grammar);
+    assertThat(CssDialect.CSS.declarationsGrammar()).isSameAs(CssDialect.CSS.declarationsGrammar());
+    assertThat(CssDialect.SCSS.grammar()).isNotSameAs(grammar);
+  }
+
+  @Test
+  public void parser_creation_times() {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    long start = System.nanoTime();
+    CssDialect.CSS.warmUp();
+    long warmUp = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, CssGrammar.createGrammar());
+    }
+    long rebuilt = (System.nanoTime() - start) / RUNS;
+
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      CssDialect.CSS.parser(Charsets.UTF_8);
+    }
+    long shared = (System.nanoTime() - start) / RUNS;
+
+    LOG.info("Parser creation: {} us when the grammar is rebuilt, {} us when it is shared (warm-up: {} ms)",
+      new Object[] {rebuilt / 1000, shared / 1000, warmUp / 1000000});
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.ast.AstXmlPrinter;
+import org.junit.Test;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssDialectTest {
+
+  private static final int THREADS = 8;
+
+  @Test
+  public void should_build_grammar_once() {
+    assertThat(CssDialect.CSS.grammar()).isSameAs(CssDialect.CSS.grammar());
+    assertThat(CssDialect.CSS.parser(Charsets.UTF_8).getGrammar()).isSameAs(CssDialect.CSS.parser(Charsets.ISO_8859_1).getGrammar());
+    assertThat(CssDialect.CSS.grammar()).isNotSameAs(CssDialect.CSS_LEXER.grammar());
+  }
+
+  @Test
+  public void should_parse_as_parser_adapter() {
+    for (CssDialect dialect : CssDialect.values()) {
+      File file = new File("src/test/resources/normalize.css");
+      String expected = AstXmlPrinter.print(new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, dialect.createGrammar()).parse(file));
+      assertThat(AstXmlPrinter.print(dialect.parser(Charsets.UTF_8).parse(file))).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void should_be_shared_between_threads() throws Exception {
+    for (final CssDialect dialect : CssDialect.values()) {
+      final String source = Files.toString(new File("src/test/resources/animate.css"), Charsets.UTF_8);
+      final Parser<LexerlessGrammar> parser = dialect.parser(Charsets.UTF_8);
+      String expected = AstXmlPrinter.print(parser.parse(source));
+
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      try {
+        List<Future<String>> trees = Lists.newArrayList();
+        for (int i = 0; i < THREADS; i++) {
+          trees.add(executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+              return AstXmlPrinter.print(parser.parse(source));
+            }
+          }));
+        }
+        for (Future<String> tree : trees) {
+          assertThat(tree.get()).as(dialect.name()).isEqualTo(expected);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+}
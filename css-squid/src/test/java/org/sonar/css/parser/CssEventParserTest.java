@@ -0,0 +1,207 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.RecognitionException;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssEventParserTest {
+
+  @Test
+  public void rule_sets() {
+    assertThat(events("a, b > c:hover , d { color: red; margin: 0 auto !important }")).containsExactly(
+      "1:0 startStylesheet",
+      "1:0 startRuleSet",
+      "1:0 selector a",
+      "1:3 selector b > c:hover",
+      "1:17 selector d",
+      "1:21 declaration color=red",
+      "1:33 declaration margin=0 auto !important",
+      "1:59 endRuleSet",
+      "1:60 endStylesheet");
+  }
+
+  @Test
+  public void at_rules() {
+    assertThat(events("@import url(a.css);\n@media print {\n  a { color: red }\n}\n@font-face { src: url(a.woff) }")).containsExactly(
+      "1:0 startStylesheet",
+      "1:0 atRule import url(a.css)",
+      "2:0 startAtRule media print",
+      "3:2 startRuleSet",
+      "3:2 selector a",
+      "3:6 declaration color=red",
+      "3:17 endRuleSet",
+      "4:0 endAtRule",
+      "5:0 startAtRule font-face ",
+      "5:13 declaration src=url(a.woff)",
+      "5:30 endAtRule",
+      "5:31 endStylesheet");
+  }
+
+  @Test
+  public void values() {
+    assertThat(events("a { background: url(data:image/png;base64,iVBO) no-repeat; content: \"a;b}\"; font: 2px { family: fantasy };; }"))
+      .containsExactly(
+        "1:0 startStylesheet",
+        "1:0 startRuleSet",
+        "1:0 selector a",
+        "1:4 declaration background=url(data:image/png;base64,iVBO) no-repeat",
+        "1:59 declaration content=\"a;b}\"",
+        "1:76 declaration font=2px { family: fantasy }",
+        "1:108 endRuleSet",
+        "1:109 endStylesheet");
+  }
+
+  @Test
+  public void lines() {
+    assertThat(events("/* a\n */\r\na {\r\n\r\n  color: red;\r  b: c }")).containsExactly(
+      "1:0 startStylesheet",
+      "3:0 startRuleSet",
+      "3:0 selector a",
+      "5:2 declaration color=red",
+      "6:2 declaration b=c",
+      "6:7 endRuleSet",
+      "6:8 endStylesheet");
+  }
+
+  @Test
+  public void deep_nesting() {
+    int depth = 100000;
+    String source = Strings.repeat("@media print {", depth) + Strings.repeat("}", depth);
+    Counter counter = new Counter();
+    new CssEventParser(counter).parse(source);
+    assertThat(counter.count).isEqualTo(2 * depth + 2);
+  }
+
+  @Test
+  public void errors() {
+    assertError("a { color: red", "Parse error at line 1 column 15: missing closing brace");
+    assertError("a { color: red }\n}", "Parse error at line 2 column 1: unexpected closing brace");
+    assertError("a { color }", "Parse error at line 1 column 5: expected a declaration");
+    assertError("\n  color: red;", "Parse error at line 2 column 3: expected a rule set or an at-rule");
+    assertError("a { /* b }", "Parse error at line 1 column 5: unterminated comment");
+  }
+
+  private static void assertError(String source, String message) {
+    try {
+      new CssEventParser(new Recorder()).parse(source);
+    } catch (RecognitionException e) {
+      assertThat(e.getMessage()).isEqualTo(message);
+      return;
+    }
+    throw new AssertionError("Expected a parse error on " + source);
+  }
+
+  private static List<String> events(String source) {
+    Recorder recorder = new Recorder();
+    new CssEventParser(recorder).parse(source);
+    return recorder.events;
+  }
+
+  private static class Recorder implements CssEventHandler {
+
+    private final List<String> events = Lists.newArrayList();
+    private Locator locator;
+
+    private void add(String event) {
+      events.add(locator.line() + ":" + locator.column() + " " + event);
+    }
+
+    @Override
+    public void startStylesheet(Locator locator) {
+      this.locator = locator;
+      add("startStylesheet");
+    }
+
+    @Override
+    public void atRule(String name, String prelude) {
+      add("atRule " + name + " " + prelude);
+    }
+
+    @Override
+    public void startAtRule(String name, String prelude) {
+      add("startAtRule " + name + " " + prelude);
+    }
+
+    @Override
+    public void endAtRule() {
+      add("endAtRule");
+    }
+
+    @Override
+    public void startRuleSet() {
+      add("startRuleSet");
+    }
+
+    @Override
+    public void selector(String selector) {
+      add("selector " + selector);
+    }
+
+    @Override
+    public void declaration(String property, String value, boolean important) {
+      add("declaration " + property + "=" + value + (important ? " !important" : ""));
+    }
+
+    @Override
+    public void endRuleSet() {
+      add("endRuleSet");
+    }
+
+    @Override
+    public void endStylesheet() {
+      add("endStylesheet");
+    }
+
+  }
+
+  private static class Counter extends Recorder {
+
+    private int count;
+
+    @Override
+    public void startStylesheet(Locator locator) {
+      count++;
+    }
+
+    @Override
+    public void startAtRule(String name, String prelude) {
+      count++;
+    }
+
+    @Override
+    public void endAtRule() {
+      count++;
+    }
+
+    @Override
+    public void endStylesheet() {
+      count++;
+    }
+
+  }
+
+}
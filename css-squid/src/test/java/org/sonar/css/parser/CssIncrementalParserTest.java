@@ -0,0 +1,142 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Trivia;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssIncrementalParserTest {
+
+  private final CssIncrementalParser parser = new CssIncrementalParser(Charsets.UTF_8, CssDialect.CSS);
+
+  private static final String SOURCE = "/* header */\n"
+    + "a { color: red; }\n"
+    + "/* about b */ b { margin: 0 }  c { padding: 1px; }\n"
+    + "@media print {\n"
+    + "  d { display: none }\n"
+    + "}\n"
+    + "/* trailing */\n";
+
+  @Test
+  public void should_reparse_edited_statement_only() {
+    CssIncrementalParser.Result result = assertReparse(SOURCE, new TextEdit(SOURCE.indexOf("red"), 3, "blue"));
+
+    assertThat(result.removed()).hasSize(1);
+    assertThat(result.added()).hasSize(1);
+    assertThat(result.added().get(0).getTokenValue()).isEqualTo("a");
+    assertThat(result.firstLine()).isEqualTo(2);
+    assertThat(result.lineDelta()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_relocate_following_statements() {
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("color"), "\n\n  "));
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("margin"), "top: 1px; "));
+    assertReparse(SOURCE, new TextEdit(SOURCE.indexOf("0 }"), 1, "10px"));
+    assertReparse(SOURCE, TextEdit.delete(SOURCE.indexOf("  d {"), 1));
+    CssIncrementalParser.Result result = assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("; }"), ";\n"));
+    assertThat(result.lineDelta()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_keep_comments() {
+    assertReparse(SOURCE, new TextEdit(SOURCE.indexOf("about b"), 7, "about\nthe b"));
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("/* about"), "/* new */ "));
+    assertReparse(SOURCE, TextEdit.delete(SOURCE.indexOf("b { margin"), "b { margin: 0 }  ".length()));
+    assertReparse(SOURCE, TextEdit.delete(SOURCE.indexOf("a {"), "a { color: red; }\n".length()));
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.length(), "e { }"));
+  }
+
+  @Test
+  public void should_split_and_merge_statements() {
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("c {"), "x { } "));
+    CssIncrementalParser.Result result = assertReparse(SOURCE, new TextEdit(SOURCE.indexOf("}  c {"), "}  c {".length(), ";  c:"));
+    assertThat(result.removed()).hasSize(2);
+    assertThat(result.added()).hasSize(1);
+  }
+
+  @Test
+  public void should_fall_back_to_full_parse() {
+    assertReparse(SOURCE, TextEdit.insert(0, "z { }\n"));
+    assertReparse(SOURCE, TextEdit.insert(SOURCE.indexOf("b {"), " "));
+  }
+
+  @Test
+  public void should_support_crlf() {
+    String source = SOURCE.replace("\n", "\r\n");
+    assertReparse(source, TextEdit.insert(source.indexOf("margin"), "top: 1px;\r\n"));
+    assertReparse(source, TextEdit.insert(source.indexOf("margin"), "top: 1px;\r"));
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void should_fail_on_parse_error() {
+    parser.reparse(parser.parse(SOURCE), SOURCE, TextEdit.delete(SOURCE.indexOf("{"), 1));
+  }
+
+  @Test
+  public void should_reparse_real_code() throws Exception {
+    String source = Files.toString(new File("src/test/resources/normalize.css"), Charsets.UTF_8);
+    AstNode tree = parser.parse(source);
+    int offset = source.indexOf("font-family: sans-serif");
+    for (String text : new String[] {"font-family: serif", "\n", "font-size: 12px;\n", "x"}) {
+      CssIncrementalParser.Result result = parser.reparse(tree, source, TextEdit.insert(offset, text));
+      assertThat(print(result.tree())).isEqualTo(print(parser.parse(result.source())));
+      tree = result.tree();
+      source = result.source();
+    }
+  }
+
+  private CssIncrementalParser.Result assertReparse(String source, TextEdit edit) {
+    CssIncrementalParser.Result result = parser.reparse(parser.parse(source), source, edit);
+    assertThat(result.source()).isEqualTo(edit.apply(source));
+    assertThat(print(result.tree())).isEqualTo(print(parser.parse(result.source())));
+    return result;
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, 0, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, int depth, StringBuilder sb) {
+    sb.append(depth).append(' ').append(node.getName()).append(' ').append(node.getFromIndex()).append('-').append(node.getToIndex());
+    if (node.hasToken()) {
+      sb.append(" '").append(node.getTokenValue()).append("' ").append(node.getToken().getLine()).append(':').append(node.getToken().getColumn());
+      for (Trivia trivia : node.getToken().getTrivia()) {
+        sb.append(" [").append(trivia.getToken().getValue()).append(' ').append(trivia.getToken().getLine()).append(':')
+          .append(trivia.getToken().getColumn()).append(']');
+      }
+    }
+    sb.append('\n');
+    for (AstNode child : node.getChildren()) {
+      print(child, depth + 1, sb);
+    }
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.ast.AstXmlPrinter;
+import org.junit.Test;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssLexerGrammarTest {
+
+  private final ParserAdapter<LexerlessGrammar> regexpParser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, CssGrammar.createGrammar());
+  private final ParserAdapter<LexerlessGrammar> lexerParser = new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, CssGrammar.createLexerGrammar());
+
+  @Test
+  public void should_build_same_trees_as_regexp_grammar() throws Exception {
+    for (File file : new File("src/test/resources").listFiles()) {
+      if (file.isFile()) {
+        assertSameTree(Files.toString(file, Charsets.UTF_8));
+      }
+    }
+    assertSameTree("a\\26 b { content: \"\\201C\"; unicode-range: u+0025-00ff, u+4??; }");
+    assertSameTree("@font-face { src: url(data:font/woff;base64,d09GRgABAAAAAFZMABEAAAAA\\)) format('woff'); }");
+    assertSameTree(".a { *zoom: 1; _height: -.5em +3px 1.5% -x; margin: 0 auto !important }");
+    assertSameTree(".\u00FCber, #\u00F6l { filter: progid:DXImageTransform.Microsoft.gradient(startColorstr='#80000000'); }");
+  }
+
+  private void assertSameTree(String source) {
+    AstNode expected = regexpParser.parse(source);
+    AstNode actual = lexerParser.parse(source);
+    assertThat(AstXmlPrinter.print(actual)).isEqualTo(AstXmlPrinter.print(expected));
+  }
+
+}
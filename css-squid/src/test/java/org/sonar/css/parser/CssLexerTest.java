@@ -0,0 +1,133 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.css.parser.CssLexer.Kind;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CssLexerTest {
+
+  @Test
+  public void idents() {
+    assertThat(CssLexer.identLength("color:", 0)).isEqualTo(5);
+    assertThat(CssLexer.identLength("-moz-box-sizing", 0)).isEqualTo(15);
+    assertThat(CssLexer.identLength("*zoom", 0)).isEqualTo(5);
+    assertThat(CssLexer.identLength("b\\&W\\?", 0)).isEqualTo(6);
+    assertThat(CssLexer.identLength("\u00FCber", 0)).isEqualTo(4);
+    assertThat(CssLexer.identLength("1px", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void escapes() {
+    assertThat(CssLexer.escapeLength("\\26 B", 0)).isEqualTo(4);
+    assertThat(CssLexer.escapeLength("\\0000263", 0)).isEqualTo(7);
+    assertThat(CssLexer.escapeLength("\\A", 0)).isEqualTo(2);
+    assertThat(CssLexer.escapeLength("\\\n", 0)).isEqualTo(-1);
+    assertThat(CssLexer.escapeLength("\\", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void numbers() {
+    assertThat(CssLexer.numberLength("12px", 0)).isEqualTo(2);
+    assertThat(CssLexer.numberLength("-12.23", 0)).isEqualTo(6);
+    assertThat(CssLexer.numberLength(".5", 0)).isEqualTo(2);
+    assertThat(CssLexer.numberLength("5.", 0)).isEqualTo(1);
+    assertThat(CssLexer.numberLength("-", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void strings() {
+    assertThat(CssLexer.stringLength("\"a 'b'\" c", 0)).isEqualTo(7);
+    assertThat(CssLexer.stringLength("'it\\'s'", 0)).isEqualTo(7);
+    assertThat(CssLexer.stringLength("\"a\\\nb\"", 0)).isEqualTo(6);
+    assertThat(CssLexer.stringLength("\"a\nb\"", 0)).isEqualTo(-1);
+    assertThat(CssLexer.stringLength("\"abc", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void others() {
+    assertThat(CssLexer.unicodeRangeLength("u+0025-00ff;", 0)).isEqualTo(11);
+    assertThat(CssLexer.unicodeRangeLength("u+4??", 0)).isEqualTo(5);
+    assertThat(CssLexer.delimLength("!", 0)).isEqualTo(1);
+    assertThat(CssLexer.delimLength(":", 0)).isEqualTo(-1);
+    assertThat(CssLexer.whitespaceLength(" \t\r\n\fa", 0)).isEqualTo(5);
+    assertThat(CssLexer.commentLength("/* a */b", 0)).isEqualTo(7);
+    assertThat(CssLexer.commentLength("<!-- a -->", 0)).isEqualTo(10);
+    assertThat(CssLexer.commentLength("/* a", 0)).isEqualTo(-1);
+    assertThat(CssLexer.badCommentLength("a /* b", 2)).isEqualTo(4);
+    assertThat(CssLexer.badCommentLength("/* a */", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void raw_values() {
+    assertThat(CssLexer.rawValueLength("12px/1.5 a", 0)).isEqualTo(8);
+    assertThat(CssLexer.rawValueLength("red;", 0)).isEqualTo(3);
+    assertThat(CssLexer.rawValueLength("rgba(0,0,0,.5)}", 0)).isEqualTo(14);
+    assertThat(CssLexer.rawValueLength("url(a;b}.png);", 0)).isEqualTo(13);
+    assertThat(CssLexer.rawValueLength("url( a.png )", 0)).isEqualTo(4);
+    assertThat(CssLexer.rawValueLength("url('a.png')", 0)).isEqualTo(4);
+    assertThat(CssLexer.rawValueLength("a\\;b", 0)).isEqualTo(4);
+    assertThat(CssLexer.rawValueLength("a/* b */", 0)).isEqualTo(1);
+    assertThat(CssLexer.rawValueLength("a<!-- b -->", 0)).isEqualTo(1);
+    assertThat(CssLexer.rawValueLength("'a'", 0)).isEqualTo(-1);
+    assertThat(CssLexer.rawValueLength(" a", 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void stream() {
+    assertThat(kinds("@media screen{a.b:hover>c{color:#fff!important;margin:-1.5em 10% url( 'x.png' )}}")).containsExactly(
+      Kind.AT_KEYWORD, Kind.WHITESPACE, Kind.IDENT, Kind.OPEN_CURLY_BRACE,
+      Kind.IDENT, Kind.DELIM, Kind.IDENT, Kind.COLON, Kind.IDENT, Kind.DELIM, Kind.IDENT, Kind.OPEN_CURLY_BRACE,
+      Kind.IDENT, Kind.COLON, Kind.HASH, Kind.DELIM, Kind.IDENT, Kind.SEMICOLON,
+      Kind.IDENT, Kind.COLON, Kind.DIMENSION, Kind.WHITESPACE, Kind.PERCENTAGE, Kind.WHITESPACE, Kind.URL,
+      Kind.CLOSE_CURLY_BRACE, Kind.CLOSE_CURLY_BRACE, Kind.EOF);
+    assertThat(kinds("/* c */ rgba(0,0,0,.5) 'unterminated\n<!-- -->")).containsExactly(
+      Kind.COMMENT, Kind.WHITESPACE, Kind.FUNCTION, Kind.NUMBER, Kind.COMMA, Kind.NUMBER, Kind.COMMA, Kind.NUMBER, Kind.COMMA,
+      Kind.NUMBER, Kind.CLOSE_PARENTHESIS, Kind.WHITESPACE, Kind.BAD_STRING, Kind.WHITESPACE, Kind.COMMENT, Kind.EOF);
+  }
+
+  @Test
+  public void token_values() {
+    CssLexer lexer = new CssLexer("a { }");
+    lexer.next();
+    assertThat(lexer.tokenValue()).isEqualTo("a");
+    lexer.next();
+    lexer.next();
+    assertThat(lexer.tokenStart()).isEqualTo(2);
+    assertThat(lexer.tokenEnd()).isEqualTo(3);
+  }
+
+  private static List<Kind> kinds(String input) {
+    CssLexer lexer = new CssLexer(input);
+    List<Kind> kinds = Lists.newArrayList();
+    Kind kind;
+    do {
+      kind = lexer.next();
+      kinds.add(kind);
+    } while (kind != Kind.EOF);
+    return kinds;
+  }
+
+}
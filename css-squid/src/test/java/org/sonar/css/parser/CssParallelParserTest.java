@@ -0,0 +1,157 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Parser;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class CssParallelParserTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  private static final String SOURCE = "/* header */\n"
+    + "@charset \"UTF-8\";\n"
+    + "a { color: red; }\n"
+    + "/* about b */ b { margin: 0 }  c { content: \"};\"; background: url(x;y}.png) }\n"
+    + "@media print {\n"
+    + "  d { display: none }\n"
+    + "}\n"
+    + "/* trailing */\n";
+
+  @AfterClass
+  public static void shutdown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  public void should_split_at_top_level_statements() {
+    assertThat(CssParallelParser.split(SOURCE, 1)).isEqualTo(new int[] {
+      0,
+      SOURCE.indexOf("a {"),
+      SOURCE.indexOf("b {"),
+      SOURCE.indexOf("c {"),
+      SOURCE.indexOf("@media")});
+    assertThat(CssParallelParser.split(SOURCE, SOURCE.indexOf("c {"))).isEqualTo(new int[] {0, SOURCE.indexOf("c {")});
+    assertThat(CssParallelParser.split(SOURCE, SOURCE.length())).isEqualTo(new int[] {0});
+  }
+
+  @Test
+  public void should_not_split_ambiguous_source() {
+    assertThat(CssParallelParser.split("a { } } b { }", 1)).isNull();
+    assertThat(CssParallelParser.split("a { } b { ", 1)).isNull();
+    assertThat(CssParallelParser.split("a { content: \"x\n } b { }", 1)).isNull();
+    assertThat(CssParallelParser.split("a { } /* b { }", 1)).isNull();
+    assertThat(CssParallelParser.split("a:not(b { } c { }", 1)).isNull();
+  }
+
+  @Test
+  public void should_build_same_tree_as_sequential_parse() {
+    assertSameTree(SOURCE);
+    assertSameTree(SOURCE.replace("\n", "\r\n"));
+    assertSameTree(SOURCE.replace("\n", "\r"));
+    assertSameTree("a { }");
+    assertSameTree("a { } /* only comments */ /* after */");
+    assertSameTree("");
+  }
+
+  @Test
+  public void should_build_same_tree_on_real_code() throws Exception {
+    for (String name : new String[] {"normalize.css", "animate.css", "animate.min.css", "demo.autoprefixed.css", "form-elements.css"}) {
+      String source = Files.toString(new File("src/test/resources/" + name), Charsets.UTF_8);
+      assertSameTree(source);
+    }
+  }
+
+  @Test
+  public void should_parse_file() {
+    File file = new File("src/test/resources/normalize.css");
+    assertThat(print(parallelParser(CssDialect.CSS, 100).parse(file))).isEqualTo(print(CssDialect.CSS.parser(Charsets.UTF_8).parse(file)));
+  }
+
+  @Test
+  public void should_parse_scss_sequentially() {
+    assertSameTree(CssDialect.SCSS, "p {color:red;$width:5em;}\n// comment }\nq { }");
+  }
+
+  @Test
+  public void should_report_error_of_sequential_parse() {
+    String source = "a { }\nb { c }\nd { }";
+    try {
+      parallelParser(CssDialect.CSS, 1).parse(source);
+      fail();
+    } catch (RecognitionException e) {
+      try {
+        CssDialect.CSS.parser(Charsets.UTF_8).parse(source);
+        fail();
+      } catch (RecognitionException expected) {
+        assertThat(e.getLine()).isEqualTo(expected.getLine());
+        assertThat(e.getMessage()).isEqualTo(expected.getMessage());
+      }
+    }
+  }
+
+  private static void assertSameTree(String source) {
+    assertSameTree(CssDialect.CSS, source);
+    assertSameTree(CssDialect.CSS_LEXER, source);
+  }
+
+  private static void assertSameTree(CssDialect dialect, String source) {
+    assertThat(print(parallelParser(dialect, 1).parse(source))).isEqualTo(print(dialect.parser(Charsets.UTF_8).parse(source)));
+  }
+
+  private static Parser<LexerlessGrammar> parallelParser(CssDialect dialect, int minChunkLength) {
+    return new CssParallelParser(dialect, Charsets.UTF_8, POOL, minChunkLength);
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, 0, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, int depth, StringBuilder sb) {
+    sb.append(depth).append(' ').append(node.getName()).append(' ').append(node.getFromIndex()).append('-').append(node.getToIndex());
+    if (node.hasToken()) {
+      sb.append(" '").append(node.getTokenValue()).append("' ").append(node.getToken().getLine()).append(':').append(node.getToken().getColumn());
+      for (Trivia trivia : node.getToken().getTrivia()) {
+        sb.append(" [").append(trivia.getToken().getValue()).append(' ').append(trivia.getToken().getLine()).append(':')
+          .append(trivia.getToken().getColumn()).append(']');
+      }
+    }
+    sb.append('\n');
+    for (AstNode child : node.getChildren()) {
+      print(child, depth + 1, sb);
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Instruction;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Counts the rules invoked by the parser with and without first character dispatch of STATEMENT and ANY.
+ * Parse times are only measured with the {@code benchmarks} profile.
+ */
+public class FirstCharDispatchBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FirstCharDispatchBenchmarkTest.class);
+  private static final String[] FILES = {"normalize.css", "animate.css"};
+  private static final int RUNS = 20;
+
+  @Test
+  public void should_invoke_less_rules() throws Exception {
+    for (String name : FILES) {
+      char[] input = input(name);
+      assertThat(new Benchmark(CssGrammar.createGrammar(), input).invocations)
+        .isLessThan(new Benchmark(CssGrammar.createGrammarWithoutDispatch(), input).invocations);
+    }
+  }
+
+  @Test
+  public void parse_times() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    for (String name : FILES) {
+      char[] input = input(name);
+      Benchmark plain = new Benchmark(CssGrammar.createGrammarWithoutDispatch(), input);
+      Benchmark dispatch = new Benchmark(CssGrammar.createGrammar(), input);
+      LOG.info("{}: {} ms without dispatch, {} ms with dispatch", new Object[] {name, plain.millis(), dispatch.millis()});
+    }
+  }
+
+  private static char[] input(String name) throws Exception {
+    return Files.toString(new File("src/test/resources/" + name), Charsets.UTF_8).toCharArray();
+  }
+
+  private static class Benchmark {
+
+    private final CompiledGrammar compiled;
+    private final char[] input;
+    private long invocations;
+
+    Benchmark(LexerlessGrammar grammar, char[] input) {
+      this.compiled = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.rule(CssGrammar.STYLESHEET));
+      this.input = input;
+      countCalls(compiled.getInstructions());
+      assertThat(Machine.parse(input, compiled).isMatched()).isTrue();
+    }
+
+    /**
+     * Average time of a parse: the calls are still counted.
+     */
+    long millis() {
+      long start = System.nanoTime();
+      for (int i = 0; i < RUNS; i++) {
+        Machine.parse(input, compiled);
+      }
+      return (System.nanoTime() - start) / 1000000 / RUNS;
+    }
+
+    private void countCalls(Instruction[] instructions) {
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] instanceof Instruction.CallInstruction) {
+          final Instruction call = instructions[i];
+          instructions[i] = new Instruction() {
+            @Override
+            public void execute(Machine machine) {
+              invocations++;
+              call.execute(machine);
+            }
+          };
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Parses and walks trees which are much wider or deeper than usual, on a thread with a small stack: the stack does not
+ * grow with the size of the input. Times are only measured with the {@code benchmarks} profile.
+ */
+public class LargeTreeTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LargeTreeTest.class);
+  private static final long STACK_SIZE = 256 * 1024;
+  private static final int[] SELECTORS = {1000, 10000, 100000};
+  private static final int[] DEPTHS = {100, 1000, 10000};
+  private static final CssDialect[] DIALECTS = {CssDialect.CSS, CssDialect.CSS_LEXER, CssDialect.SCSS};
+
+  @Test
+  public void should_handle_long_selector_lists() throws Exception {
+    for (int selectors : SELECTORS) {
+      for (CssDialect dialect : DIALECTS) {
+        assertThat(countSelectors(dialect, selectorList(selectors))).as(dialect + " " + selectors).isEqualTo(selectors);
+      }
+    }
+  }
+
+  @Test
+  public void should_handle_deeply_nested_scss() throws Exception {
+    for (int depth : DEPTHS) {
+      assertThat(countNestedRules(nestedRules(depth))).isEqualTo(depth);
+    }
+  }
+
+  @Test
+  public void should_handle_deeply_nested_compact_tree() throws Exception {
+    final String source = nestedRules(10000);
+    int count = onSmallStack(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return count(CssDialect.SCSS.parseCompact(source).toAstNode(), CssGrammar.RULESET);
+      }
+    });
+    assertThat(count).isEqualTo(10000);
+  }
+
+  @Test
+  public void large_tree_times() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    for (int selectors : SELECTORS) {
+      String source = selectorList(selectors);
+      for (CssDialect dialect : DIALECTS) {
+        long start = System.nanoTime();
+        countSelectors(dialect, source);
+        LOG.info("{} selectors in one rule with {}: {} ms", new Object[] {selectors, dialect, (System.nanoTime() - start) / 1000000});
+      }
+    }
+    for (int depth : DEPTHS) {
+      String source = nestedRules(depth);
+      long start = System.nanoTime();
+      countNestedRules(source);
+      LOG.info("{} nested SCSS rules: {} ms", depth, (System.nanoTime() - start) / 1000000);
+    }
+  }
+
+  private static int countSelectors(final CssDialect dialect, final String source) throws Exception {
+    return onSmallStack(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return count(dialect.parser(Charsets.UTF_8).parse(source), CssGrammar.SUB_SELECTOR);
+      }
+    });
+  }
+
+  private static int countNestedRules(final String source) throws Exception {
+    return onSmallStack(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return count(CssDialect.SCSS.parser(Charsets.UTF_8).parse(source), CssGrammar.RULESET);
+      }
+    });
+  }
+
+  private static String selectorList(int selectors) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < selectors; i++) {
+      sb.append(i == 0 ? "" : ",\n").append(".icon-").append(i).append(":before");
+    }
+    return sb.append(" { content: \"x\" }\n").toString();
+  }
+
+  private static String nestedRules(int depth) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("a").append(i).append(" { color: red; ");
+    }
+    for (int i = 0; i < depth; i++) {
+      sb.append('}');
+    }
+    return sb.toString();
+  }
+
+  private static int count(AstNode tree, final AstNodeType type) {
+    final int[] count = new int[1];
+    new CssAstWalker(ImmutableList.of(new AstVisitor() {
+      @Override
+      public List<AstNodeType> getAstNodeTypesToVisit() {
+        return ImmutableList.of(type);
+      }
+
+      @Override
+      public void visitFile(AstNode ast) {
+        // nothing to do
+      }
+
+      @Override
+      public void leaveFile(AstNode ast) {
+        // nothing to do
+      }
+
+      @Override
+      public void visitNode(AstNode ast) {
+        count[0]++;
+      }
+
+      @Override
+      public void leaveNode(AstNode ast) {
+        // nothing to do
+      }
+    })).walkAndVisit(tree);
+    return count[0];
+  }
+
+  private static <T> T onSmallStack(Callable<T> callable) throws Exception {
+    FutureTask<T> task = new FutureTask<T>(callable);
+    Thread thread = new Thread(null, task, "small stack", STACK_SIZE);
+    thread.start();
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      throw new AssertionError(e.getCause());
+    }
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LazyBlocksTest {
+
+  private static final String[] FILES = {"normalize.css", "animate.css", "animate.min.css", "demo.autoprefixed.css",
+    "effeckt.autoprefixed.css", "form-elements.css", "syntax_highlight.css"};
+
+  private static final String SOURCE = "/* header */\n"
+    + "a, b > .c { color: red; /* inside */ background: url(x/*y;z}.png) no-repeat; }\n"
+    + "d { content: \"{;}\"; font: 12px/1.5 'a b' ; ;}\n"
+    + "@media print {\n"
+    + "  e { display: none }\n"
+    + "}\n"
+    + "@font-face { font-family: x; src: url(\"x.woff\") }\n"
+    + "f { }\n";
+
+  private final Parser<LexerlessGrammar> lazyParser = CssDialect.CSS_LAZY_BLOCKS.parser(Charsets.UTF_8);
+  private final Parser<LexerlessGrammar> parser = CssDialect.CSS.parser(Charsets.UTF_8);
+
+  @Test
+  public void should_not_parse_declarations() {
+    AstNode tree = lazyParser.parse(SOURCE);
+
+    assertThat(tree.hasDescendant(CssGrammar.DECLARATION)).isFalse();
+    assertThat(tree.getDescendants(CssGrammar.lazyDeclaration)).hasSize(7);
+    assertThat(LazyBlocks.isLazy(tree)).isTrue();
+    assertThat(print(tree.getDescendants(CssGrammar.SELECTOR))).isEqualTo(print(parser.parse(SOURCE).getDescendants(CssGrammar.SELECTOR)));
+    assertThat(print(tree.getDescendants(CssGrammar.PROPERTY))).isEqualTo(print(parser.parse(SOURCE).getDescendants(CssGrammar.PROPERTY)));
+    assertThat(print(tree.getDescendants(CssGrammar.STRING))).isEqualTo(print(parser.parse(SOURCE).getDescendants(CssGrammar.STRING)));
+  }
+
+  @Test
+  public void should_expand_to_full_tree() {
+    AstNode tree = lazyParser.parse(SOURCE);
+
+    assertThat(LazyBlocks.expand(tree)).isSameAs(tree);
+    assertThat(LazyBlocks.isLazy(tree)).isFalse();
+    assertThat(print(tree)).isEqualTo(print(parser.parse(SOURCE)));
+  }
+
+  @Test
+  public void should_expand_real_code() {
+    for (String name : FILES) {
+      File file = new File("src/test/resources/" + name);
+      AstNode tree = LazyBlocks.expand(lazyParser.parse(file));
+      assertThat(print(tree)).as(name).isEqualTo(print(parser.parse(file)));
+      assertThat(tree.getToken().getURI()).isEqualTo(file.toURI());
+    }
+  }
+
+  @Test
+  public void should_expand_one_block() {
+    AstNode tree = lazyParser.parse(SOURCE);
+    AstNode ruleSet = tree.getFirstDescendant(CssGrammar.RULESET);
+
+    LazyBlocks.expand(ruleSet);
+
+    assertThat(LazyBlocks.isLazy(ruleSet)).isFalse();
+    assertThat(LazyBlocks.isLazy(tree)).isTrue();
+    assertThat(print(ruleSet)).isEqualTo(print(parser.parse(SOURCE).getFirstDescendant(CssGrammar.RULESET)));
+  }
+
+  @Test
+  public void should_ignore_full_trees() {
+    AstNode tree = parser.parse(SOURCE);
+    String expected = print(tree);
+
+    assertThat(LazyBlocks.isLazy(tree)).isFalse();
+    assertThat(print(LazyBlocks.expand(tree))).isEqualTo(expected);
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void should_fail_on_invalid_declarations() {
+    AstNode tree = lazyParser.parse("a { color: red) }");
+    LazyBlocks.expand(tree);
+  }
+
+  private static String print(Iterable<AstNode> nodes) {
+    StringBuilder sb = new StringBuilder();
+    for (AstNode node : nodes) {
+      sb.append(print(node));
+    }
+    return sb.toString();
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, 0, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, int depth, StringBuilder sb) {
+    sb.append(depth).append(' ').append(node.getName()).append(' ').append(node.getFromIndex()).append('-').append(node.getToIndex());
+    if (node.hasToken()) {
+      sb.append(" '").append(node.getTokenValue()).append("' ").append(node.getToken().getLine()).append(':').append(node.getToken().getColumn());
+      for (Trivia trivia : node.getToken().getTrivia()) {
+        sb.append(" [").append(trivia.getToken().getValue()).append(' ').append(trivia.getToken().getLine()).append(':')
+          .append(trivia.getToken().getColumn()).append(']');
+      }
+    }
+    sb.append('\n');
+    for (AstNode child : node.getChildren()) {
+      print(child, depth + 1, sb);
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.css.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TokenTreeTest {
+
+  @After
+  public void clearDeadline() {
+    ParseDeadline.clear();
+  }
+
+  @Test
+  public void should_keep_tokens_and_comments() {
+    AstNode root = TokenTree.create(null, "/* a */ a {\n  color: red; /* b */\n}\n".toCharArray());
+
+    assertThat(root.is(TokenTree.TOKENS)).isTrue();
+    assertThat(root.getNumberOfChildren()).isEqualTo(8);
+    Token first = root.getFirstChild().getToken();
+    assertThat(first.getValue()).isEqualTo("a");
+    assertThat(first.getType()).isEqualTo(GenericTokenType.IDENTIFIER);
+    assertThat(first.getColumn()).isEqualTo(8);
+    assertThat(first.getTrivia()).hasSize(1);
+    assertThat(first.getTrivia().get(0).getToken().getValue()).isEqualTo("/* a */");
+
+    Token close = root.getChildren().get(6).getToken();
+    assertThat(close.getValue()).isEqualTo("}");
+    assertThat(close.getLine()).isEqualTo(3);
+    assertThat(close.getTrivia().get(0).getToken().getValue()).isEqualTo("/* b */");
+
+    Token eof = root.getLastChild().getToken();
+    assertThat(eof.getType()).isEqualTo(GenericTokenType.EOF);
+    assertThat(eof.getLine()).isEqualTo(4);
+  }
+
+  @Test
+  public void should_tokenize_empty_source() {
+    AstNode root = TokenTree.create(null, new char[0]);
+    assertThat(root.getNumberOfChildren()).isEqualTo(1);
+    assertThat(root.getToken().getType()).isEqualTo(GenericTokenType.EOF);
+  }
+
+  @Test
+  public void should_abandon_parse_after_deadline() {
+    char[] source = Strings.repeat("a { color: red; }\n", 1000).toCharArray();
+    ParseDeadline.start(0);
+    try {
+      CssDialect.CSS.parser(Charsets.UTF_8).parse(null, source);
+      fail();
+    } catch (ParseTimeoutException e) {
+      assertThat(e.getElapsedMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    ParseDeadline.clear();
+    assertThat(CssDialect.CSS.parser(Charsets.UTF_8).parse(null, source).hasDescendant(CssGrammar.RULESET)).isTrue();
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.css.parser.CssDialect;
+
+/**
+ * Compiles the CSS grammar in the background as soon as the plugin is loaded, so that the sensor and the CPD
+ * tokenizer find it ready, see {@link CssDialect}.
+ */
+public class CssGrammarWarmUp implements BatchExtension {
+
+  public void start() {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        CssDialect.CSS.warmUp();
+      }
+    }, "CSS grammar warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+}
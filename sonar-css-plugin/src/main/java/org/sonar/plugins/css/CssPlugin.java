@@ -22,8 +22,11 @@ package org.sonar.plugins.css;
 import com.google.common.collect.ImmutableList;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
 import org.sonar.api.SonarPlugin;
 import org.sonar.css.ast.visitors.SonarComponents;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
 import org.sonar.plugins.css.core.Css;
 import org.sonar.plugins.css.cpd.CssCpdMapping;
 
@@ -33,6 +36,64 @@ import org.sonar.plugins.css.cpd.CssCpdMapping;
     defaultValue = CssPlugin.FILE_SUFFIXES_DEFVALUE,
     name = "File suffixes",
     description = "Comma-separated list of suffixes for files to analyze. To not filter, leave the list empty.",
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.ANALYSIS_THREADS_KEY,
+    defaultValue = CssPlugin.ANALYSIS_THREADS_DEFVALUE,
+    name = "Analysis threads",
+    description = "Number of threads used to parse and check CSS files. Each thread gets its own parser and check instances. "
+      + "Use 1 to analyze files sequentially.",
+    type = PropertyType.INTEGER,
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.PARALLEL_PARSING_CHUNK_SIZE_KEY,
+    defaultValue = CssPlugin.PARALLEL_PARSING_CHUNK_SIZE_DEFVALUE,
+    name = "Parallel parsing chunk size",
+    description = "Files of at least twice this number of characters are split at top-level statements into parts of at least "
+      + "this size, which are parsed concurrently. Use 0 to parse each file on a single thread.",
+    type = PropertyType.INTEGER,
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.CACHE_KEY,
+    defaultValue = CssPlugin.CACHE_DEFVALUE,
+    name = "Analysis cache",
+    description = "Keep the results of each file in the work directory of the project, and reuse them while the file, the active "
+      + "rules and their parameters, the encoding, the analysis of the file, the file time budget, the CSS properties file "
+      + "and the build of the plugin do not change. Files whose parse exceeded the time budget are not kept.",
+    type = PropertyType.BOOLEAN,
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.FILE_TIME_BUDGET_KEY,
+    defaultValue = CssPlugin.FILE_TIME_BUDGET_DEFVALUE,
+    name = "File time budget",
+    description = "Number of milliseconds after which the parse of a file is abandoned. The file is then only tokenized: its lines, "
+      + "comments and the rules on its text, such as tabulations and trailing whitespaces, are still analyzed. Use 0 to not limit parses.",
+    type = PropertyType.INTEGER,
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.GENERATED_FILES_ANALYSIS_KEY,
+    defaultValue = CssPlugin.GENERATED_FILES_ANALYSIS_DEFVALUE,
+    name = "Analysis of minified, generated and vendored files",
+    description = "Files are minified when named *.min.css or when their lines are long, generated when their first comment says so "
+      + "or when they refer to a source map, vendored when in node_modules, bower_components or vendor, when they start with the "
+      + "banner of a known library, or when their SHA-1 is listed in " + CssPlugin.VENDORED_FILES_SHA1_KEY + ". Such files get all the "
+      + "active rules (full), all but the rules on formatting and whitespaces (reduced), or only metrics (metrics).",
+    type = PropertyType.SINGLE_SELECT_LIST,
+    options = {"full", "reduced", "metrics"},
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.PROPERTIES_FILE_KEY,
+    defaultValue = "",
+    name = "CSS properties file",
+    description = "Path of a file listing the vendor prefixes and the known properties, to use instead of the bundled list. "
+      + "See css-properties.txt in the plugin for the format. When the file cannot be read or is invalid, a warning is logged "
+      + "and the bundled list is used.",
+    global = true, project = true),
+  @Property(
+    key = CssPlugin.VENDORED_FILES_SHA1_KEY,
+    defaultValue = "",
+    name = "Vendored files",
+    description = "Comma-separated list of the SHA-1 of files copied from libraries, see " + CssPlugin.GENERATED_FILES_ANALYSIS_KEY + ".",
     global = true, project = true)
 })
 public class CssPlugin extends SonarPlugin {
@@ -40,12 +101,34 @@ public class CssPlugin extends SonarPlugin {
   public static final String FILE_SUFFIXES_KEY = "sonar.css.file.suffixes";
   public static final String FILE_SUFFIXES_DEFVALUE = "css";
 
+  public static final String ANALYSIS_THREADS_KEY = "sonar.css.analysis.threads";
+  public static final String ANALYSIS_THREADS_DEFVALUE = "1";
+
+  public static final String PARALLEL_PARSING_CHUNK_SIZE_KEY = "sonar.css.parallelParsing.chunkSize";
+  public static final String PARALLEL_PARSING_CHUNK_SIZE_DEFVALUE = "0";
+
+  public static final String CACHE_KEY = "sonar.css.cache";
+  public static final String CACHE_DEFVALUE = "true";
+
+  public static final String FILE_TIME_BUDGET_KEY = "sonar.css.fileTimeBudget";
+  public static final String FILE_TIME_BUDGET_DEFVALUE = "60000";
+
+  public static final String GENERATED_FILES_ANALYSIS_KEY = "sonar.css.generatedFiles.analysis";
+  public static final String GENERATED_FILES_ANALYSIS_DEFVALUE = "full";
+
+  public static final String VENDORED_FILES_SHA1_KEY = "sonar.css.vendoredFiles.sha1";
+
+  public static final String PROPERTIES_FILE_KEY = "sonar.css.properties.file";
+
   @Override
   public ImmutableList getExtensions() {
     return ImmutableList.of(
       Css.class,
+      CssGrammarWarmUp.class,
 
       SonarComponents.class,
+      AnalysisCache.class,
+      CpdTokenStore.class,
       CssSquidSensor.class,
 
       CssCpdMapping.class,
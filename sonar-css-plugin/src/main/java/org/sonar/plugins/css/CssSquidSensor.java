@@ -19,7 +19,18 @@
  */
 package org.sonar.plugins.css;
 
+import com.google.common.base.Function;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.FileSystem;
@@ -28,45 +39,109 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.config.Settings;
 import org.sonar.api.issue.Issuable;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.source.Highlightable;
 import org.sonar.css.CssAstScanner;
 import org.sonar.css.CssConfiguration;
+import org.sonar.css.PathDependentVisitor;
+import org.sonar.css.SourceFileListener;
 import org.sonar.css.api.CssMetric;
 import org.sonar.css.ast.visitors.SonarComponents;
 import org.sonar.css.checks.CheckList;
+import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.plugins.css.FileClassifier.Analysis;
+import org.sonar.plugins.css.FileClassifier.Origin;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
+import org.sonar.plugins.css.cache.FileAnalysis;
+import org.sonar.plugins.css.cache.FileAnalysis.Highlight;
+import org.sonar.plugins.css.cache.FileAnalysis.Violation;
+import org.sonar.plugins.css.cache.HighlightingRecorder;
 import org.sonar.plugins.css.core.Css;
-import org.sonar.squidbridge.AstScanner;
+import org.sonar.plugins.css.cpd.CpdTokenVisitor;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.CheckMessage;
-import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceFile;
-import org.sonar.squidbridge.indexer.QueryByType;
-import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
 
 import java.io.File;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class CssSquidSensor implements Sensor {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CssSquidSensor.class);
+
+  private static final Function<InputFile, File> TO_FILE = new Function<InputFile, File>() {
+    @Override
+    public File apply(InputFile inputFile) {
+      return inputFile.file();
+    }
+  };
+
+  private static final Map<CssMetric, Metric> SAVED_METRICS = ImmutableMap.<CssMetric, Metric>of(
+    CssMetric.LINES, CoreMetrics.LINES,
+    CssMetric.LINES_OF_CODE, CoreMetrics.NCLOC,
+    CssMetric.STATEMENTS, CoreMetrics.STATEMENTS,
+    CssMetric.COMMENT_LINES, CoreMetrics.COMMENT_LINES);
+
+  /**
+   * Number of files, per analysis thread, which are queued or scanned while the results of a previous file wait to be
+   * saved.
+   */
+  private static final int FILES_AHEAD_PER_THREAD = 2;
+
   private final CheckFactory checkFactory;
   private final NoSonarFilter noSonarFilter;
 
   private SensorContext context;
-  private AstScanner<LexerlessGrammar> scanner;
   private final SonarComponents sonarComponents;
   private final FileSystem fs;
+  private final Settings settings;
+  private final AnalysisCache cache;
+  private final CpdTokenStore cpdTokens;
+  private final Map<String, RuleKey> ruleKeys = Maps.newHashMap();
+  /**
+   * Files to analyze by absolute path, so that the file system is not searched for each file. The order of the file
+   * system is kept: results are saved in this order.
+   */
+  private final Map<String, InputFile> inputFiles = Maps.newLinkedHashMap();
+  /**
+   * Files with the same content as a file to scan, by absolute path of the file to scan: they get its results.
+   */
+  private final Map<String, List<InputFile>> copies = Maps.newHashMap();
+  private boolean deduplicate;
 
-  public CssSquidSensor(RulesProfile profile, SonarComponents sonarComponents, FileSystem fs, CheckFactory checkFactory, NoSonarFilter noSonarFilter) {
+  public CssSquidSensor(RulesProfile profile, SonarComponents sonarComponents, FileSystem fs, CheckFactory checkFactory, NoSonarFilter noSonarFilter,
+    Settings settings, AnalysisCache cache, CpdTokenStore cpdTokens) {
     this.checkFactory = checkFactory;
     this.sonarComponents = sonarComponents;
     this.fs = fs;
     this.noSonarFilter = noSonarFilter;
+    this.settings = settings;
+    this.cache = cache;
+    this.cpdTokens = cpdTokens;
   }
 
   @Override
@@ -78,57 +153,385 @@ public class CssSquidSensor implements Sensor {
   public void analyse(Project project, SensorContext context) {
     this.context = context;
 
-    Checks<SquidAstVisitor> checks = checkFactory.<SquidAstVisitor>create(CheckList.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getChecks());
-    Collection<SquidAstVisitor> checkList = checks.all();
+    CssProperties.load(Strings.emptyToNull(settings.getString(CssPlugin.PROPERTIES_FILE_KEY)));
     CssConfiguration conf = new CssConfiguration(fs.encoding());
-    this.scanner = CssAstScanner.create(conf, sonarComponents, checkList.toArray(new SquidAstVisitor[checkList.size()]));
-    scanner.scanFiles(Lists.newArrayList(filesToAnalyze()));
+    conf.parallelParsingChunkSize(Math.max(settings.getInt(CssPlugin.PARALLEL_PARSING_CHUNK_SIZE_KEY), 0));
+    conf.fileTimeBudget(Math.max(settings.getLong(CssPlugin.FILE_TIME_BUDGET_KEY), 0));
+    inputFiles.clear();
+    for (InputFile inputFile : filesToAnalyze()) {
+      inputFiles.put(inputFile.file().getAbsolutePath(), inputFile);
+    }
+    if (sonarComponents != null) {
+      sonarComponents.index(inputFiles.values());
+    }
+    Collection<File> files = Collections2.transform(inputFiles.values(), TO_FILE);
+    Map<String, String> cacheKeys = Maps.newHashMap();
+    Analysis generatedFilesAnalysis = generatedFilesAnalysis();
+    Map<Analysis, Collection<File>> filesByAnalysis = generatedFilesAnalysis == Analysis.FULL
+      ? ImmutableMap.<Analysis, Collection<File>>of(Analysis.FULL, files)
+      : classify(files, generatedFilesAnalysis, libraryHashes());
+    Checks<SquidAstVisitor> activeChecks = newChecks();
+    copies.clear();
+    deduplicate = !hasPathDependentChecks(activeChecks);
+    HighlightingRecorder recorder = (cache.isEnabled() || deduplicate) && sonarComponents != null
+      ? new HighlightingRecorder(sonarComponents.getResourcePerspectives(), fs)
+      : null;
+    if (recorder != null) {
+      recorder.index(inputFiles.values());
+    }
+    SonarComponents components = recorder == null ? sonarComponents : recorder;
 
-    Collection<SourceCode> squidSourceFiles = scanner.getIndex().search(
-      new QueryByType(SourceFile.class));
-    save(squidSourceFiles, checks);
+    String rules = cache.isEnabled() ? AnalysisCache.rules(activeChecks) : null;
+    for (Map.Entry<Analysis, Collection<File>> entry : filesByAnalysis.entrySet()) {
+      Collection<File> toScan = entry.getValue();
+      if (rules != null) {
+        toScan = replayCachedResults(toScan, cacheKeys, rules, entry.getKey(), configuration(conf));
+      }
+      analyse(conf, components, toScan, entry.getKey(), cacheKeys, recorder);
+    }
   }
 
-  private Iterable<File> filesToAnalyze() {
-    return fs.files(fs.predicates().and(fs.predicates().hasLanguage(Css.KEY), fs.predicates().hasType(Type.MAIN)));
+  private void analyse(CssConfiguration conf, @Nullable SonarComponents components, Collection<File> allFiles, Analysis analysis,
+    final Map<String, String> cacheKeys, @Nullable HighlightingRecorder recorder) {
+    Collection<File> files = deduplicate ? deduplicate(allFiles) : allFiles;
+    int threads = Math.min(analysisThreads(), files.size());
+    if (threads > 1) {
+      analyseInParallel(conf, files, threads, analysis, cacheKeys);
+    } else if (!files.isEmpty()) {
+      scan(conf, components, files, analysis, recorder, new ResultsHandler() {
+        @Override
+        public void handle(String path, FileAnalysis results) {
+          save(path, results, cacheKeys, false);
+        }
+      });
+    }
   }
 
-  private void save(Collection<SourceCode> squidSourceFiles, Checks<SquidAstVisitor> checks) {
-    for (SourceCode squidSourceFile : squidSourceFiles) {
-      SourceFile squidFile = (SourceFile) squidSourceFile;
+  /**
+   * Keeps one file per content, the other ones being added to {@link #copies}. Only the files whose size is the one of
+   * another file are hashed.
+   */
+  private List<File> deduplicate(Collection<File> files) {
+    Map<Long, Integer> sizes = Maps.newHashMap();
+    for (File file : files) {
+      Integer count = sizes.get(file.length());
+      sizes.put(file.length(), count == null ? 1 : (count + 1));
+    }
+    List<File> result = Lists.newArrayList();
+    Map<String, File> byContent = Maps.newHashMap();
+    for (File file : files) {
+      String hash = sizes.get(file.length()) > 1 ? cache.contentHash(file) : null;
+      File first = hash == null ? null : byContent.get(hash);
+      if (first == null) {
+        result.add(file);
+        if (hash != null) {
+          byContent.put(hash, file);
+        }
+      } else {
+        List<InputFile> sameContent = copies.get(first.getAbsolutePath());
+        if (sameContent == null) {
+          sameContent = Lists.newArrayList();
+          copies.put(first.getAbsolutePath(), sameContent);
+        }
+        sameContent.add(inputFiles.get(file.getAbsolutePath()));
+      }
+    }
+    return result;
+  }
 
-      InputFile sonarFile = fs.inputFile(fs.predicates().hasAbsolutePath(squidFile.getKey()));
+  /**
+   * Groups the files by analysis: the authored files get all the rules, the other ones the given analysis.
+   */
+  private Map<Analysis, Collection<File>> classify(Collection<File> files, Analysis generatedFilesAnalysis, Set<String> libraryHashes) {
+    FileClassifier classifier = new FileClassifier(libraryHashes, cache);
+    Map<Analysis, Collection<File>> result = Maps.newEnumMap(Analysis.class);
+    result.put(Analysis.FULL, Lists.<File>newArrayList());
+    result.put(generatedFilesAnalysis, Lists.<File>newArrayList());
+    for (File file : files) {
+      result.get(classifier.classify(file) == Origin.AUTHORED ? Analysis.FULL : generatedFilesAnalysis).add(file);
+    }
+    int generated = result.get(generatedFilesAnalysis).size();
+    if (generated > 0) {
+      LOG.info("{} minified, generated or vendored files get the {} analysis", generated, generatedFilesAnalysis.name().toLowerCase(Locale.ENGLISH));
+    }
+    return result;
+  }
 
-      if (sonarFile != null) {
-        noSonarFilter.addComponent(((DefaultInputFile) sonarFile).key(), squidFile.getNoSonarTagLines());
+  /**
+   * Saves the cached results of the unchanged files.
+   *
+   * @param fileAnalysis analysis of the given files, which is part of the keys of their results
+   * @return the files to scan, the cache keys of their results being added to the given map
+   */
+  private List<File> replayCachedResults(Collection<File> files, Map<String, String> cacheKeys, String rules, Analysis fileAnalysis,
+    String configuration) {
+    List<File> toScan = Lists.newArrayList();
+    for (File file : files) {
+      String key = cache.resultsKey(file, fs.encoding(), rules, fileAnalysis.name(), configuration);
+      FileAnalysis analysis = key == null ? null : cache.results(key);
+      InputFile sonarFile = analysis == null ? null : inputFiles.get(file.getAbsolutePath());
+      if (sonarFile == null) {
+        toScan.add(file);
+        if (key != null) {
+          cacheKeys.put(file.getAbsolutePath(), key);
+        }
+      } else {
+        save(sonarFile, analysis);
+        replayHighlighting(sonarFile, analysis.highlighting());
       }
+    }
+    return toScan;
+  }
+
+  private void replayHighlighting(InputFile sonarFile, @Nullable List<Highlight> highlighting) {
+    if (sonarComponents != null && highlighting != null) {
+      Highlightable.HighlightingBuilder builder = sonarComponents.newHighlighting(sonarFile);
+      for (Highlight highlight : highlighting) {
+        builder.highlight(highlight.from(), highlight.to(), highlight.type());
+      }
+      builder.done();
+    }
+  }
+
+  /**
+   * Each worker owns its parser and its check instances, so no visitor state is shared between threads. Workers do not
+   * call SonarQube, which is not thread-safe: they record the highlighting, and hand the results of each file back to
+   * the thread of the sensor, which saves them in the order of the given files, whatever the order of the scans.
+   * <p>
+   * Workers take the files from a queue, which the thread of the sensor only fills {@link #FILES_AHEAD_PER_THREAD} files
+   * per thread ahead of the file it saves: the results waiting to be saved do not grow with the number of files.
+   */
+  private void analyseInParallel(final CssConfiguration conf, Collection<File> files, int threads, final Analysis analysis,
+    Map<String, String> cacheKeys) {
+    final Map<String, SettableFuture<FileAnalysis>> results = Maps.newConcurrentMap();
+    final BlockingQueue<File> queue = new LinkedBlockingQueue<File>();
+    final HighlightingRecorder recorder = sonarComponents == null ? null
+      : new HighlightingRecorder(sonarComponents.getResourcePerspectives(), fs, false);
+    if (recorder != null) {
+      recorder.index(inputFiles.values());
+    }
+    final ResultsHandler handler = new ResultsHandler() {
+      @Override
+      public void handle(String path, FileAnalysis fileResults) {
+        results.get(path).set(fileResults);
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int i = 0; i < threads; i++) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            QueuedFiles queued = new QueuedFiles(queue);
+            try {
+              scan(conf, recorder, queued, analysis, recorder, handler);
+            } catch (Throwable e) {
+              // The thread of the sensor waits for the results of the files taken by this worker: it gets the failure instead
+              queued.fail(results, e);
+            }
+          }
+        });
+      }
+      Deque<File> pending = new ArrayDeque<File>();
+      for (File file : files) {
+        if (pending.size() == FILES_AHEAD_PER_THREAD * threads) {
+          saveNext(pending, results, cacheKeys);
+        }
+        results.put(file.getAbsolutePath(), SettableFuture.<FileAnalysis>create());
+        pending.add(file);
+        queue.add(file);
+      }
+      queue.add(QueuedFiles.END);
+      while (!pending.isEmpty()) {
+        saveNext(pending, results, cacheKeys);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Waits for the results of the first pending file, and saves them.
+   */
+  private void saveNext(Deque<File> pending, Map<String, SettableFuture<FileAnalysis>> results, Map<String, String> cacheKeys)
+    throws InterruptedException, ExecutionException {
+    String path = pending.remove().getAbsolutePath();
+    save(path, results.remove(path).get(), cacheKeys, true);
+  }
+
+  /**
+   * The results of each file are handed over as soon as it is scanned, and its messages are then released: the results
+   * of the whole project are never kept in memory.
+   */
+  private void scan(CssConfiguration conf, @Nullable SonarComponents components, Collection<File> files, Analysis analysis,
+    @Nullable final HighlightingRecorder recorder, final ResultsHandler handler) {
+    final RuleKeys checks = new RuleKeys(newChecks());
+    List<SquidAstVisitor> visitors = checks(checks.checks, analysis);
+    if (cpdTokens.isEnabled()) {
+      visitors.add(new CpdTokenVisitor(cpdTokens));
+    }
+    SourceFileListener listener = new SourceFileListener() {
+      @Override
+      public void fileScanned(SourceFile sourceFile, boolean timedOut) {
+        FileAnalysis results = toAnalysis(sourceFile, checks, recorder == null ? null : recorder.take(sourceFile.getKey()), timedOut);
+        release(sourceFile);
+        handler.handle(sourceFile.getKey(), results);
+      }
+    };
+    CssAstScanner.create(conf, components, listener, visitors.toArray(new SquidAstVisitor[visitors.size()])).scanFiles(files);
+  }
+
+  private Checks<SquidAstVisitor> newChecks() {
+    return checkFactory.<SquidAstVisitor>create(CheckList.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getChecks());
+  }
+
+  private static boolean hasPathDependentChecks(Checks<SquidAstVisitor> checks) {
+    for (SquidAstVisitor check : checks.all()) {
+      if (check instanceof PathDependentVisitor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<SquidAstVisitor> checks(Checks<SquidAstVisitor> checks, Analysis analysis) {
+    List<SquidAstVisitor> result = Lists.newArrayList();
+    for (SquidAstVisitor check : checks.all()) {
+      if (analysis == Analysis.FULL || (analysis == Analysis.REDUCED && !CheckList.getLayoutChecks().contains(check.getClass()))) {
+        result.add(check);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Fingerprint of what the results depend on, besides the files, the rules and the analysis: see {@link AnalysisCache}.
+   */
+  private static String configuration(CssConfiguration conf) {
+    return "properties=" + CssProperties.fingerprint() + ";fileTimeBudget=" + conf.fileTimeBudget();
+  }
+
+  private Analysis generatedFilesAnalysis() {
+    String value = settings.getString(CssPlugin.GENERATED_FILES_ANALYSIS_KEY);
+    return Analysis.of(Strings.isNullOrEmpty(value) ? CssPlugin.GENERATED_FILES_ANALYSIS_DEFVALUE : value);
+  }
 
-      saveMeasures(sonarFile, squidFile);
-      saveViolations(sonarFile, squidFile, checks);
+  private Set<String> libraryHashes() {
+    Set<String> result = Sets.newTreeSet();
+    for (String hash : settings.getStringArray(CssPlugin.VENDORED_FILES_SHA1_KEY)) {
+      result.add(hash.toLowerCase(Locale.ENGLISH));
     }
+    return result;
   }
 
-  private void saveMeasures(InputFile sonarFile, SourceFile squidFile) {
-    context.saveMeasure(sonarFile, CoreMetrics.LINES, squidFile.getDouble(CssMetric.LINES));
-    context.saveMeasure(sonarFile, CoreMetrics.NCLOC, squidFile.getDouble(CssMetric.LINES_OF_CODE));
-    context.saveMeasure(sonarFile, CoreMetrics.STATEMENTS, squidFile.getDouble(CssMetric.STATEMENTS));
-    context.saveMeasure(sonarFile, CoreMetrics.COMMENT_LINES, squidFile.getDouble(CssMetric.COMMENT_LINES));
+  private int analysisThreads() {
+    return Math.max(settings.getInt(CssPlugin.ANALYSIS_THREADS_KEY), 1);
   }
 
-  private void saveViolations(InputFile sonarFile, SourceFile squidFile, Checks<SquidAstVisitor> checks) {
+  private Iterable<InputFile> filesToAnalyze() {
+    return fs.inputFiles(fs.predicates().and(fs.predicates().hasLanguage(Css.KEY), fs.predicates().hasType(Type.MAIN)));
+  }
+
+  /**
+   * Saves the results of a scanned file, and of the files with the same content. Only called by the thread of the sensor.
+   *
+   * @param highlight whether the highlighting of the scanned file is saved, or was saved by its scan
+   */
+  private void save(String path, FileAnalysis analysis, Map<String, String> cacheKeys, boolean highlight) {
+    String cacheKey = cacheKeys.get(path);
+    if (cacheKey != null && !analysis.timedOut()) {
+      cache.putResults(cacheKey, analysis);
+    }
+    InputFile sonarFile = inputFiles.get(path);
+    save(sonarFile, analysis);
+    if (highlight) {
+      replayHighlighting(sonarFile, analysis.highlighting());
+    }
+    List<InputFile> sameContent = copies.get(path);
+    if (sameContent != null) {
+      for (InputFile copy : sameContent) {
+        save(copy, analysis);
+        replayHighlighting(copy, analysis.highlighting());
+      }
+    }
+  }
+
+  private static void release(SourceFile squidFile) {
+    if (squidFile.getCheckMessages() != null) {
+      squidFile.getCheckMessages().clear();
+    }
+    if (squidFile.getNoSonarTagLines() != null) {
+      squidFile.getNoSonarTagLines().clear();
+    }
+  }
+
+  private static FileAnalysis toAnalysis(SourceFile squidFile, RuleKeys checks, @Nullable List<Highlight> highlighting, boolean timedOut) {
+    Map<CssMetric, Double> measures = Maps.newEnumMap(CssMetric.class);
+    for (CssMetric metric : SAVED_METRICS.keySet()) {
+      measures.put(metric, squidFile.getDouble(metric));
+    }
+    List<Violation> violations = Lists.newArrayList();
     Collection<CheckMessage> messages = squidFile.getCheckMessages();
     if (messages != null) {
       for (CheckMessage message : messages) {
-        RuleKey activeRule = checks.ruleKey((SquidAstVisitor) message.getCheck());
-        Issuable issuable = sonarComponents.getResourcePerspectives().as(Issuable.class, sonarFile);
-        Issue issue = issuable.newIssueBuilder()
-          .ruleKey(RuleKey.of(activeRule.repository(), activeRule.rule()))
-          .line(message.getLine())
-          .message(message.formatDefaultMessage())
-          .build();
-        issuable.addIssue(issue);
+        violations.add(new Violation(checks.ruleKey(message.getCheck()), message.getLine(), message.formatDefaultMessage()));
       }
     }
+    Set<Integer> noSonarLines = squidFile.getNoSonarTagLines();
+    return new FileAnalysis(measures, violations, noSonarLines == null ? Sets.<Integer>newHashSet() : Sets.newHashSet(noSonarLines), highlighting,
+      timedOut);
+  }
+
+  private void save(InputFile sonarFile, FileAnalysis analysis) {
+    if (sonarFile != null) {
+      noSonarFilter.addComponent(((DefaultInputFile) sonarFile).key(), analysis.noSonarLines());
+    }
+
+    saveMeasures(sonarFile, analysis);
+    saveViolations(sonarFile, analysis);
+  }
+
+  private void saveMeasures(InputFile sonarFile, FileAnalysis analysis) {
+    for (Map.Entry<CssMetric, Metric> metric : SAVED_METRICS.entrySet()) {
+      context.saveMeasure(sonarFile, metric.getValue(), analysis.measures().get(metric.getKey()));
+    }
+  }
+
+  /**
+   * The issuable of the file is only looked up once, and rule keys are only parsed once per analysis: files may have
+   * thousands of issues, for instance of formatting rules.
+   */
+  private void saveViolations(InputFile sonarFile, FileAnalysis analysis) {
+    List<Violation> violations = analysis.violations();
+    if (violations.isEmpty()) {
+      return;
+    }
+    Issuable issuable = sonarComponents.getResourcePerspectives().as(Issuable.class, sonarFile);
+    List<Issue> issues = Lists.newArrayListWithCapacity(violations.size());
+    for (Violation violation : violations) {
+      issues.add(issuable.newIssueBuilder()
+        .ruleKey(ruleKey(violation.ruleKey()))
+        .line(violation.line())
+        .message(violation.message())
+        .build());
+    }
+    for (Issue issue : issues) {
+      issuable.addIssue(issue);
+    }
+  }
+
+  private RuleKey ruleKey(String ruleKey) {
+    RuleKey result = ruleKeys.get(ruleKey);
+    if (result == null) {
+      result = RuleKey.parse(ruleKey);
+      ruleKeys.put(ruleKey, result);
+    }
+    return result;
   }
 
   @Override
@@ -136,4 +539,96 @@ public class CssSquidSensor implements Sensor {
     return getClass().getSimpleName();
   }
 
+  /**
+   * Receives the results of each scanned file.
+   */
+  private interface ResultsHandler {
+    void handle(String path, FileAnalysis results);
+  }
+
+  /**
+   * Files taken from a queue shared by the analysis workers, until {@link #END} is taken: the scanner of a worker
+   * iterates over them once, and never asks for their number.
+   */
+  private static final class QueuedFiles extends AbstractCollection<File> {
+
+    static final File END = new File("");
+
+    private final BlockingQueue<File> queue;
+    @Nullable
+    private File current;
+
+    QueuedFiles(BlockingQueue<File> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public Iterator<File> iterator() {
+      return new AbstractIterator<File>() {
+        @Override
+        protected File computeNext() {
+          current = take();
+          return current == null ? endOfData() : current;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Fails the file being scanned and the ones left to take, so that the thread of the sensor does not wait for them.
+     */
+    void fail(Map<String, SettableFuture<FileAnalysis>> results, Throwable e) {
+      for (File file = current; file != null; file = take()) {
+        SettableFuture<FileAnalysis> future = results.get(file.getAbsolutePath());
+        if (future != null) {
+          future.setException(e);
+        }
+      }
+    }
+
+    /**
+     * @return the next file, or {@code null} once the queue is over or the worker is interrupted
+     */
+    @Nullable
+    private File take() {
+      try {
+        File file = queue.take();
+        if (file == END) {
+          // Left for the other workers
+          queue.add(END);
+          return null;
+        }
+        return file;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+  }
+
+  private static class RuleKeys {
+    private final Checks<SquidAstVisitor> checks;
+    private final Map<Object, String> ruleKeys = Maps.newIdentityHashMap();
+
+    RuleKeys(Checks<SquidAstVisitor> checks) {
+      this.checks = checks;
+    }
+
+    /**
+     * Key of the rule of the given check, looked up once per check instance.
+     */
+    String ruleKey(Object check) {
+      String ruleKey = ruleKeys.get(check);
+      if (ruleKey == null) {
+        ruleKey = checks.ruleKey((SquidAstVisitor) check).toString();
+        ruleKeys.put(check, ruleKey);
+      }
+      return ruleKey;
+    }
+  }
+
 }
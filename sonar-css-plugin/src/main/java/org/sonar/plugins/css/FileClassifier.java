@@ -0,0 +1,166 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Closeables;
+import org.sonar.plugins.css.cache.AnalysisCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tells the stylesheets written by the developers of a project from the ones which are minified, generated or copied
+ * from a library. A file is classified from its path, from the comments at its start and at its end, from the average
+ * length of its first lines and, when the hashes of libraries are known, from its SHA-1. Nothing is parsed, and only the
+ * start and the end of a file are read, unless its SHA-1 is needed.
+ */
+final class FileClassifier {
+
+  enum Origin {
+    AUTHORED,
+    MINIFIED,
+    GENERATED,
+    VENDORED
+  }
+
+  /**
+   * Analysis of the files which are not {@link Origin#AUTHORED}.
+   */
+  enum Analysis {
+    /**
+     * All the active rules.
+     */
+    FULL,
+    /**
+     * The active rules which are not on the layout of the source, see {@link org.sonar.css.checks.CheckList#getLayoutChecks()}.
+     */
+    REDUCED,
+    /**
+     * Metrics, highlighting and duplications, without any rule.
+     */
+    METRICS;
+
+    static Analysis of(String value) {
+      return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+  }
+
+  /**
+   * Average number of characters per line above which a file is minified.
+   */
+  static final int MINIFIED_LINE_LENGTH = 200;
+
+  private static final int HEADER_LENGTH = 1024;
+  private static final int TRAILER_LENGTH = 256;
+  /**
+   * Number of bytes at the start of a file from which the average length of its lines is computed.
+   */
+  private static final int LINES_SAMPLE_LENGTH = 8192;
+
+  private static final Pattern VENDORED_PATH = Pattern.compile("(^|[/\\\\])(node_modules|bower_components|vendor)[/\\\\]");
+  private static final Pattern MINIFIED_NAME = Pattern.compile("[.-]min\\.css$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern LIBRARY_BANNER = Pattern.compile(
+    "Bootstrap v\\d|Bootswatch|Bulma v\\d|Foundation for Sites|Font Awesome|Materialize v\\d|animate\\.css|jQuery UI|normalize\\.css v\\d|tailwindcss v\\d",
+    Pattern.CASE_INSENSITIVE);
+  private static final Pattern GENERATED_HEADER = Pattern.compile("@generated|generated by|auto-?generated|do not edit", Pattern.CASE_INSENSITIVE);
+  /**
+   * First comment of a file, possibly after a byte order mark and a {@code @charset} rule: group 1 is its text.
+   */
+  private static final Pattern FIRST_COMMENT = Pattern.compile(
+    "(?:\\xEF\\xBB\\xBF)?\\s*+(?:@charset\\s*+\"[^\"]*+\"\\s*+;\\s*+)?/\\*(.*?)(?:\\*/|$)", Pattern.DOTALL);
+  private static final String SOURCE_MAP = "sourceMappingURL=";
+
+  private final Set<String> libraryHashes;
+  private final AnalysisCache cache;
+
+  /**
+   * @param libraryHashes SHA-1 of the files of libraries, as 40 lower-case hexadecimal digits
+   * @param cache gives the SHA-1 of the files, which is computed once per analysis
+   */
+  FileClassifier(Set<String> libraryHashes, AnalysisCache cache) {
+    this.libraryHashes = ImmutableSet.copyOf(libraryHashes);
+    this.cache = cache;
+  }
+
+  /**
+   * Files which can not be read are {@link Origin#AUTHORED}: their analysis reports the error.
+   */
+  Origin classify(File file) {
+    if (VENDORED_PATH.matcher(file.getPath()).find()) {
+      return Origin.VENDORED;
+    }
+    byte[] start;
+    byte[] end;
+    RandomAccessFile in = null;
+    try {
+      in = new RandomAccessFile(file, "r");
+      long length = in.length();
+      start = new byte[(int) Math.min(length, LINES_SAMPLE_LENGTH)];
+      in.readFully(start);
+      end = new byte[(int) Math.min(length, TRAILER_LENGTH)];
+      in.seek(length - end.length);
+      in.readFully(end);
+    } catch (IOException e) {
+      return Origin.AUTHORED;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+    // Markers are ASCII: the bytes do not need to be decoded with the encoding of the file
+    String header = new String(start, 0, Math.min(start.length, HEADER_LENGTH), Charsets.ISO_8859_1);
+    if (LIBRARY_BANNER.matcher(header).find() || (!libraryHashes.isEmpty() && libraryHashes.contains(cache.contentHash(file)))) {
+      return Origin.VENDORED;
+    }
+    String trailer = new String(end, Charsets.ISO_8859_1);
+    if (GENERATED_HEADER.matcher(firstComment(header)).find() || trailer.contains(SOURCE_MAP)) {
+      return Origin.GENERATED;
+    }
+    if (MINIFIED_NAME.matcher(file.getName()).find() || averageLineLength(start) > MINIFIED_LINE_LENGTH) {
+      return Origin.MINIFIED;
+    }
+    return Origin.AUTHORED;
+  }
+
+  /**
+   * Text of the first comment of the header, truncated at the end of the header, or an empty string when the file does
+   * not start with a comment.
+   */
+  private static String firstComment(String header) {
+    Matcher matcher = FIRST_COMMENT.matcher(header);
+    return matcher.lookingAt() ? matcher.group(1) : "";
+  }
+
+  private static int averageLineLength(byte[] bytes) {
+    int lines = 1;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '\n' || (bytes[i] == '\r' && (i + 1 == bytes.length || bytes[i + 1] != '\n'))) {
+        lines++;
+      }
+    }
+    return bytes.length / lines;
+  }
+
+}
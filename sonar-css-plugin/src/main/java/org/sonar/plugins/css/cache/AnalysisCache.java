@@ -0,0 +1,330 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.config.Settings;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.css.CssPlugin;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Results of previous analyses, stored in the work directory of the project, so that unchanged files are neither parsed
+ * nor checked again.
+ * <p>
+ * The results of a file are keyed by its content, its charset, the active rules with their parameters, the analysis it
+ * gets, the settings and data the checks depend on, such as the time budget and the properties known by the checks, and the
+ * version of the plugin: any change gives another key. Its tokens for the copy-paste detection do not depend on the rules.
+ * Each entry also holds its format, the version of the plugin and a checksum of its content: an entry which does not
+ * match them is deleted, and the file is analyzed again.
+ */
+public class AnalysisCache implements BatchExtension {
+
+  private static final int FORMAT = 1;
+  private static final String DIRECTORY = "css-cache";
+  private static final String RESULTS = ".results";
+  private static final String TOKENS = ".tokens";
+
+  @Nullable
+  private final File directory;
+  @Nullable
+  private final String version;
+  private final Map<String, String> contentHashes = Maps.newConcurrentMap();
+
+  public AnalysisCache(FileSystem fs, Settings settings) {
+    this(settings.getBoolean(CssPlugin.CACHE_KEY) && fs.workDir() != null ? new File(fs.workDir(), DIRECTORY) : null, pluginVersion());
+  }
+
+  /**
+   * @param directory directory of the entries, or {@code null} to disable the cache
+   * @param version version of the plugin, or {@code null} if it is unknown: the cache is then disabled
+   */
+  AnalysisCache(@Nullable File directory, @Nullable String version) {
+    this.directory = version == null ? null : directory;
+    this.version = version;
+  }
+
+  public boolean isEnabled() {
+    return directory != null;
+  }
+
+  /**
+   * @param analysis analysis of the given file: files with the same content do not get the same results when one of them
+   * is classified as vendored, for instance
+   * @param configuration fingerprint of the other settings and data the results depend on
+   * @return the key of the results of the given file, or {@code null} if the cache is disabled or the file can not be read
+   */
+  @CheckForNull
+  public String resultsKey(File file, Charset charset, String rules, String analysis, String configuration) {
+    String contentHash = isEnabled() ? contentHash(file) : null;
+    return contentHash == null ? null
+      : sha1(RESULTS + '\n' + version + '\n' + charset.name() + '\n' + rules + '\n' + analysis + '\n' + configuration + '\n' + contentHash);
+  }
+
+  /**
+   * @return the key of the tokens of the given file, or {@code null} if the cache is disabled or the file can not be read
+   */
+  @CheckForNull
+  public String tokensKey(File file, Charset charset) {
+    String contentHash = isEnabled() ? contentHash(file) : null;
+    return contentHash == null ? null : sha1(TOKENS + '\n' + version + '\n' + charset.name() + '\n' + contentHash);
+  }
+
+  @CheckForNull
+  public FileAnalysis results(String key) {
+    DataInputStream in = read(key + RESULTS);
+    if (in == null) {
+      return null;
+    }
+    try {
+      return FileAnalysis.read(in);
+    } catch (IOException e) {
+      return discard(key + RESULTS);
+    } catch (IllegalArgumentException e) {
+      return discard(key + RESULTS);
+    }
+  }
+
+  public void putResults(String key, FileAnalysis analysis) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      analysis.write(new DataOutputStream(bytes));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    write(key + RESULTS, bytes.toByteArray());
+  }
+
+  @CheckForNull
+  public FileTokens tokens(String key) {
+    DataInputStream in = read(key + TOKENS);
+    if (in == null) {
+      return null;
+    }
+    try {
+      return FileTokens.read(in);
+    } catch (IOException e) {
+      return discard(key + TOKENS);
+    } catch (IllegalArgumentException e) {
+      return discard(key + TOKENS);
+    }
+  }
+
+  public void putTokens(String key, FileTokens tokens) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      tokens.write(new DataOutputStream(bytes));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    write(key + TOKENS, bytes.toByteArray());
+  }
+
+  /**
+   * Active rules of the given checks, with the values of their parameters.
+   */
+  public static <C> String rules(Checks<C> checks) {
+    List<String> rules = Lists.newArrayList();
+    for (C check : checks.all()) {
+      StringBuilder rule = new StringBuilder(String.valueOf(checks.ruleKey(check)));
+      for (Class<?> c = check.getClass(); c != null; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (field.isAnnotationPresent(RuleProperty.class)) {
+            rule.append(' ').append(field.getName()).append('=').append(value(check, field));
+          }
+        }
+      }
+      rules.add(rule.toString());
+    }
+    Collections.sort(rules);
+    return rules.toString();
+  }
+
+  private static Object value(Object check, Field field) {
+    field.setAccessible(true);
+    try {
+      return field.get(check);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the payload of the entry, or {@code null} if there is no valid entry
+   */
+  @CheckForNull
+  private DataInputStream read(String name) {
+    File file = new File(directory, name);
+    if (!isEnabled() || !file.isFile()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new ByteArrayInputStream(Files.toByteArray(file)));
+      if (in.readInt() != FORMAT || !version.equals(in.readUTF())) {
+        return discard(name);
+      }
+      long checksum = in.readLong();
+      int length = in.readInt();
+      if (length < 0 || length > in.available()) {
+        return discard(name);
+      }
+      byte[] payload = new byte[length];
+      in.readFully(payload);
+      if (checksum != checksum(payload)) {
+        return discard(name);
+      }
+      return new DataInputStream(new ByteArrayInputStream(payload));
+    } catch (IOException e) {
+      return discard(name);
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Entries are written to a temporary file which is then renamed, so that a concurrent analysis never reads a partial
+   * entry. The cache is best effort: an entry which can not be written is skipped.
+   */
+  private void write(String name, byte[] payload) {
+    if (!isEnabled()) {
+      return;
+    }
+    File tmp = null;
+    try {
+      Files.createParentDirs(new File(directory, name));
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(FORMAT);
+      out.writeUTF(version);
+      out.writeLong(checksum(payload));
+      out.writeInt(payload.length);
+      out.write(payload);
+      tmp = File.createTempFile(name, ".tmp", directory);
+      Files.write(bytes.toByteArray(), tmp);
+      File target = new File(directory, name);
+      if (!tmp.renameTo(target) && (!target.delete() || !tmp.renameTo(target))) {
+        tmp.delete();
+      }
+    } catch (IOException e) {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  @CheckForNull
+  private <T> T discard(String name) {
+    new File(directory, name).delete();
+    return null;
+  }
+
+  /**
+   * SHA-1 of the content of the given file, which is only read once per analysis, even when the cache is disabled.
+   *
+   * @return {@code null} if the file can not be read
+   */
+  @CheckForNull
+  public String contentHash(File file) {
+    String key = file.getAbsolutePath();
+    String hash = contentHashes.get(key);
+    if (hash == null) {
+      try {
+        hash = sha1(Files.toByteArray(file));
+      } catch (IOException e) {
+        return null;
+      }
+      contentHashes.put(key, hash);
+    }
+    return hash;
+  }
+
+  private static long checksum(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private static String sha1(String s) {
+    return sha1(s.getBytes(Charsets.UTF_8));
+  }
+
+  private static String sha1(byte[] bytes) {
+    try {
+      return String.format("%040x", new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(bytes)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Version of the plugin and time of its build, written by the build, see {@code version.properties}: snapshots of
+   * the same version do not share their results.
+   */
+  @CheckForNull
+  static String pluginVersion() {
+    InputStream in = AnalysisCache.class.getResourceAsStream("version.properties");
+    if (in == null) {
+      return null;
+    }
+    try {
+      Properties properties = new Properties();
+      properties.load(in);
+      String version = properties.getProperty("version");
+      String build = properties.getProperty("build");
+      if (version == null || version.startsWith("${") || build == null || build.startsWith("${")) {
+        return null;
+      }
+      return version + '-' + build;
+    } catch (IOException e) {
+      return null;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.config.Settings;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Tokens of the files parsed by {@link org.sonar.plugins.css.CssSquidSensor}, kept until the copy-paste detection
+ * asks for them, so that files are not parsed again by {@link org.sonar.plugins.css.cpd.CssTokenizer}.
+ * <p>
+ * At most {@link #MAX_TOKENS_IN_MEMORY} tokens are kept in memory, the next ones are spilled to files of the work directory
+ * of the project. Tokens which can not be spilled are dropped, and the file is then parsed again.
+ */
+public class CpdTokenStore implements BatchExtension {
+
+  static final int MAX_TOKENS_IN_MEMORY = 1000000;
+  private static final String DIRECTORY = "css-cpd";
+
+  private final boolean enabled;
+  @Nullable
+  private final File spillDirectory;
+  private final int maxTokensInMemory;
+  private final Map<String, FileTokens> inMemory = Maps.newHashMap();
+  private final Map<String, File> spilled = Maps.newHashMap();
+  private int tokensInMemory;
+
+  public CpdTokenStore(FileSystem fs, Settings settings) {
+    this(!settings.getBoolean("sonar.cpd.skip") && !settings.getBoolean("sonar.cpd.css.skip"),
+      fs.workDir() == null ? null : new File(fs.workDir(), DIRECTORY), MAX_TOKENS_IN_MEMORY);
+  }
+
+  CpdTokenStore(boolean enabled, @Nullable File spillDirectory, int maxTokensInMemory) {
+    this.enabled = enabled;
+    this.spillDirectory = spillDirectory;
+    this.maxTokensInMemory = maxTokensInMemory;
+    if (spillDirectory != null) {
+      deleteSpilled(spillDirectory);
+    }
+  }
+
+  /**
+   * @return whether the copy-paste detection is going to run, and tokens are worth keeping
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public synchronized void put(File file, FileTokens tokens) {
+    if (!enabled) {
+      return;
+    }
+    String key = file.getAbsolutePath();
+    if (tokensInMemory + tokens.size() <= maxTokensInMemory) {
+      inMemory.put(key, tokens);
+      tokensInMemory += tokens.size();
+    } else {
+      File spill = spill(tokens);
+      if (spill != null) {
+        spilled.put(key, spill);
+      }
+    }
+  }
+
+  /**
+   * @return the tokens of the given file, or {@code null} if the file was not parsed; they are then forgotten
+   */
+  @CheckForNull
+  public synchronized FileTokens take(File file) {
+    String key = file.getAbsolutePath();
+    FileTokens tokens = inMemory.remove(key);
+    if (tokens != null) {
+      tokensInMemory -= tokens.size();
+      return tokens;
+    }
+    File spill = spilled.remove(key);
+    return spill == null ? null : unspill(spill);
+  }
+
+  @CheckForNull
+  private File spill(FileTokens tokens) {
+    if (spillDirectory == null) {
+      return null;
+    }
+    File spill = null;
+    DataOutputStream out = null;
+    try {
+      Files.createParentDirs(new File(spillDirectory, "tokens"));
+      spill = File.createTempFile("tokens", ".bin", spillDirectory);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spill)));
+      tokens.write(out);
+      out.close();
+      return spill;
+    } catch (IOException e) {
+      Closeables.closeQuietly(out);
+      if (spill != null) {
+        spill.delete();
+      }
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static FileTokens unspill(File spill) {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill)));
+      return FileTokens.read(in);
+    } catch (IOException e) {
+      return null;
+    } finally {
+      Closeables.closeQuietly(in);
+      spill.delete();
+    }
+  }
+
+  private static void deleteSpilled(File directory) {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.sonar.css.api.CssMetric;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Results of the analysis of a file, as saved by the sensor: measures, issues, NoSonar lines and highlighting.
+ * They are stored by {@link AnalysisCache} to be saved again when neither the file, nor the rules, nor the plugin change,
+ * unless the parse of the file timed out.
+ */
+public final class FileAnalysis {
+
+  private final Map<CssMetric, Double> measures;
+  private final List<Violation> violations;
+  private final Set<Integer> noSonarLines;
+  private final List<Highlight> highlighting;
+  private final boolean timedOut;
+
+  /**
+   * @param highlighting ranges highlighted in the file, or {@code null} if the file was not highlighted
+   * @param timedOut whether the parse of the file exceeded its time budget, so that it was only tokenized
+   */
+  public FileAnalysis(Map<CssMetric, Double> measures, List<Violation> violations, Set<Integer> noSonarLines,
+    @Nullable List<Highlight> highlighting, boolean timedOut) {
+    this.measures = ImmutableMap.copyOf(measures);
+    this.violations = ImmutableList.copyOf(violations);
+    this.noSonarLines = ImmutableSet.copyOf(noSonarLines);
+    this.highlighting = highlighting == null ? null : ImmutableList.copyOf(highlighting);
+    this.timedOut = timedOut;
+  }
+
+  public Map<CssMetric, Double> measures() {
+    return measures;
+  }
+
+  public List<Violation> violations() {
+    return violations;
+  }
+
+  public Set<Integer> noSonarLines() {
+    return noSonarLines;
+  }
+
+  @CheckForNull
+  public List<Highlight> highlighting() {
+    return highlighting;
+  }
+
+  /**
+   * Results of a file which timed out depend on the speed of the machine and on the time budget: they are not cached.
+   */
+  public boolean timedOut() {
+    return timedOut;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(measures.size());
+    for (Map.Entry<CssMetric, Double> measure : measures.entrySet()) {
+      writeString(out, measure.getKey().name());
+      out.writeDouble(measure.getValue());
+    }
+    out.writeInt(violations.size());
+    for (Violation violation : violations) {
+      writeString(out, violation.ruleKey);
+      out.writeInt(violation.line == null ? -1 : violation.line);
+      writeString(out, violation.message);
+    }
+    out.writeInt(noSonarLines.size());
+    for (int line : noSonarLines) {
+      out.writeInt(line);
+    }
+    out.writeInt(highlighting == null ? -1 : highlighting.size());
+    if (highlighting != null) {
+      for (Highlight highlight : highlighting) {
+        out.writeInt(highlight.from);
+        out.writeInt(highlight.to);
+        writeString(out, highlight.type);
+      }
+    }
+  }
+
+  /**
+   * @throws IOException if the input is truncated
+   * @throws IllegalArgumentException if the input is corrupted
+   */
+  static FileAnalysis read(DataInput in) throws IOException {
+    ImmutableMap.Builder<CssMetric, Double> measures = ImmutableMap.builder();
+    for (int i = count(in); i > 0; i--) {
+      measures.put(CssMetric.valueOf(readString(in)), in.readDouble());
+    }
+    ImmutableList.Builder<Violation> violations = ImmutableList.builder();
+    for (int i = count(in); i > 0; i--) {
+      String ruleKey = readString(in);
+      int line = in.readInt();
+      violations.add(new Violation(ruleKey, line < 0 ? null : line, readString(in)));
+    }
+    ImmutableSet.Builder<Integer> noSonarLines = ImmutableSet.builder();
+    for (int i = count(in); i > 0; i--) {
+      noSonarLines.add(in.readInt());
+    }
+    List<Highlight> highlighting = null;
+    int highlights = in.readInt();
+    if (highlights >= 0) {
+      ImmutableList.Builder<Highlight> builder = ImmutableList.builder();
+      for (int i = highlights; i > 0; i--) {
+        builder.add(new Highlight(in.readInt(), in.readInt(), readString(in)));
+      }
+      highlighting = builder.build();
+    }
+    return new FileAnalysis(measures.build(), violations.build(), noSonarLines.build(), highlighting, false);
+  }
+
+  /**
+   * Unlike {@link DataOutput#writeUTF(String)}, strings are not limited to 64 KB: tokens of minified files may be longer.
+   */
+  static void writeString(DataOutput out, String s) throws IOException {
+    out.writeInt(s.length());
+    out.writeChars(s);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    char[] chars = new char[count(in)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = in.readChar();
+    }
+    return new String(chars);
+  }
+
+  static int count(DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count: " + count);
+    }
+    return count;
+  }
+
+  /**
+   * Issue raised by a check.
+   */
+  public static final class Violation {
+
+    private final String ruleKey;
+    private final Integer line;
+    private final String message;
+
+    public Violation(String ruleKey, @Nullable Integer line, String message) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.message = message;
+    }
+
+    public String ruleKey() {
+      return ruleKey;
+    }
+
+    @CheckForNull
+    public Integer line() {
+      return line;
+    }
+
+    public String message() {
+      return message;
+    }
+
+  }
+
+  /**
+   * Range of characters highlighted with a type of text.
+   */
+  public static final class Highlight {
+
+    private final int from;
+    private final int to;
+    private final String type;
+
+    public Highlight(int from, int to, String type) {
+      this.from = from;
+      this.to = to;
+      this.type = type;
+    }
+
+    public int from() {
+      return from;
+    }
+
+    public int to() {
+      return to;
+    }
+
+    public String type() {
+      return type;
+    }
+
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.collect.Lists;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Images and lines of the tokens of a file, as given to the copy-paste detection, see
+ * {@link org.sonar.plugins.css.cpd.CssTokenizer}.
+ */
+public final class FileTokens {
+
+  private final List<String> images = Lists.newArrayList();
+  private final List<Integer> lines = Lists.newArrayList();
+
+  public void add(String image, int line) {
+    images.add(image);
+    lines.add(line);
+  }
+
+  public int size() {
+    return images.size();
+  }
+
+  public String image(int token) {
+    return images.get(token);
+  }
+
+  public int line(int token) {
+    return lines.get(token);
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(images.size());
+    for (int i = 0; i < images.size(); i++) {
+      FileAnalysis.writeString(out, images.get(i));
+      out.writeInt(lines.get(i));
+    }
+  }
+
+  static FileTokens read(DataInput in) throws IOException {
+    FileTokens tokens = new FileTokens();
+    for (int i = FileAnalysis.count(in); i > 0; i--) {
+      tokens.add(FileAnalysis.readString(in), in.readInt());
+    }
+    return tokens;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.source.Highlightable;
+import org.sonar.css.ast.visitors.SonarComponents;
+import org.sonar.plugins.css.cache.FileAnalysis.Highlight;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same components, but the highlighting of each file is also recorded, to be stored in the {@link AnalysisCache}.
+ * <p>
+ * A recorder which does not save the highlighting never calls SonarQube: scans on other threads than the one of the
+ * sensor use it, the recorded highlighting being saved afterwards.
+ */
+public class HighlightingRecorder extends SonarComponents {
+
+  private final Map<String, List<Highlight>> highlighting = Maps.newConcurrentMap();
+  private final boolean save;
+
+  public HighlightingRecorder(ResourcePerspectives resourcePerspectives, FileSystem fs) {
+    this(resourcePerspectives, fs, true);
+  }
+
+  /**
+   * @param save whether the highlighting is also saved, or only recorded
+   */
+  public HighlightingRecorder(ResourcePerspectives resourcePerspectives, FileSystem fs, boolean save) {
+    super(resourcePerspectives, fs);
+    this.save = save;
+  }
+
+  /**
+   * A recorder which does not save the highlighting only knows the indexed files.
+   */
+  @CheckForNull
+  @Override
+  public InputFile inputFileFor(File file) {
+    return save ? super.inputFileFor(file) : indexedInputFile(file);
+  }
+
+  @Override
+  public Highlightable.HighlightingBuilder newHighlighting(InputFile inputFile) {
+    return new RecordingBuilder(inputFile.absolutePath(), save ? super.newHighlighting(inputFile) : null);
+  }
+
+  /**
+   * @return the ranges highlighted in the given file, or {@code null} if it was not highlighted; they are then forgotten
+   */
+  @CheckForNull
+  public List<Highlight> take(String absolutePath) {
+    return highlighting.remove(absolutePath);
+  }
+
+  private class RecordingBuilder implements Highlightable.HighlightingBuilder {
+
+    private final String absolutePath;
+    @Nullable
+    private final Highlightable.HighlightingBuilder delegate;
+    private final List<Highlight> ranges = Lists.newArrayList();
+
+    RecordingBuilder(String absolutePath, @Nullable Highlightable.HighlightingBuilder delegate) {
+      this.absolutePath = absolutePath;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Highlightable.HighlightingBuilder highlight(int startOffset, int endOffset, String typeOfText) {
+      ranges.add(new Highlight(startOffset, endOffset, typeOfText));
+      if (delegate != null) {
+        delegate.highlight(startOffset, endOffset, typeOfText);
+      }
+      return this;
+    }
+
+    @Override
+    public void done() {
+      if (delegate != null) {
+        delegate.done();
+      }
+      highlighting.put(absolutePath, ranges);
+    }
+
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cpd;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import org.sonar.plugins.css.cache.CpdTokenStore;
+import org.sonar.plugins.css.cache.FileTokens;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the tokens of each scanned file for the copy-paste detection, as {@link CssTokenizer} would give them.
+ * <p>
+ * The tokens of declarations are needed: this visitor is not a {@link org.sonar.css.SelectorLevelVisitor}, so the
+ * scanner parses declaration blocks once, instead of leaving them for this visitor to parse again.
+ */
+public class CpdTokenVisitor extends SquidAstVisitor<LexerlessGrammar> {
+
+  private final CpdTokenStore store;
+
+  public CpdTokenVisitor(CpdTokenStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void leaveFile(@Nullable AstNode ast) {
+    FileTokens tokens = new FileTokens();
+    if (ast != null) {
+      try {
+        for (Token token : ast.getTokens()) {
+          tokens.add(CssTokenizer.getTokenImage(token), token.getLine());
+        }
+      } catch (RecognitionException e) {
+        // The CSS parser of the tokenizer does not give any token either
+        tokens = new FileTokens();
+      }
+    }
+    store.put(getContext().getFile(), tokens);
+  }
+
+}
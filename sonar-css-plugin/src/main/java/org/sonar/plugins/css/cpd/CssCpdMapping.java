@@ -23,6 +23,8 @@ import net.sourceforge.pmd.cpd.Tokenizer;
 import org.sonar.api.batch.AbstractCpdMapping;
 import org.sonar.api.resources.Language;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
 import org.sonar.plugins.css.core.Css;
 
 import java.nio.charset.Charset;
@@ -31,15 +33,19 @@ public class CssCpdMapping extends AbstractCpdMapping {
 
   private final Css language;
   private final Charset charset;
+  private final AnalysisCache cache;
+  private final CpdTokenStore store;
 
-  public CssCpdMapping(Css language, ModuleFileSystem fs) {
+  public CssCpdMapping(Css language, ModuleFileSystem fs, AnalysisCache cache, CpdTokenStore store) {
     this.language = language;
     this.charset = fs.sourceCharset();
+    this.cache = cache;
+    this.store = store;
   }
 
   @Override
   public Tokenizer getTokenizer() {
-    return new CssTokenizer(charset);
+    return new CssTokenizer(charset, cache, store);
   }
 
   @Override
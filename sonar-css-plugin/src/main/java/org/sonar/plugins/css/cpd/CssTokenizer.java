@@ -28,9 +28,13 @@ import net.sourceforge.pmd.cpd.SourceCode;
 import net.sourceforge.pmd.cpd.TokenEntry;
 import net.sourceforge.pmd.cpd.Tokenizer;
 import net.sourceforge.pmd.cpd.Tokens;
-import org.sonar.css.parser.CssGrammar;
+import org.sonar.css.parser.CssDialect;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
+import org.sonar.plugins.css.cache.FileTokens;
 import org.sonar.sslr.parser.LexerlessGrammar;
-import org.sonar.sslr.parser.ParserAdapter;
+
+import javax.annotation.Nullable;
 
 import java.io.File;
 import java.nio.charset.Charset;
@@ -38,30 +42,66 @@ import java.nio.charset.Charset;
 public class CssTokenizer implements Tokenizer {
 
   private final Parser<LexerlessGrammar> parser;
+  private final Charset charset;
+  @Nullable
+  private final AnalysisCache cache;
+  @Nullable
+  private final CpdTokenStore store;
 
   public CssTokenizer(Charset charset) {
-    this.parser = new ParserAdapter<LexerlessGrammar>(charset, CssGrammar.createGrammar());
+    this(charset, null, null);
+  }
+
+  /**
+   * Files are only parsed when their tokens are neither in the given store, filled by the sensor, nor in the given cache.
+   * The tokens of the files are stored in the cache, and not parsed again while the files do not change.
+   */
+  public CssTokenizer(Charset charset, @Nullable AnalysisCache cache, @Nullable CpdTokenStore store) {
+    this.parser = CssDialect.CSS.parser(charset);
+    this.charset = charset;
+    this.cache = cache;
+    this.store = store;
   }
 
   @Override
   public final void tokenize(SourceCode source, Tokens cpdTokens) {
-    try {
-      String filename = source.getFileName();
+    String filename = source.getFileName();
+    File file = new File(filename);
 
-      AstNode result = parser.parse(new File(filename));
+    FileTokens tokens = store == null ? null : store.take(file);
+    String key = cache == null ? null : cache.tokensKey(file, charset);
+    if (tokens == null && key != null) {
+      tokens = cache.tokens(key);
+      key = tokens == null ? key : null;
+    }
+    if (tokens == null) {
+      tokens = parse(file);
+    }
+    if (key != null) {
+      cache.putTokens(key, tokens);
+    }
+
+    for (int i = 0; i < tokens.size(); i++) {
+      cpdTokens.add(new TokenEntry(tokens.image(i), filename, tokens.line(i)));
+    }
+    cpdTokens.add(TokenEntry.getEOF());
+  }
+
+  private FileTokens parse(File file) {
+    FileTokens tokens = new FileTokens();
+    try {
+      AstNode result = parser.parse(file);
 
       for (Token token : result.getTokens()) {
-        TokenEntry cpdToken = new TokenEntry(getTokenImage(token), filename, token.getLine());
-        cpdTokens.add(cpdToken);
+        tokens.add(getTokenImage(token), token.getLine());
       }
     } catch (RecognitionException e) {
       // Do nothing, the parse error is already properly reported by the Squid phase
     }
-
-    cpdTokens.add(TokenEntry.getEOF());
+    return tokens;
   }
 
-  private String getTokenImage(Token token) {
+  static String getTokenImage(Token token) {
     if (token.getType() == GenericTokenType.LITERAL) {
       return GenericTokenType.LITERAL.getValue();
     }
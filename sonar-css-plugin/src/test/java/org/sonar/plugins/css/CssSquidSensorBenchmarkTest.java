@@ -0,0 +1,138 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.source.Highlightable;
+import org.sonar.css.ast.visitors.SonarComponents;
+import org.sonar.css.checks.TrailingWhitespaceCheck;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
+import org.sonar.squidbridge.SquidAstVisitor;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Saves the issues of a file with a trailing whitespace on each line. The time to do so is only measured with the
+ * {@code benchmarks} profile.
+ */
+public class CssSquidSensorBenchmarkTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CssSquidSensorBenchmarkTest.class);
+  private static final int ISSUES = 50000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private InputFile inputFile;
+  private Checks<SquidAstVisitor> checks;
+  private Issuable issuable;
+  private ResourcePerspectives perspectives;
+  private CssSquidSensor sensor;
+
+  @Before
+  public void setUp() throws Exception {
+    File file = temp.newFile("issues.css");
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < ISSUES; i++) {
+      source.append(".a").append(i).append(" { color: red; } \n");
+    }
+    Files.write(source, file, Charsets.UTF_8);
+    inputFile = new DefaultInputFile("issues.css").setAbsolutePath(file.getAbsolutePath());
+
+    FileSystem fs = mock(FileSystem.class);
+    when(fs.predicates()).thenReturn(mock(FilePredicates.class));
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(inputFile));
+    when(fs.encoding()).thenReturn(Charsets.UTF_8);
+
+    checks = mock(Checks.class);
+    when(checks.addAnnotatedChecks(Mockito.anyCollection())).thenReturn(checks);
+    when(checks.all()).thenReturn(ImmutableList.<SquidAstVisitor>of(new TrailingWhitespaceCheck()));
+    when(checks.ruleKey(Mockito.any(SquidAstVisitor.class))).thenReturn(RuleKey.of("css", "S1131"));
+    CheckFactory checkFactory = mock(CheckFactory.class);
+    when(checkFactory.<SquidAstVisitor>create(Mockito.anyString())).thenReturn(checks);
+
+    Issuable.IssueBuilder issueBuilder = mock(Issuable.IssueBuilder.class);
+    when(issueBuilder.ruleKey(Mockito.any(RuleKey.class))).thenReturn(issueBuilder);
+    when(issueBuilder.line(Mockito.anyInt())).thenReturn(issueBuilder);
+    when(issueBuilder.message(Mockito.anyString())).thenReturn(issueBuilder);
+    when(issueBuilder.build()).thenReturn(mock(Issue.class));
+    issuable = mock(Issuable.class);
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    Highlightable highlightable = mock(Highlightable.class);
+    when(highlightable.newHighlighting()).thenReturn(mock(Highlightable.HighlightingBuilder.class));
+    perspectives = mock(ResourcePerspectives.class);
+    when(perspectives.as(Issuable.class, inputFile)).thenReturn(issuable);
+    when(perspectives.as(Highlightable.class, inputFile)).thenReturn(highlightable);
+
+    sensor = new CssSquidSensor(mock(RulesProfile.class), new SonarComponents(perspectives, fs), fs, checkFactory,
+      mock(NoSonarFilter.class), new Settings(), mock(AnalysisCache.class), mock(CpdTokenStore.class));
+  }
+
+  @Test
+  public void should_look_up_issuable_and_rule_once() {
+    sensor.analyse(new Project("key"), mock(SensorContext.class));
+
+    verify(issuable, times(ISSUES)).addIssue(Mockito.any(Issue.class));
+    verify(perspectives, times(1)).as(Issuable.class, inputFile);
+    verify(checks, times(1)).ruleKey(Mockito.any(SquidAstVisitor.class));
+  }
+
+  @Test
+  public void analysis_time() {
+    Assume.assumeTrue(Boolean.getBoolean("benchmarks"));
+    long start = System.nanoTime();
+    sensor.analyse(new Project("key"), mock(SensorContext.class));
+    LOG.info("Analyzed and saved {} issues in {} ms", ISSUES, (System.nanoTime() - start) / 1000000);
+  }
+
+}
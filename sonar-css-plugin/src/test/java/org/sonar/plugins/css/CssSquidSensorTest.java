@@ -19,30 +19,58 @@
  */
 package org.sonar.plugins.css;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
-import org.apache.commons.collections.ListUtils;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.NoSonarFilter;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.source.Highlightable;
 import org.sonar.css.ast.visitors.SonarComponents;
+import org.sonar.css.checks.DisallowDuplicateBackgroundImages;
+import org.sonar.css.checks.utils.CssProperties;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
 import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.sslr.parser.LexerlessGrammar;
 
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -51,10 +79,16 @@ import static org.mockito.Mockito.when;
 
 public class CssSquidSensorTest {
 
+  private static final String DIR = "src/test/resources/org/sonar/plugins/css/cssProject/css/";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private CssSquidSensor sensor;
   private FileSystem fs;
   private FileLinesContextFactory fileLinesContextFactory;
   private CheckFactory checkFactory;
+  private Settings settings;
 
   @Before
   public void setUp() {
@@ -64,7 +98,7 @@ public class CssSquidSensorTest {
 
     fs = mock(FileSystem.class);
     when(fs.predicates()).thenReturn(mock(FilePredicates.class));
-    when(fs.files(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(new File("src/test/resources/org/sonar/plugins/css/cssProject/css/boxSizing.css")));
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(inputFile("boxSizing.css")));
     when(fs.encoding()).thenReturn(Charset.forName("UTF-8"));
 
     Checks<SquidAstVisitor> checks = mock(Checks.class);
@@ -72,7 +106,13 @@ public class CssSquidSensorTest {
     checkFactory = mock(CheckFactory.class);
     when(checkFactory.<SquidAstVisitor>create(Mockito.anyString())).thenReturn(checks);
 
-    sensor = new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class));
+    settings = new Settings();
+    sensor = new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, mock(AnalysisCache.class), mock(CpdTokenStore.class));
+  }
+
+  @After
+  public void loadBundledProperties() {
+    CssProperties.load(null);
   }
 
   @Test
@@ -80,12 +120,13 @@ public class CssSquidSensorTest {
     Project project = new Project("key");
     FileSystem fs = mock(FileSystem.class);
     when(fs.predicates()).thenReturn(mock(FilePredicates.class));
-    CssSquidSensor cssSensor = new CssSquidSensor(mock(RulesProfile.class), mock(SonarComponents.class), fs, mock(CheckFactory.class), mock(NoSonarFilter.class));
+    CssSquidSensor cssSensor = new CssSquidSensor(mock(RulesProfile.class), mock(SonarComponents.class), fs, mock(CheckFactory.class), mock(NoSonarFilter.class),
+      new Settings(), mock(AnalysisCache.class), mock(CpdTokenStore.class));
 
-    when(fs.files(Mockito.any(FilePredicate.class))).thenReturn(ListUtils.EMPTY_LIST);
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(ImmutableList.<InputFile>of());
     assertThat(cssSensor.shouldExecuteOnProject(project)).isFalse();
 
-    when(fs.files(Mockito.any(FilePredicate.class))).thenReturn(ImmutableList.of(new File("/tmp")));
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(ImmutableList.of(inputFile("boxSizing.css")));
     assertThat(cssSensor.shouldExecuteOnProject(project)).isTrue();
   }
 
@@ -102,4 +143,279 @@ public class CssSquidSensorTest {
     verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(6.0));
   }
 
+  @Test
+  public void should_analyse_in_parallel() {
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(
+      inputFile("boxSizing.css"),
+      inputFile("metric.css"),
+      inputFile("important.css")));
+    settings.setProperty(CssPlugin.ANALYSIS_THREADS_KEY, 2);
+    SensorContext context = mock(SensorContext.class);
+
+    sensor.analyse(new Project("key"), context);
+
+    verify(context, Mockito.times(3)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(43.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(31.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.STATEMENTS), Mockito.eq(21.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(6.0));
+  }
+
+  @Test
+  public void should_save_results_of_parallel_analysis_on_sensor_thread() {
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(
+      inputFile("boxSizing.css"),
+      inputFile("metric.css"),
+      inputFile("important.css")));
+    settings.setProperty(CssPlugin.ANALYSIS_THREADS_KEY, 3);
+    SensorContext context = mock(SensorContext.class);
+    final Set<Thread> threads = Sets.newHashSet();
+    when(context.saveMeasure(Mockito.any(InputFile.class), Mockito.any(Metric.class), Mockito.anyDouble())).thenAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) {
+        threads.add(Thread.currentThread());
+        return null;
+      }
+    });
+
+    sensor.analyse(new Project("key"), context);
+
+    verify(context, Mockito.times(3)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+    assertThat(threads).containsOnly(Thread.currentThread());
+  }
+
+  @Test
+  public void should_save_results_of_parallel_analysis_in_input_order() {
+    InputFile important = inputFile("important.css");
+    InputFile metric = inputFile("metric.css");
+    InputFile boxSizing = inputFile("boxSizing.css");
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(important, metric, boxSizing));
+    settings.setProperty(CssPlugin.ANALYSIS_THREADS_KEY, 3);
+    SensorContext context = mock(SensorContext.class);
+
+    sensor.analyse(new Project("key"), context);
+
+    InOrder inOrder = Mockito.inOrder(context);
+    inOrder.verify(context).saveMeasure(Mockito.eq(important), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+    inOrder.verify(context).saveMeasure(Mockito.eq(metric), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+    inOrder.verify(context).saveMeasure(Mockito.eq(boxSizing), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+  }
+
+  @Test
+  public void should_bound_files_scanned_ahead_of_saved_results() throws Exception {
+    List<InputFile> inputFiles = Lists.newArrayList();
+    for (int i = 0; i < 30; i++) {
+      File file = temp.newFile("style" + i + ".css");
+      Files.write(Strings.repeat("a {\n  color: red;\n}\n", i + 1), file, Charsets.UTF_8);
+      inputFiles.add(new DefaultInputFile(file.getName()).setAbsolutePath(file.getAbsolutePath()));
+    }
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(inputFiles);
+    final AtomicInteger scanned = new AtomicInteger();
+    Checks<SquidAstVisitor> checks = checkFactory.create("css");
+    when(checks.all()).thenReturn(ImmutableList.<SquidAstVisitor>of(new SquidAstVisitor<LexerlessGrammar>() {
+      @Override
+      public void visitFile(AstNode astNode) {
+        scanned.incrementAndGet();
+      }
+    }));
+    settings.setProperty(CssPlugin.ANALYSIS_THREADS_KEY, 2);
+    SensorContext context = mock(SensorContext.class);
+    final List<Integer> aheadOfSaved = Lists.newArrayList();
+    when(context.saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble())).thenAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) {
+        aheadOfSaved.add(scanned.get() - aheadOfSaved.size());
+        return null;
+      }
+    });
+
+    sensor.analyse(new Project("key"), context);
+
+    assertThat(scanned.get()).isEqualTo(30);
+    assertThat(aheadOfSaved).hasSize(30);
+    for (int ahead : aheadOfSaved) {
+      assertThat(ahead).isLessThanOrEqualTo(4);
+    }
+  }
+
+  @Test
+  public void should_analyse_with_parallel_parsing() {
+    settings.setProperty(CssPlugin.PARALLEL_PARSING_CHUNK_SIZE_KEY, 16);
+    SensorContext context = mock(SensorContext.class);
+
+    sensor.analyse(new Project("key"), context);
+
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(43.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(31.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.STATEMENTS), Mockito.eq(21.0));
+    verify(context).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(6.0));
+  }
+
+  @Test
+  public void should_reuse_cached_results() throws Exception {
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    AnalysisCache cache = new AnalysisCache(fs, settings);
+    SensorContext context = mock(SensorContext.class);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    // The checks are created once per analysis to fingerprint the active rules, and once more for the only scan
+    verify(checkFactory, Mockito.times(3)).create(Mockito.anyString());
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(43.0));
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(31.0));
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.STATEMENTS), Mockito.eq(21.0));
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(6.0));
+  }
+
+  @Test
+  public void should_not_cache_results_of_timed_out_files() throws Exception {
+    File file = temp.newFile("large.css");
+    Files.write(Strings.repeat("/* a */\na {\n  color: red;\n}\n", 20000), file, Charsets.UTF_8);
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.<InputFile>asList(
+      new DefaultInputFile("large.css").setAbsolutePath(file.getAbsolutePath())));
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    settings.setProperty(CssPlugin.FILE_TIME_BUDGET_KEY, 1);
+    AnalysisCache cache = new AnalysisCache(fs, settings);
+    SensorContext context = mock(SensorContext.class);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    // The file only got a token tree: it is parsed again by the second analysis
+    verify(checkFactory, Mockito.times(4)).create(Mockito.anyString());
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(80001.0));
+  }
+
+  @Test
+  public void should_not_reuse_cached_results_with_another_time_budget() throws Exception {
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    AnalysisCache cache = new AnalysisCache(fs, settings);
+    SensorContext context = mock(SensorContext.class);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+    settings.setProperty(CssPlugin.FILE_TIME_BUDGET_KEY, 60000);
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    verify(checkFactory, Mockito.times(4)).create(Mockito.anyString());
+  }
+
+  @Test
+  public void should_not_reuse_cached_results_with_other_properties() throws Exception {
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    AnalysisCache cache = new AnalysisCache(fs, settings);
+    SensorContext context = mock(SensorContext.class);
+    File properties = temp.newFile("css-properties.txt");
+    Files.write("@vendor -webkit-\ncolor\n", properties, Charsets.UTF_8);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+    settings.setProperty(CssPlugin.PROPERTIES_FILE_KEY, properties.getAbsolutePath());
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    // The checks may give other results with other properties: the file is scanned again
+    verify(checkFactory, Mockito.times(4)).create(Mockito.anyString());
+    assertThat(CssProperties.isKnownProperty("margin")).isFalse();
+  }
+
+  @Test
+  public void should_not_reuse_cached_results_of_another_analysis() throws Exception {
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    settings.setProperty(CssPlugin.GENERATED_FILES_ANALYSIS_KEY, "metrics");
+    AnalysisCache cache = new AnalysisCache(fs, settings);
+    SensorContext context = mock(SensorContext.class);
+    File vendored = new File(temp.newFolder("vendor"), "boxSizing.css");
+    Files.copy(new File(DIR + "boxSizing.css"), vendored);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.<InputFile>asList(
+      new DefaultInputFile("vendor/boxSizing.css").setAbsolutePath(vendored.getAbsolutePath())));
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, cache, mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    // Same content, but the vendored copy only gets metrics: it is scanned again
+    verify(checkFactory, Mockito.times(4)).create(Mockito.anyString());
+  }
+
+  @Test
+  public void should_analyse_same_content_once() throws Exception {
+    File copy = new File(temp.newFolder(), "boxSizing.css");
+    Files.copy(new File(DIR + "boxSizing.css"), copy);
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(
+      inputFile("boxSizing.css"),
+      inputFile("metric.css"),
+      new DefaultInputFile("copy/boxSizing.css").setAbsolutePath(copy.getAbsolutePath())));
+    SensorContext context = mock(SensorContext.class);
+
+    new CssSquidSensor(mock(RulesProfile.class), null, fs, checkFactory, mock(NoSonarFilter.class), settings, new AnalysisCache(fs, settings),
+      mock(CpdTokenStore.class)).analyse(new Project("key"), context);
+
+    verify(context, Mockito.times(3)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.anyDouble());
+    verify(context, Mockito.times(2)).saveMeasure(Mockito.any(InputFile.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(43.0));
+    verify(context).saveMeasure(Mockito.argThat(hasPath(copy)), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(31.0));
+  }
+
+  @Test
+  public void should_not_carry_check_state_over_to_copies() throws Exception {
+    File other = temp.newFile("other.css");
+    Files.write("a { background: url(x.png) }\n", other, Charsets.UTF_8);
+    String source = "b { background: url(x.png) }\nc { background: url(y.png) }\nd { background: url(y.png) }\n";
+    File first = temp.newFile("first.css");
+    Files.write(source, first, Charsets.UTF_8);
+    File second = temp.newFile("second.css");
+    Files.write(source, second, Charsets.UTF_8);
+    InputFile otherFile = new DefaultInputFile("other.css").setAbsolutePath(other.getAbsolutePath());
+    InputFile firstFile = new DefaultInputFile("first.css").setAbsolutePath(first.getAbsolutePath());
+    InputFile secondFile = new DefaultInputFile("second.css").setAbsolutePath(second.getAbsolutePath());
+    when(fs.inputFiles(Mockito.any(FilePredicate.class))).thenReturn(Arrays.asList(otherFile, firstFile, secondFile));
+    Checks<SquidAstVisitor> checks = mock(Checks.class);
+    when(checks.addAnnotatedChecks(Mockito.anyCollection())).thenReturn(checks);
+    when(checks.all()).thenReturn(ImmutableList.<SquidAstVisitor>of(new DisallowDuplicateBackgroundImages()));
+    when(checks.ruleKey(Mockito.any(SquidAstVisitor.class))).thenReturn(RuleKey.of("css", "duplicate-background-images"));
+    when(checkFactory.<SquidAstVisitor>create(Mockito.anyString())).thenReturn(checks);
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    Issuable otherIssues = issuable(perspectives, otherFile);
+    Issuable firstIssues = issuable(perspectives, firstFile);
+    Issuable secondIssues = issuable(perspectives, secondFile);
+
+    new CssSquidSensor(mock(RulesProfile.class), new SonarComponents(perspectives, fs), fs, checkFactory, mock(NoSonarFilter.class), settings,
+      new AnalysisCache(fs, settings), mock(CpdTokenStore.class)).analyse(new Project("key"), mock(SensorContext.class));
+
+    // Each file gets the issues it gets alone: the URL of other.css is not a duplicate in the copies
+    verify(otherIssues, Mockito.never()).addIssue(Mockito.any(Issue.class));
+    verify(firstIssues, Mockito.times(1)).addIssue(Mockito.any(Issue.class));
+    verify(secondIssues, Mockito.times(1)).addIssue(Mockito.any(Issue.class));
+  }
+
+  private static Issuable issuable(ResourcePerspectives perspectives, InputFile inputFile) {
+    Issuable.IssueBuilder issueBuilder = mock(Issuable.IssueBuilder.class);
+    when(issueBuilder.ruleKey(Mockito.any(RuleKey.class))).thenReturn(issueBuilder);
+    when(issueBuilder.line(Mockito.anyInt())).thenReturn(issueBuilder);
+    when(issueBuilder.message(Mockito.anyString())).thenReturn(issueBuilder);
+    when(issueBuilder.build()).thenReturn(mock(Issue.class));
+    Issuable issuable = mock(Issuable.class);
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    Highlightable highlightable = mock(Highlightable.class);
+    when(highlightable.newHighlighting()).thenReturn(mock(Highlightable.HighlightingBuilder.class));
+    when(perspectives.as(Issuable.class, inputFile)).thenReturn(issuable);
+    when(perspectives.as(Highlightable.class, inputFile)).thenReturn(highlightable);
+    return issuable;
+  }
+
+  private static ArgumentMatcher<InputFile> hasPath(final File file) {
+    return new ArgumentMatcher<InputFile>() {
+      @Override
+      public boolean matches(Object argument) {
+        return ((InputFile) argument).absolutePath().equals(file.getAbsolutePath());
+      }
+    };
+  }
+
+  private static InputFile inputFile(String name) {
+    return new DefaultInputFile(name).setAbsolutePath(new File(DIR + name).getAbsolutePath());
+  }
+
 }
@@ -0,0 +1,115 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.css.FileClassifier.Analysis;
+import org.sonar.plugins.css.FileClassifier.Origin;
+import org.sonar.plugins.css.cache.AnalysisCache;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class FileClassifierTest {
+
+  private static final String AUTHORED = "/* Layout */\na {\n  color: red;\n}\n";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final AnalysisCache cache = new AnalysisCache(mock(FileSystem.class), new Settings());
+  private final FileClassifier classifier = new FileClassifier(ImmutableSet.<String>of(), cache);
+
+  @Test
+  public void authored() throws Exception {
+    assertThat(classifier.classify(file("style.css", AUTHORED))).isEqualTo(Origin.AUTHORED);
+    assertThat(classifier.classify(new File("src/test/resources/org/sonar/plugins/css/cssProject/css/boxSizing.css"))).isEqualTo(Origin.AUTHORED);
+    assertThat(classifier.classify(new File(temp.getRoot(), "missing.css"))).isEqualTo(Origin.AUTHORED);
+  }
+
+  @Test
+  public void minified() throws Exception {
+    assertThat(classifier.classify(file("style.min.css", AUTHORED))).isEqualTo(Origin.MINIFIED);
+    assertThat(classifier.classify(file("style-min.css", AUTHORED))).isEqualTo(Origin.MINIFIED);
+    assertThat(classifier.classify(file("long.css", Strings.repeat("a{color:red}", 100)))).isEqualTo(Origin.MINIFIED);
+    assertThat(classifier.classify(file("mac.css", Strings.repeat("a {\r  color: red;\r}\r", 100)))).isEqualTo(Origin.AUTHORED);
+  }
+
+  @Test
+  public void generated() throws Exception {
+    assertThat(classifier.classify(file("a.css", "/* This file is generated by the build, do not edit */\n" + AUTHORED))).isEqualTo(Origin.GENERATED);
+    assertThat(classifier.classify(file("b.css", "/* @generated */\n" + AUTHORED))).isEqualTo(Origin.GENERATED);
+    assertThat(classifier.classify(file("c.css", AUTHORED + "/*# sourceMappingURL=c.css.map */\n"))).isEqualTo(Origin.GENERATED);
+    assertThat(classifier.classify(file("d.css", "\uFEFF@charset \"UTF-8\";\n/* Generated by Sass */\n" + AUTHORED))).isEqualTo(Origin.GENERATED);
+  }
+
+  @Test
+  public void generated_only_from_first_comment() throws Exception {
+    assertThat(classifier.classify(file("a.css", AUTHORED + "/* Do not edit the colors below */\nb {\n  color: blue;\n}\n"))).isEqualTo(Origin.AUTHORED);
+    assertThat(classifier.classify(file("b.css", "a {\n  content: \"do not edit\";\n}\n"))).isEqualTo(Origin.AUTHORED);
+  }
+
+  @Test
+  public void large_files() throws Exception {
+    String authored = Strings.repeat(AUTHORED, 10000);
+    assertThat(classifier.classify(file("large.css", authored))).isEqualTo(Origin.AUTHORED);
+    assertThat(classifier.classify(file("mapped.css", authored + "/*# sourceMappingURL=mapped.css.map */\n"))).isEqualTo(Origin.GENERATED);
+    assertThat(classifier.classify(file("minified.css", Strings.repeat("a{color:red}", 10000) + "\n" + authored))).isEqualTo(Origin.MINIFIED);
+  }
+
+  @Test
+  public void vendored() throws Exception {
+    assertThat(classifier.classify(file("node_modules/lib/lib.css", AUTHORED))).isEqualTo(Origin.VENDORED);
+    assertThat(classifier.classify(file("vendor/lib.css", AUTHORED))).isEqualTo(Origin.VENDORED);
+    assertThat(classifier.classify(file("vendors.css", AUTHORED))).isEqualTo(Origin.AUTHORED);
+    assertThat(classifier.classify(file("bootstrap.css", "/*!\n * Bootstrap v3.3.2 (http://getbootstrap.com)\n */\n" + AUTHORED)))
+      .isEqualTo(Origin.VENDORED);
+
+    FileClassifier withHashes = new FileClassifier(ImmutableSet.of("d26cb0315eb7fd5f441d6b6676acb75bd9ff9708"), cache);
+    assertThat(withHashes.classify(file("copy.css", AUTHORED))).isEqualTo(Origin.VENDORED);
+    assertThat(withHashes.classify(file("other.css", AUTHORED + "\n"))).isEqualTo(Origin.AUTHORED);
+  }
+
+  @Test
+  public void analysis() {
+    assertThat(Analysis.of("metrics")).isEqualTo(Analysis.METRICS);
+    assertThat(Analysis.of(" Reduced ")).isEqualTo(Analysis.REDUCED);
+    assertThat(Analysis.of("FULL")).isEqualTo(Analysis.FULL);
+  }
+
+  private File file(String path, String content) throws IOException {
+    File file = new File(temp.getRoot(), path);
+    Files.createParentDirs(file);
+    Files.write(content, file, Charsets.UTF_8);
+    return file;
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.css.api.CssMetric;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File directory;
+  private File file;
+  private AnalysisCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = temp.newFolder();
+    file = temp.newFile("style.css");
+    Files.write(".a { color: red; }", file, Charsets.UTF_8);
+    cache = new AnalysisCache(directory, "1.0");
+  }
+
+  @Test
+  public void should_store_results() {
+    String key = cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "");
+    cache.putResults(key, analysis());
+
+    FileAnalysis analysis = cache.results(key);
+    assertThat(analysis.measures()).isEqualTo(ImmutableMap.of(CssMetric.LINES, 1.0, CssMetric.STATEMENTS, 2.0));
+    assertThat(analysis.violations()).hasSize(2);
+    assertThat(analysis.violations().get(0).ruleKey()).isEqualTo("css:rule");
+    assertThat(analysis.violations().get(0).line()).isEqualTo(1);
+    assertThat(analysis.violations().get(0).message()).isEqualTo("Message");
+    assertThat(analysis.violations().get(1).line()).isNull();
+    assertThat(analysis.noSonarLines()).containsOnly(3);
+    assertThat(analysis.highlighting()).hasSize(1);
+    assertThat(analysis.highlighting().get(0).from()).isEqualTo(0);
+    assertThat(analysis.highlighting().get(0).to()).isEqualTo(2);
+    assertThat(analysis.highlighting().get(0).type()).isEqualTo("k");
+  }
+
+  @Test
+  public void should_store_tokens() {
+    FileTokens tokens = new FileTokens();
+    tokens.add(".a", 1);
+    tokens.add("{", 2);
+    String key = cache.tokensKey(file, Charsets.UTF_8);
+    cache.putTokens(key, tokens);
+
+    FileTokens cached = cache.tokens(key);
+    assertThat(cached.size()).isEqualTo(2);
+    assertThat(cached.image(1)).isEqualTo("{");
+    assertThat(cached.line(1)).isEqualTo(2);
+  }
+
+  @Test
+  public void keys_should_change_with_content_rules_analysis_charset_and_version() throws Exception {
+    String key = cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "");
+
+    assertThat(cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "")).isEqualTo(key);
+    assertThat(cache.resultsKey(file, Charsets.UTF_8, "[css:rule max=2]", "FULL", "")).isNotEqualTo(key);
+    assertThat(cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "METRICS", "")).isNotEqualTo(key);
+    assertThat(cache.resultsKey(file, Charsets.ISO_8859_1, "[css:rule]", "FULL", "")).isNotEqualTo(key);
+    assertThat(cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "properties=1234")).isNotEqualTo(key);
+    assertThat(new AnalysisCache(directory, "1.1").resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "")).isNotEqualTo(key);
+    assertThat(cache.tokensKey(file, Charsets.UTF_8)).isNotEqualTo(key);
+
+    Files.write(".b { color: red; }", file, Charsets.UTF_8);
+    assertThat(new AnalysisCache(directory, "1.0").resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "")).isNotEqualTo(key);
+  }
+
+  @Test
+  public void should_discard_corrupted_entry() throws Exception {
+    String key = cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "");
+    cache.putResults(key, analysis());
+    File entry = directory.listFiles()[0];
+    RandomAccessFile content = new RandomAccessFile(entry, "rw");
+    try {
+      content.seek(content.length() - 1);
+      int last = content.read();
+      content.seek(content.length() - 1);
+      content.write(last + 1);
+    } finally {
+      content.close();
+    }
+
+    assertThat(cache.results(key)).isNull();
+    assertThat(entry).doesNotExist();
+  }
+
+  @Test
+  public void should_discard_entry_of_other_version() {
+    String key = cache.resultsKey(file, Charsets.UTF_8, "[css:rule]", "FULL", "");
+    cache.putResults(key, analysis());
+
+    assertThat(new AnalysisCache(directory, "1.1").results(key)).isNull();
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void should_be_disabled_without_directory_or_version() {
+    assertThat(cache.isEnabled()).isTrue();
+    assertThat(new AnalysisCache(null, "1.0").isEnabled()).isFalse();
+    assertThat(new AnalysisCache(directory, null).isEnabled()).isFalse();
+    assertThat(new AnalysisCache(null, "1.0").resultsKey(file, Charsets.UTF_8, "[]", "FULL", "")).isNull();
+  }
+
+  @Test
+  public void should_not_have_key_for_missing_file() {
+    assertThat(cache.tokensKey(new File(directory, "missing.css"), Charsets.UTF_8)).isNull();
+  }
+
+  private static FileAnalysis analysis() {
+    return new FileAnalysis(
+      ImmutableMap.of(CssMetric.LINES, 1.0, CssMetric.STATEMENTS, 2.0),
+      ImmutableList.of(new FileAnalysis.Violation("css:rule", 1, "Message"), new FileAnalysis.Violation("css:other", null, "Other")),
+      ImmutableSet.of(3),
+      ImmutableList.of(new FileAnalysis.Highlight(0, 2, "k")),
+      false);
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CpdTokenStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final File a = new File("a.css");
+  private final File b = new File("b.css");
+
+  @Test
+  public void should_keep_tokens_in_memory() {
+    CpdTokenStore store = new CpdTokenStore(true, null, 2);
+    store.put(a, tokens("x", "y"));
+
+    assertThat(store.take(a).image(1)).isEqualTo("y");
+    assertThat(store.take(a)).isNull();
+    assertThat(store.take(b)).isNull();
+  }
+
+  @Test
+  public void should_spill_tokens_over_limit() throws Exception {
+    File directory = temp.newFolder();
+    CpdTokenStore store = new CpdTokenStore(true, directory, 2);
+    store.put(a, tokens("x", "y"));
+    store.put(b, tokens("z"));
+
+    assertThat(directory.listFiles()).hasSize(1);
+    FileTokens spilled = store.take(b);
+    assertThat(spilled.size()).isEqualTo(1);
+    assertThat(spilled.image(0)).isEqualTo("z");
+    assertThat(spilled.line(0)).isEqualTo(1);
+    assertThat(directory.listFiles()).isEmpty();
+
+    // Memory is released once tokens are taken
+    assertThat(store.take(a).size()).isEqualTo(2);
+    store.put(b, tokens("z"));
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void should_drop_tokens_over_limit_without_directory() {
+    CpdTokenStore store = new CpdTokenStore(true, null, 2);
+    store.put(a, tokens("x", "y"));
+    store.put(b, tokens("z"));
+
+    assertThat(store.take(b)).isNull();
+  }
+
+  @Test
+  public void should_not_keep_tokens_when_disabled() {
+    CpdTokenStore store = new CpdTokenStore(false, null, 2);
+    store.put(a, tokens("x"));
+
+    assertThat(store.isEnabled()).isFalse();
+    assertThat(store.take(a)).isNull();
+  }
+
+  @Test
+  public void should_delete_spilled_tokens_of_previous_analysis() throws Exception {
+    File directory = temp.newFolder();
+    new File(directory, "tokens1.bin").createNewFile();
+    new CpdTokenStore(true, directory, 2);
+
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  private static FileTokens tokens(String... images) {
+    FileTokens tokens = new FileTokens();
+    for (String image : images) {
+      tokens.add(image, 1);
+    }
+    return tokens;
+  }
+
+}
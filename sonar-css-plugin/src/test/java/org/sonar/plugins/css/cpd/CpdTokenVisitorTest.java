@@ -0,0 +1,122 @@
+/*
+ * SonarQube CSS Plugin
+ * Copyright (C) 2013 Tamas Kende
+ * kende.tamas@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.css.cpd;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.Tokens;
+import org.junit.Test;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.config.Settings;
+import org.sonar.css.CssAstScanner;
+import org.sonar.css.CssConfiguration;
+import org.sonar.css.SelectorLevelVisitor;
+import org.sonar.css.parser.CssGrammar;
+import org.sonar.plugins.css.cache.CpdTokenStore;
+import org.sonar.plugins.css.cache.FileTokens;
+import org.sonar.squidbridge.SquidAstVisitor;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CpdTokenVisitorTest {
+
+  private static final File FILE = new File("src/test/resources/org/sonar/plugins/css/cssProject/css/boxSizing.css");
+
+  @Test
+  public void should_keep_tokens_of_tokenizer() {
+    assertSameTokens(new CssConfiguration(Charsets.UTF_8));
+  }
+
+  @Test
+  public void should_keep_tokens_of_tokenizer_with_lazy_blocks() {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+    conf.lazyBlocks(true);
+    assertSameTokens(conf);
+  }
+
+  @Test
+  public void should_parse_declaration_blocks_once_with_lazy_blocks() {
+    CssConfiguration conf = new CssConfiguration(Charsets.UTF_8);
+    conf.lazyBlocks(true);
+    TreeVisitor tree = new TreeVisitor();
+    CpdTokenStore store = new CpdTokenStore(mock(FileSystem.class), new Settings());
+    CssAstScanner.create(conf, null, new CpdTokenVisitor(store), tree).scanFile(FILE);
+
+    // Declarations are parsed by the scan, and the tokens are taken from its tree: no block is left to parse again
+    assertThat(tree.parses).isEqualTo(1);
+    assertThat(tree.lazyBlocks).isEqualTo(0);
+    assertThat(store.take(FILE).size()).isGreaterThan(0);
+  }
+
+  @Test
+  public void should_keep_no_token_of_file_with_parse_error() {
+    CpdTokenStore store = new CpdTokenStore(mock(FileSystem.class), new Settings());
+    File file = new File("src/test/resources/org/sonar/plugins/css/cssProject/css/parsingError.css");
+    CssAstScanner.create(new CssConfiguration(Charsets.UTF_8), null, new CpdTokenVisitor(store)).scanFile(file);
+
+    assertThat(store.take(file).size()).isEqualTo(0);
+  }
+
+  private static void assertSameTokens(CssConfiguration conf) {
+    CpdTokenStore store = new CpdTokenStore(mock(FileSystem.class), new Settings());
+    CssAstScanner.create(conf, null, new CpdTokenVisitor(store)).scanFile(FILE);
+    FileTokens kept = store.take(FILE);
+
+    Tokens tokens = new Tokens();
+    SourceCode source = mock(SourceCode.class);
+    when(source.getFileName()).thenReturn(FILE.getAbsolutePath());
+    new CssTokenizer(Charsets.UTF_8).tokenize(source, tokens);
+
+    // The tokenizer adds the end of file
+    assertThat(kept.size()).isEqualTo(tokens.size() - 1);
+    for (int i = 0; i < kept.size(); i++) {
+      assertThat(kept.image(i)).isEqualTo(tokens.getTokens().get(i).getValue());
+      assertThat(kept.line(i)).isEqualTo(tokens.getTokens().get(i).getBeginLine());
+    }
+    assertThat(store.take(FILE)).isNull();
+  }
+
+  /**
+   * Would allow lazy blocks on its own: counts the trees of the scan, and their declaration blocks left unparsed.
+   */
+  private static class TreeVisitor extends SquidAstVisitor<LexerlessGrammar> implements SelectorLevelVisitor {
+
+    private int parses;
+    private int lazyBlocks;
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      if (ast != null) {
+        parses++;
+        lazyBlocks += ast.getDescendants(CssGrammar.lazyDeclaration).size();
+      }
+    }
+
+  }
+
+}
@@ -26,6 +26,8 @@ import org.mockito.Mockito;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.FileQuery;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.CpdTokenStore;
 import org.sonar.plugins.css.core.Css;
 
 import java.io.File;
@@ -45,7 +47,7 @@ public class CssCpdMappingTest {
     when(fileSystem.sourceCharset()).thenReturn(Charsets.UTF_8);
     when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(Arrays.asList(new File("src/test/resources/org/sonar/plugins/css/cssProject/css/boxSizing.css")));
     mapping = new CssCpdMapping(
-      new Css(new Settings()), fileSystem);
+      new Css(new Settings()), fileSystem, mock(AnalysisCache.class), mock(CpdTokenStore.class));
   }
 
   @Test
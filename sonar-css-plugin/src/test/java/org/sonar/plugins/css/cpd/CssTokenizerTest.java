@@ -22,17 +22,30 @@ package org.sonar.plugins.css.cpd;
 import net.sourceforge.pmd.cpd.SourceCode;
 import net.sourceforge.pmd.cpd.TokenEntry;
 import net.sourceforge.pmd.cpd.Tokens;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.css.CssPlugin;
+import org.sonar.plugins.css.cache.AnalysisCache;
+import org.sonar.plugins.css.cache.FileTokens;
 
 import java.io.File;
 import java.nio.charset.Charset;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CssTokenizerTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void test() {
     CssTokenizer tokenizer = new CssTokenizer(Charset.forName("UTF-8"));
@@ -45,4 +58,27 @@ public class CssTokenizerTest {
     assertThat(tokens.getTokens().get(tokens.size() - 1)).isEqualTo(TokenEntry.getEOF());
   }
 
+  @Test
+  public void should_reuse_cached_tokens() throws Exception {
+    FileSystem fs = mock(FileSystem.class);
+    when(fs.workDir()).thenReturn(temp.newFolder());
+    Settings settings = new Settings();
+    settings.setProperty(CssPlugin.CACHE_KEY, true);
+    AnalysisCache cache = spy(new AnalysisCache(fs, settings));
+    SourceCode source = mock(SourceCode.class);
+    when(source.getFileName()).thenReturn(
+        new File("src/test/resources/org/sonar/plugins/css/cssProject/css/displayProperty.css").getAbsolutePath());
+    Tokens tokens = new Tokens();
+    new CssTokenizer(Charset.forName("UTF-8"), cache, null).tokenize(source, tokens);
+    Tokens cachedTokens = new Tokens();
+    new CssTokenizer(Charset.forName("UTF-8"), cache, null).tokenize(source, cachedTokens);
+
+    verify(cache).putTokens(Mockito.anyString(), Mockito.any(FileTokens.class));
+    assertThat(cachedTokens.size()).isEqualTo(tokens.size());
+    for (int i = 0; i < tokens.size(); i++) {
+      assertThat(cachedTokens.getTokens().get(i).getValue()).isEqualTo(tokens.getTokens().get(i).getValue());
+      assertThat(cachedTokens.getTokens().get(i).getBeginLine()).isEqualTo(tokens.getTokens().get(i).getBeginLine());
+    }
+  }
+
 }
@@ -30,9 +30,6 @@ import org.sonar.colorizer.JavadocTokenizer;
 import org.sonar.colorizer.StringTokenizer;
 import org.sonar.colorizer.Tokenizer;
 import org.sonar.css.CssConfiguration;
-import org.sonar.css.parser.CssGrammar;
-import org.sonar.sslr.parser.LexerlessGrammar;
-import org.sonar.sslr.parser.ParserAdapter;
 import org.sonar.sslr.toolkit.AbstractConfigurationModel;
 import org.sonar.sslr.toolkit.ConfigurationProperty;
 import org.sonar.sslr.toolkit.Validators;
@@ -64,7 +61,7 @@ public class CssConfigurationModel extends AbstractConfigurationModel {
 
   @Override
   public Parser doGetParser() {
-    return new ParserAdapter<LexerlessGrammar>(getCharset(), CssGrammar.createGrammar());
+    return getConfiguration().dialect().parser(getCharset());
   }
 
   @Override